@@ -0,0 +1,89 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.transform.BasicTransformerAdapter;
+import org.hibernate.transform.ResultTransformer;
+
+/**
+ * Used for batched queries, the batch key is selected as last value of the tuple.
+ * The key is split off and the remaining values are transformed by the 
+ * transformer of the original query, if there was one.
+ * <p>
+ * Each row is transformed to an array of two elements: the key and the result.
+ * The list transformation of the delegate is applied to the results,
+ * which are paired with their keys again afterwards.
+ */
+public class BatchKeyResultTransformer extends BasicTransformerAdapter {
+    private static final long serialVersionUID = -2412409453097435563L;
+
+    private final ResultTransformer delegate;
+
+    public BatchKeyResultTransformer(ResultTransformer delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Object transformTuple(Object[] tuple, String[] aliases) {
+        int last = tuple.length - 1;
+        Object[] values = Arrays.copyOf(tuple, last);
+        Object result;
+        if (delegate != null) {
+            result = delegate.transformTuple(values, aliases == null ? null: Arrays.copyOf(aliases, last));
+        } else {
+            result = values.length == 1 ? values[0]: values;
+        }
+        return new Object[] { tuple[last], result };
+    }
+
+    /**
+     * Applies the list transformation of the delegate to the results and pairs
+     * the results it returns with their keys again. A delegate which groups rows
+     * into one result removes the duplicates, a result is paired with the key of
+     * its first row, the rows of one result must have the same key.
+     */
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public List transformList(List list) {
+        if (delegate == null) {
+            return list;
+        }
+        Map<Object, Object> keys = new IdentityHashMap<>();
+        List<Object> results = new ArrayList<>(list.size());
+        for(Object[] keyAndResult: (List<Object[]>) list) {
+            Object key = keys.get(keyAndResult[1]);
+            if (key == null) {
+                keys.put(keyAndResult[1], keyAndResult[0]);
+            } else if (!key.equals(keyAndResult[0])) {
+                throw new IllegalStateException(String.format("The rows of batch keys [%s] and [%s] "
+                        + "were grouped into the same result.", key, keyAndResult[0]));
+            }
+            results.add(keyAndResult[1]);
+        }
+        List<Object> transformed = new ArrayList<>();
+        for(Object result: delegate.transformList(results)) {
+            transformed.add(new Object[] { keys.get(result), result });
+        }
+        return transformed;
+    }
+
+}
@@ -15,8 +15,16 @@
  */
 package be.shad.tsqb.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
+import org.hibernate.NonUniqueResultException;
+
+import be.shad.tsqb.dao.columnar.ColumnarResult;
+import be.shad.tsqb.dao.tuple.TupleResult;
+import be.shad.tsqb.query.TypeSafeBulkQuery;
 import be.shad.tsqb.query.TypeSafeRootQuery;
 
 public interface TypeSafeQueryDao {
@@ -29,5 +37,115 @@ public interface TypeSafeQueryDao {
      * when the query was transformed.
      */
     <T> List<T> doQuery(TypeSafeRootQuery query);
+
+    /**
+     * Checks whether the query has any results, without fetching them.
+     * <p>
+     * A copy of the query is executed which selects a constant value,
+     * has no order bys and fetches a single row.
+     */
+    boolean exists(TypeSafeRootQuery query);
+
+    /**
+     * Fetches the first result of the query, or null if there are no results.
+     * <p>
+     * A copy of the query is executed with the max results set to 1,
+     * the order bys are kept because they determine which result is first.
+     * When collection values are selected, the rows of one result can't be limited,
+     * the query is executed as is and the first grouped result is returned.
+     */
+    <T> T first(TypeSafeRootQuery query);
+
+    /**
+     * Fetches the unique result of the query, or null if there are no results.
+     * <p>
+     * A copy of the query is executed without order bys which fetches at most
+     * two rows, enough to detect a result which is not unique.
+     * When collection values are selected, the rows of one result can't be limited,
+     * the query is executed as is and fails if more than one result is grouped.
+     * 
+     * @throws NonUniqueResultException if the query returned more than one result.
+     */
+    <T> T unique(TypeSafeRootQuery query) throws NonUniqueResultException;
+
+    /**
+     * Executes the query for each of the values of the named parameter, using as few queries as possible.
+     * The named parameter must be bound with eq() or in(), in a restriction which is not part of an 'or'.
+     * <p>
+     * The restriction is changed to an 'in' restriction for chunks of the values and the restricted 
+     * value is selected alongside the results to group the results by value.
+     * <p>
+     * Example, to fetch the persons of multiple towns:
+     * <pre>
+     * Person person = query.from(Person.class);
+     * query.where(person.getTown().getId()).eq().named("townId");
+     * Map&lt;Long, List&lt;Person&gt;&gt; personsByTown = dao.doBatchedQuery(query, "townId", townIds);
+     * </pre>
+     * 
+     * @return the results by value, in the order of the values, an empty list is mapped if a value had no results.
+     * @throws IllegalArgumentException if the named parameter can't be used to batch the query,
+     *         or if the query has first or max results, these can't be applied per value.
+     */
+    <K, T> Map<K, List<T>> doBatchedQuery(TypeSafeRootQuery query, String parameterName, Collection<K> values);
+
+    /**
+     * Executes the query and stores the results per projection, in a primitive array for
+     * numbers and a dictionary encoded array for strings, see {@link ColumnarResult}.
+     * The results are scrolled, no object is created per row.
+     * <p>
+     * Meant for large results which are processed further in java, for example:
+     * <pre>
+     * query.select(person.getName());
+     * query.select(person.getAge());
+     * ColumnarResult result = dao.doColumnarQuery(query);
+     * long[] ages = result.getLongColumn(1).getValues();
+     * </pre>
+     * 
+     * @throws IllegalArgumentException if a projection doesn't select a primitive number (or its wrapper)
+     *         or a string, or if a projection uses a value transformer.
+     */
+    ColumnarResult doColumnarQuery(TypeSafeRootQuery query);
+
+    /**
+     * Executes a query which selects values without a selection dto and stores the rows in 
+     * one buffer, instead of one object array per row, see {@link TupleResult}.
+     * The results are scrolled and the value transformers are applied.
+     * <pre>
+     * query.select(person.getName());
+     * query.select(person.getAge());
+     * for(Tuple tuple: dao.doTupleQuery(query)) {
+     *     String name = tuple.get(0);
+     *     int age = tuple.get(1);
+     * }
+     * </pre>
+     * 
+     * @throws IllegalArgumentException if no values are selected, or if the values
+     *         are selected into a selection dto or passed to a constructor.
+     */
+    TupleResult doTupleQuery(TypeSafeRootQuery query);
+
+    /**
+     * Executes the query and transforms the results in a pipeline: the calling thread scrolls
+     * the raw tuples and hands them in batches to the executor, which applies the value transformers
+     * and creates the result dtos in parallel. The amount of batches waiting to be transformed is bounded,
+     * reading the tuples is paused while too many batches are pending.
+     * <p>
+     * Meant for large results with expensive value transformers or selection mergers, these must
+     * be thread safe and may not use the session (lazy loading for example).
+     * 
+     * @param ordered whether the results are returned in the order of the query,
+     *        if false the batches are added in the order in which they are transformed.
+     * @throws IllegalArgumentException if the query selects collection values, the rows
+     *         of a result must be transformed sequentially in that case.
+     */
+    <T> List<T> doPipelinedQuery(TypeSafeRootQuery query, ExecutorService executor, boolean ordered);
+
+    /**
+     * Transforms the bulk statement to hql, creates a hibernate query object
+     * for the current session and executes the update.
+     * 
+     * @return the number of entities updated or deleted.
+     */
+    int executeUpdate(TypeSafeBulkQuery query);
     
 }
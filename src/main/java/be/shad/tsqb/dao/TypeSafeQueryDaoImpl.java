@@ -15,32 +15,644 @@
  */
 package be.shad.tsqb.dao;
 
+import static java.lang.String.format;
+import static java.lang.invoke.MethodType.methodType;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import org.hibernate.NonUniqueResultException;
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.transform.ResultTransformer;
 
 import be.shad.tsqb.NamedParameter;
+import be.shad.tsqb.dao.columnar.ColumnarResult;
+import be.shad.tsqb.dao.columnar.ResultColumn;
+import be.shad.tsqb.dao.tuple.TupleResult;
+import be.shad.tsqb.data.TypeSafeQueryFrom;
+import be.shad.tsqb.data.TypeSafeQueryProxyData;
 import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.joins.TypeSafeQueryJoin;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.query.TypeSafeBulkQuery;
 import be.shad.tsqb.query.TypeSafeRootQuery;
+import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+import be.shad.tsqb.restrictions.Restriction;
+import be.shad.tsqb.restrictions.RestrictionImpl;
+import be.shad.tsqb.restrictions.RestrictionNode;
+import be.shad.tsqb.restrictions.RestrictionNodeType;
+import be.shad.tsqb.restrictions.RestrictionOperator;
+import be.shad.tsqb.restrictions.RestrictionsGroupImpl;
+import be.shad.tsqb.selection.MemoizingSelectionValueTransformer;
+import be.shad.tsqb.selection.SelectionValueTransformer;
+import be.shad.tsqb.selection.TypeSafeQueryProjections;
+import be.shad.tsqb.selection.TypeSafeQueryResultTransformer;
+import be.shad.tsqb.selection.TypeSafeValueProjection;
+import be.shad.tsqb.values.CollectionTypeSafeValue;
+import be.shad.tsqb.values.DirectTypeSafeValue;
+import be.shad.tsqb.values.HqlQueryValue;
+import be.shad.tsqb.values.ReferenceTypeSafeValue;
 
 public class TypeSafeQueryDaoImpl implements TypeSafeQueryDao {
+    public static final int DEFAULT_MAX_IN_LIST_SIZE = 500;
+    public static final int DEFAULT_PIPELINE_BATCH_SIZE = 256;
+    public static final int DEFAULT_MAX_PENDING_PIPELINE_BATCHES = 16;
+    private static final int DEFAULT_TUPLE_RESULT_CAPACITY = 64;
+    
     private final SessionFactory sessionFactory;
+    private int maxInListSize = DEFAULT_MAX_IN_LIST_SIZE;
+    private int pipelineBatchSize = DEFAULT_PIPELINE_BATCH_SIZE;
+    private int maxPendingPipelineBatches = DEFAULT_MAX_PENDING_PIPELINE_BATCHES;
     
     public TypeSafeQueryDaoImpl(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
     }
 
+    /**
+     * The max amount of values bound to a single 'in' parameter
+     * when the dao generates queries with ids/keys, larger collections
+     * are split into multiple queries.
+     */
+    public void setMaxInListSize(int maxInListSize) {
+        if (maxInListSize <= 0) {
+            throw new IllegalArgumentException("The max in list size must be positive: " + maxInListSize);
+        }
+        this.maxInListSize = maxInListSize;
+    }
+    
+    public int getMaxInListSize() {
+        return maxInListSize;
+    }
+
+    /**
+     * The amount of tuples which are transformed together by a worker
+     * when a query is executed with {@link #doPipelinedQuery}.
+     */
+    public void setPipelineBatchSize(int pipelineBatchSize) {
+        if (pipelineBatchSize <= 0) {
+            throw new IllegalArgumentException("The pipeline batch size must be positive: " + pipelineBatchSize);
+        }
+        this.pipelineBatchSize = pipelineBatchSize;
+    }
+
+    public int getPipelineBatchSize() {
+        return pipelineBatchSize;
+    }
+
+    /**
+     * The max amount of batches which are read but not yet transformed
+     * when a query is executed with {@link #doPipelinedQuery}.
+     */
+    public void setMaxPendingPipelineBatches(int maxPendingPipelineBatches) {
+        if (maxPendingPipelineBatches <= 0) {
+            throw new IllegalArgumentException("The max pending pipeline batches must be positive: " 
+                    + maxPendingPipelineBatches);
+        }
+        this.maxPendingPipelineBatches = maxPendingPipelineBatches;
+    }
+
+    public int getMaxPendingPipelineBatches() {
+        return maxPendingPipelineBatches;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
-    @SuppressWarnings("unchecked")
     public <T> List<T> doQuery(TypeSafeRootQuery tsqbQuery) {
+        List<TypeSafeQueryJoin<?>> splitFetchJoins = getSplittableCollectionFetchJoins(tsqbQuery);
+        if (!splitFetchJoins.isEmpty()) {
+            return doQueryWithSplitCollectionFetches(tsqbQuery, splitFetchJoins);
+        }
+        return list(tsqbQuery);
+    }
+
+    /**
+     * Executes the query as is.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> List<T> list(TypeSafeRootQuery tsqbQuery) {
         HqlQuery hqlQuery = tsqbQuery.toHqlQuery();
         
+        Query query = createQuery(hqlQuery);
+        setResultsWindow(query, tsqbQuery);
+        ResultTransformer transformer = hqlQuery.getResultTransformer();
+        query.setResultTransformer(transformer);
+        
+        TypeSafeQueryResultTransformer.beginExecution(transformer);
+        try {
+            return query.list();
+        } finally {
+            TypeSafeQueryResultTransformer.endExecution(transformer);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ColumnarResult doColumnarQuery(TypeSafeRootQuery tsqbQuery) {
+        TypeSafeQueryProjections projections = ((TypeSafeRootQueryInternal) tsqbQuery).getProjections();
+        if (projections.getProjections().isEmpty()) {
+            throw new IllegalArgumentException("A columnar query must select the values of the columns.");
+        }
+        List<ResultColumn> columns = new ArrayList<>(projections.getProjections().size());
+        for(TypeSafeValueProjection projection: projections.getProjections()) {
+            String name = projection.getAlias() == null ? "column" + columns.size(): projection.getAlias();
+            if (projection.getTransformer() != null) {
+                throw new IllegalArgumentException(format("The value of column [%s] can't be "
+                        + "transformed in a columnar query.", name));
+            }
+            columns.add(ColumnarResult.createColumn(name, projection.getValue().getValueClass()));
+        }
+        
+        HqlQuery hqlQuery = tsqbQuery.toHqlQuery();
+        Query query = createQuery(hqlQuery);
+        setResultsWindow(query, tsqbQuery);
+
+        ColumnarResult result = new ColumnarResult(columns);
+        ScrollableResults rows = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (rows.next()) {
+                result.appendRow(rows.get());
+            }
+        } finally {
+            rows.close();
+        }
+        result.trimToSize();
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TupleResult doTupleQuery(TypeSafeRootQuery tsqbQuery) {
+        TypeSafeQueryProjections projections = ((TypeSafeRootQueryInternal) tsqbQuery).getProjections();
+        if (projections.getProjections().isEmpty()) {
+            throw new IllegalArgumentException("A tuple query must select the values of the tuples.");
+        }
+        if (projections.getResultInvokerClass() != null) {
+            throw new IllegalArgumentException(format("The values of a tuple query can't be "
+                    + "passed to [%s].", projections.getResultInvokerClass().getName()));
+        }
+        SelectionValueTransformer<?, ?>[] transformers = new SelectionValueTransformer<?, ?>[
+                projections.getProjections().size()];
+        int column = 0;
+        for(TypeSafeValueProjection projection: projections.getProjections()) {
+            if (projection.getSelectionData() != null) {
+                throw new IllegalArgumentException(format("The value selected into [%s] can't be "
+                        + "selected into a selection dto in a tuple query.", projection.getAlias()));
+            }
+            transformers[column++] = projection.getTransformer();
+        }
+
+        HqlQuery hqlQuery = tsqbQuery.toHqlQuery();
+        Query query = createQuery(hqlQuery);
+        setResultsWindow(query, tsqbQuery);
+
+        TupleResult result = new TupleResult(transformers.length, 
+                tsqbQuery.getMaxResults() > 0 ? tsqbQuery.getMaxResults(): DEFAULT_TUPLE_RESULT_CAPACITY);
+        ScrollableResults rows = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (rows.next()) {
+                Object[] row = rows.get();
+                for(int i=0; i < row.length; i++) {
+                    if (transformers[i] != null) {
+                        row[i] = convert(transformers[i], row[i]);
+                    }
+                }
+                result.appendRow(row);
+            }
+        } finally {
+            rows.close();
+            MemoizingSelectionValueTransformer.clearCaches(transformers);
+        }
+        result.trimToSize();
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object convert(SelectionValueTransformer<?, ?> transformer, Object value) {
+        return ((SelectionValueTransformer<Object, ?>) transformer).convert(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> List<T> doPipelinedQuery(TypeSafeRootQuery tsqbQuery, ExecutorService executor, boolean ordered) {
+        HqlQuery hqlQuery = tsqbQuery.toHqlQuery();
+        ResultTransformer transformer = hqlQuery.getResultTransformer();
+        if (isGroupingRows(transformer)) {
+            throw new IllegalArgumentException("A query which selects collection values "
+                    + "can't be transformed in a pipeline.");
+        }
+        Query query = createQuery(hqlQuery);
+        setResultsWindow(query, tsqbQuery);
+        String[] aliases = query.getReturnAliases();
+
+        // the completion service is only used to take the first completed batch when unordered:
+        CompletionService<List<Object>> completionService = ordered ? null
+                : new ExecutorCompletionService<List<Object>>(executor);
+        Deque<Future<List<Object>>> pending = new ArrayDeque<>(maxPendingPipelineBatches);
+        List<Object> results = new ArrayList<>();
+        ScrollableResults rows = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            List<Object[]> batch = new ArrayList<>(pipelineBatchSize);
+            while (rows.next()) {
+                batch.add(rows.get());
+                if (batch.size() == pipelineBatchSize) {
+                    if (pending.size() == maxPendingPipelineBatches) {
+                        results.addAll(takeTransformedBatch(completionService, pending, ordered));
+                    }
+                    pending.add(submit(executor, completionService, new PipelineBatch(transformer, aliases, batch)));
+                    batch = new ArrayList<>(pipelineBatchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.add(submit(executor, completionService, new PipelineBatch(transformer, aliases, batch)));
+            }
+            while (!pending.isEmpty()) {
+                results.addAll(takeTransformedBatch(completionService, pending, ordered));
+            }
+        } finally {
+            rows.close();
+            for(Future<List<Object>> future: pending) {
+                future.cancel(true);
+            }
+        }
+        return (List<T>) results;
+    }
+
+    private Future<List<Object>> submit(ExecutorService executor, 
+            CompletionService<List<Object>> completionService, PipelineBatch batch) {
+        if (completionService == null) {
+            return executor.submit(batch);
+        }
+        return completionService.submit(batch);
+    }
+
+    /**
+     * Waits for the oldest pending batch if the results are ordered, 
+     * or for the first batch which is completed otherwise.
+     */
+    private List<Object> takeTransformedBatch(CompletionService<List<Object>> completionService,
+            Deque<Future<List<Object>>> pending, boolean ordered) {
+        try {
+            if (ordered) {
+                return pending.remove().get();
+            }
+            Future<List<Object>> future = completionService.take();
+            pending.remove(future);
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the transformed results.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Failed to transform the results.", e.getCause());
+        }
+    }
+
+    /**
+     * Transforms a batch of tuples the same way hibernate would when listing the results.
+     * The transformer's list transformation is applied per batch, it cleans up the
+     * state the transformer keeps for the worker thread.
+     */
+    private static final class PipelineBatch implements Callable<List<Object>> {
+        private final ResultTransformer transformer;
+        private final String[] aliases;
+        private final List<Object[]> tuples;
+
+        public PipelineBatch(ResultTransformer transformer, String[] aliases, List<Object[]> tuples) {
+            this.transformer = transformer;
+            this.aliases = aliases;
+            this.tuples = tuples;
+        }
+
+        @Override
+        public List<Object> call() {
+            List<Object> results = new ArrayList<>(tuples.size());
+            TypeSafeQueryResultTransformer.beginExecution(transformer);
+            try {
+                for(Object[] tuple: tuples) {
+                    if (transformer != null) {
+                        results.add(transformer.transformTuple(tuple, aliases));
+                    } else {
+                        results.add(tuple.length == 1 ? tuple[0]: tuple);
+                    }
+                }
+                if (transformer != null) {
+                    @SuppressWarnings("unchecked")
+                    List<Object> transformed = transformer.transformList(results);
+                    return transformed;
+                }
+                return results;
+            } finally {
+                TypeSafeQueryResultTransformer.endExecution(transformer);
+            }
+        }
+    }
+
+    /**
+     * Applies the first and max results of the type safe query to the hibernate query.
+     */
+    private void setResultsWindow(Query query, TypeSafeRootQuery tsqbQuery) {
+        if (tsqbQuery.getFirstResult() >= 0) {
+            query.setFirstResult(tsqbQuery.getFirstResult());
+        }
+        if (tsqbQuery.getMaxResults() > 0) {
+            query.setMaxResults(tsqbQuery.getMaxResults());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean exists(TypeSafeRootQuery query) {
+        return !doQuery(((TypeSafeRootQueryInternal) query).copyForExists()).isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T first(TypeSafeRootQuery query) {
+        List<T> results = doQuery(isGroupingRows(query) ? query
+                : ((TypeSafeRootQueryInternal) query).copyForFirstResult());
+        return results.isEmpty() ? null: results.get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T unique(TypeSafeRootQuery query) throws NonUniqueResultException {
+        List<T> results = doQuery(isGroupingRows(query) ? query
+                : ((TypeSafeRootQueryInternal) query).copyForUniqueResult());
+        if (results.size() > 1) {
+            throw new NonUniqueResultException(results.size());
+        }
+        return results.isEmpty() ? null: results.get(0);
+    }
+
+    /**
+     * Whether multiple rows of the query are grouped into one result, a row limit
+     * would cut off collection values in that case.
+     */
+    private static boolean isGroupingRows(TypeSafeRootQuery query) {
+        return isGroupingRows(query.toHqlQuery().getResultTransformer());
+    }
+
+    private static boolean isGroupingRows(ResultTransformer transformer) {
+        return transformer instanceof TypeSafeQueryResultTransformer
+                && ((TypeSafeQueryResultTransformer) transformer).isGroupingRows();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, T> Map<K, List<T>> doBatchedQuery(TypeSafeRootQuery query, String parameterName, Collection<K> values) {
+        if (query.getFirstResult() > 0 || query.getMaxResults() > 0) {
+            throw new IllegalArgumentException(format("The first/max results [%d, %d] of a batched "
+                    + "query can't be applied per value.", query.getFirstResult(), query.getMaxResults()));
+        }
+        Map<K, List<T>> results = new LinkedHashMap<>();
+        for(K value: values) {
+            results.put(value, new ArrayList<T>());
+        }
+        if (results.isEmpty()) {
+            return results;
+        }
+
+        TypeSafeRootQueryInternal batchQuery = (TypeSafeRootQueryInternal) query.copy();
+        CollectionTypeSafeValue<K> keys = toBatchKeysValue(batchQuery, parameterName, results.keySet());
+        for(List<K> keysChunk: partition(results.keySet(), maxInListSize)) {
+            keys.setValues(keysChunk);
+            HqlQuery hqlQuery = batchQuery.toHqlQuery();
+            Query hibernateQuery = createQuery(hqlQuery);
+            ResultTransformer transformer = hqlQuery.getResultTransformer();
+            hibernateQuery.setResultTransformer(new BatchKeyResultTransformer(transformer));
+            TypeSafeQueryResultTransformer.beginExecution(transformer);
+            try {
+                for(Object[] keyAndResult: (List<Object[]>) hibernateQuery.list()) {
+                    List<T> keyResults = results.get(keyAndResult[0]);
+                    if (keyResults == null) {
+                        throw new IllegalStateException(format("The selected batch key [%s] of type [%s] "
+                                + "is not one of the values.", keyAndResult[0], keyAndResult[0].getClass()));
+                    }
+                    keyResults.add((T) keyAndResult[1]);
+                }
+            } finally {
+                TypeSafeQueryResultTransformer.endExecution(transformer);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Rewrites the restriction of the named parameter to an 'in' restriction and projects the
+     * restricted value as last projection. If there were no projections, the from is projected first.
+     * <p>
+     * The selected keys are looked up by value, so the values must have
+     * the type of the restricted value, an Integer doesn't equal a Long.
+     * 
+     * @return the value to bind the chunks of batch keys to.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private <K> CollectionTypeSafeValue<K> toBatchKeysValue(TypeSafeRootQueryInternal batchQuery, 
+            String parameterName, Collection<K> values) {
+        Object named = batchQuery.named().get(parameterName);
+        RestrictionImpl restriction = findBatchRestriction((RestrictionsGroupImpl) batchQuery.getRestrictions(), named);
+        if (restriction == null) {
+            throw new IllegalArgumentException(format("The named parameter [%s] is not used in a where "
+                    + "restriction which is not part of an 'or'.", parameterName));
+        }
+        Class<?> keyClass = methodType(restriction.getLeft().getValueClass()).wrap().returnType();
+        for(K value: values) {
+            if (!keyClass.isInstance(value)) {
+                throw new IllegalArgumentException(format("The values of the batch parameter [%s] must be of type [%s], "
+                        + "value [%s] is of type [%s].", parameterName, keyClass.getName(), value,
+                        value == null ? null: value.getClass().getName()));
+            }
+        }
+        CollectionTypeSafeValue<K> keys;
+        if (named instanceof CollectionTypeSafeValue && restriction.getOperator() == RestrictionOperator.IN) {
+            keys = (CollectionTypeSafeValue<K>) named;
+        } else if (named instanceof DirectTypeSafeValue && restriction.getOperator() == RestrictionOperator.EQUAL) {
+            keys = new CollectionTypeSafeValue<>(batchQuery, ((DirectTypeSafeValue<K>) named).getValueClass());
+            restriction.setRight(keys);
+            restriction.setOperator(RestrictionOperator.IN);
+        } else {
+            throw new IllegalArgumentException(format("The named parameter [%s] must be bound "
+                    + "using eq() or in() to be used as batch parameter.", parameterName));
+        }
+
+        TypeSafeQueryProjections projections = batchQuery.getProjections();
+        if (projections.getProjections().isEmpty()) {
+            List<TypeSafeQueryFrom> froms = batchQuery.getDataTree().getFroms();
+            if (froms.size() != 1) {
+                throw new IllegalArgumentException("A batched query without projections must have exactly one from.");
+            }
+            projections.project(new ReferenceTypeSafeValue<>(batchQuery, froms.get(0).getRoot()), null);
+        }
+        projections.project(restriction.getLeft(), null);
+        return keys;
+    }
+
+    /**
+     * Finds the restriction which uses the named value, only looks in groups 
+     * chained with 'and', otherwise a restriction on the key wouldn't restrict all results.
+     */
+    private RestrictionImpl<?> findBatchRestriction(RestrictionsGroupImpl group, Object named) {
+        for(RestrictionNode node: group.getRestrictionNodes()) {
+            if (node.getType() == RestrictionNodeType.Or) {
+                return null;
+            }
+        }
+        for(RestrictionNode node: group.getRestrictionNodes()) {
+            Restriction restriction = node.getRestriction();
+            if (restriction instanceof RestrictionImpl<?>) {
+                if (((RestrictionImpl<?>) restriction).getRight() == named) {
+                    return (RestrictionImpl<?>) restriction;
+                }
+            } else if (restriction instanceof RestrictionsGroupImpl) {
+                RestrictionImpl<?> nested = findBatchRestriction((RestrictionsGroupImpl) restriction, named);
+                if (nested != null) {
+                    return nested;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int executeUpdate(TypeSafeBulkQuery query) {
+        return createQuery(query.toHqlQueryValue()).executeUpdate();
+    }
+
+    /**
+     * Fetching multiple collections in one query results in a row for each combination
+     * of collection elements. To prevent this, the left fetched collections of the
+     * root entity are split off when the query selects the root entity of its only from
+     * and there is more than one collection fetch.
+     * <p>
+     * A collection fetch can only be split off if nothing else in the query depends on it:
+     * it must be joined directly on the root, without with-restrictions or usages of
+     * its properties. Inner fetches are never split off, they also restrict the root results.
+     */
+    protected List<TypeSafeQueryJoin<?>> getSplittableCollectionFetchJoins(TypeSafeRootQuery query) {
+        TypeSafeRootQueryInternal internalQuery = (TypeSafeRootQueryInternal) query;
+        List<TypeSafeQueryFrom> froms = internalQuery.getDataTree().getFroms();
+        if (froms.size() != 1 || !internalQuery.getProjections().getProjections().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<TypeSafeQueryJoin<?>> collectionFetchJoins = froms.get(0).getCollectionFetchJoins();
+        if (collectionFetchJoins.size() < 2) {
+            return Collections.emptyList();
+        }
+        TypeSafeQueryProxyData root = froms.get(0).getRoot();
+        List<TypeSafeQueryJoin<?>> splitFetchJoins = new ArrayList<>(collectionFetchJoins.size());
+        for(TypeSafeQueryJoin<?> join: collectionFetchJoins) {
+            TypeSafeQueryProxyData data = join.getData();
+            if (data.getEffectiveJoinType() == JoinType.LeftFetch && root.equals(data.getParent()) 
+                    && data.getChildren().isEmpty() && join.isEmpty()) {
+                splitFetchJoins.add(join);
+            }
+        }
+        return splitFetchJoins;
+    }
+
+    /**
+     * Executes a copy of the query without the split off collection fetches,
+     * followed by a query per split off collection which fetches the collection
+     * for the ids of the root results. The root results are attached to the session, 
+     * so the collections are initialized on the same entity instances.
+     */
+    protected <T> List<T> doQueryWithSplitCollectionFetches(TypeSafeRootQuery query, 
+            List<TypeSafeQueryJoin<?>> splitFetchJoins) {
+        TypeSafeRootQueryInternal rootQuery = (TypeSafeRootQueryInternal) query.copy();
+        TypeSafeQueryProxyData rootQueryRoot = rootQuery.getDataTree().getFroms().get(0).getRoot();
+        for(TypeSafeQueryJoin<?> join: splitFetchJoins) {
+            rootQueryRoot.getChild(join.getData().getPropertyPath()).setJoinType(JoinType.None);
+        }
+        List<T> results = list(rootQuery);
+        if (results.isEmpty()) {
+            return results;
+        }
+
+        Session currentSession = sessionFactory.getCurrentSession();
+        Set<Serializable> ids = new LinkedHashSet<>();
+        for(T result: results) {
+            ids.add(currentSession.getIdentifier(result));
+        }
+        Class<?> entityClass = rootQueryRoot.getPropertyType();
+        String entityName = rootQuery.getHelper().getEntityName(entityClass);
+        String identifierPath = sessionFactory.getClassMetadata(entityClass).getIdentifierPropertyName();
+        for(TypeSafeQueryJoin<?> join: splitFetchJoins) {
+            // example: from Town hobj1 left join fetch hobj1.buildings where hobj1.id in (:ids)
+            String hql = format("from %s hobj1 left join fetch hobj1.%s where hobj1.%s in (:ids)", 
+                    entityName, join.getData().getPropertyPath(), identifierPath);
+            for(List<Serializable> idsChunk: partition(ids, maxInListSize)) {
+                currentSession.createQuery(hql).setParameterList("ids", idsChunk).list();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Splits the values in lists of at most size elements.
+     */
+    protected static <E> List<List<E>> partition(Collection<E> values, int size) {
+        List<List<E>> partitions = new ArrayList<>(values.size() / size + 1);
+        List<E> partition = null;
+        for(E value: values) {
+            if (partition == null || partition.size() == size) {
+                partition = new ArrayList<>(Math.min(size, values.size()));
+                partitions.add(partition);
+            }
+            partition.add(value);
+        }
+        return partitions;
+    }
+
+    /**
+     * Creates a hibernate query object for the current session
+     * and binds the positional and named parameters.
+     */
+    protected Query createQuery(HqlQueryValue hqlQuery) {
         Session currentSession = sessionFactory.getCurrentSession();
         Query query = currentSession.createQuery(hqlQuery.getHql());
         int position = 0;
@@ -56,15 +668,7 @@ public class TypeSafeQueryDaoImpl implements TypeSafeQueryDao {
                 query.setParameter(position++, param);
             }
         }
-        if (tsqbQuery.getFirstResult() >= 0) {
-            query.setFirstResult(tsqbQuery.getFirstResult());
-        }
-        if (tsqbQuery.getMaxResults() > 0) {
-            query.setMaxResults(tsqbQuery.getMaxResults());
-        }
-        query.setResultTransformer(hqlQuery.getResultTransformer());
-        
-        return query.list();
+        return query;
     }
 
 }
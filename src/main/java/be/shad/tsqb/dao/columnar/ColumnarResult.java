@@ -0,0 +1,136 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.columnar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Column oriented query results: the values of each projection are stored
+ * in a primitive array (or a dictionary encoded array for strings) instead of
+ * one object array per row, see {@link be.shad.tsqb.dao.TypeSafeQueryDao#doColumnarQuery}.
+ * <p>
+ * Integral numbers are stored in a {@link LongResultColumn}, floating point numbers in a
+ * {@link DoubleResultColumn} and strings in a {@link DictionaryResultColumn}. Big decimals
+ * and big integers can't be stored without losing precision and are not supported.
+ */
+public class ColumnarResult {
+    private final List<ResultColumn> columns;
+    private int rowCount;
+
+    public ColumnarResult(List<ResultColumn> columns) {
+        this.columns = new ArrayList<>(columns);
+    }
+
+    /**
+     * Creates the column to store values of the value class.
+     * 
+     * @throws IllegalArgumentException if the value class can't be stored in a column.
+     */
+    public static ResultColumn createColumn(String name, Class<?> valueClass) {
+        if (isIntegral(valueClass)) {
+            return new LongResultColumn(name);
+        } else if (isFloatingPoint(valueClass)) {
+            return new DoubleResultColumn(name);
+        } else if (String.class.equals(valueClass)) {
+            return new DictionaryResultColumn(name);
+        }
+        throw new IllegalArgumentException(String.format("Values of type [%s] can't be selected "
+                + "in a columnar result, only primitive numbers and strings are supported.", valueClass));
+    }
+
+    /**
+     * Only floats and doubles are stored in doubles, big decimals would lose their precision.
+     */
+    private static boolean isFloatingPoint(Class<?> valueClass) {
+        return valueClass == double.class || valueClass == Double.class
+            || valueClass == float.class || valueClass == Float.class;
+    }
+
+    private static boolean isIntegral(Class<?> valueClass) {
+        return valueClass == long.class || valueClass == Long.class
+            || valueClass == int.class || valueClass == Integer.class
+            || valueClass == short.class || valueClass == Short.class
+            || valueClass == byte.class || valueClass == Byte.class;
+    }
+
+    /**
+     * Appends a row, the row contains a value per column.
+     */
+    public void appendRow(Object[] row) {
+        for(int i=0; i < row.length; i++) {
+            columns.get(i).append(row[i]);
+        }
+        rowCount++;
+    }
+
+    /**
+     * Trims the column buffers to the row count, called when all rows were appended.
+     */
+    public void trimToSize() {
+        for(ResultColumn column: columns) {
+            column.trimToSize();
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public List<ResultColumn> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    public ResultColumn getColumn(int index) {
+        return columns.get(index);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no column has the name.
+     */
+    public ResultColumn getColumn(String name) {
+        for(ResultColumn column: columns) {
+            if (column.getName().equals(name)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException(String.format("No column with name [%s], available: %s.", 
+                name, columns));
+    }
+
+    public LongResultColumn getLongColumn(int index) {
+        return getColumn(index, LongResultColumn.class);
+    }
+
+    public DoubleResultColumn getDoubleColumn(int index) {
+        return getColumn(index, DoubleResultColumn.class);
+    }
+
+    public DictionaryResultColumn getDictionaryColumn(int index) {
+        return getColumn(index, DictionaryResultColumn.class);
+    }
+
+    private <C extends ResultColumn> C getColumn(int index, Class<C> columnClass) {
+        ResultColumn column = columns.get(index);
+        if (!columnClass.isInstance(column)) {
+            throw new IllegalArgumentException(String.format("Column [%s] is a [%s], not a [%s].", 
+                    column.getName(), column.getClass().getSimpleName(), columnClass.getSimpleName()));
+        }
+        return columnClass.cast(column);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.columnar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column of strings, dictionary encoded: each distinct string is stored once
+ * in the dictionary and the rows contain the index of their string.
+ * The code of a null value is -1.
+ */
+public class DictionaryResultColumn extends ResultColumn {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+    private int[] values = new int[0];
+
+    public DictionaryResultColumn(String name) {
+        super(name);
+    }
+
+    /**
+     * @return the codes, the length of the array is the size of the column.
+     */
+    public int[] getCodes() {
+        return values;
+    }
+
+    /**
+     * @return the distinct strings, in the order in which they were encountered.
+     */
+    public List<String> getDictionary() {
+        return Collections.unmodifiableList(dictionary);
+    }
+
+    public int getCode(int row) {
+        return values[row];
+    }
+
+    public String getString(int row) {
+        int code = values[row];
+        return code < 0 ? null: dictionary.get(code);
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (values.length < capacity) {
+            values = Arrays.copyOf(values, grow(values.length, capacity));
+        }
+    }
+
+    @Override
+    protected void appendValue(Object value) {
+        if (value == null) {
+            values[size] = -1;
+            return;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add((String) value);
+            codes.put((String) value, code);
+        }
+        values[size] = code;
+    }
+
+    @Override
+    protected void trimToSize() {
+        if (values.length != size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+}
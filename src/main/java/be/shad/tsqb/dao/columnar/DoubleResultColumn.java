@@ -0,0 +1,62 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.columnar;
+
+import java.util.Arrays;
+
+/**
+ * Column of floating point values, stored in a double array.
+ */
+public class DoubleResultColumn extends ResultColumn {
+    private double[] values = new double[0];
+
+    public DoubleResultColumn(String name) {
+        super(name);
+    }
+
+    /**
+     * @return the values, the length of the array is the size of the column.
+     */
+    public double[] getValues() {
+        return values;
+    }
+
+    public double getDouble(int row) {
+        return values[row];
+    }
+
+    @Override
+    protected void ensureCapacity(int capacity) {
+        if (values.length < capacity) {
+            values = Arrays.copyOf(values, grow(values.length, capacity));
+        }
+    }
+
+    @Override
+    protected void appendValue(Object value) {
+        if (value != null) {
+            values[size] = ((Number) value).doubleValue();
+        }
+    }
+
+    @Override
+    protected void trimToSize() {
+        if (values.length != size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.columnar;
+
+import java.util.BitSet;
+
+/**
+ * A column of a {@link ColumnarResult}, containing the values of one projection for all rows.
+ * <p>
+ * Values are appended while the results are scrolled, the buffers grow by doubling
+ * and are trimmed to the row count when the result is complete.
+ */
+public abstract class ResultColumn {
+    protected static final int INITIAL_CAPACITY = 1024;
+
+    private final String name;
+    private final BitSet nulls = new BitSet();
+    protected int size;
+
+    protected ResultColumn(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The alias of the projection, or 'column' with the index if the projection has no alias.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the amount of values in the column.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether the value of the row is null, the primitive buffers contain 0 for null values.
+     */
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    /**
+     * Appends the value of the next row.
+     */
+    void append(Object value) {
+        if (value == null) {
+            nulls.set(size);
+        }
+        ensureCapacity(size + 1);
+        appendValue(value);
+        size++;
+    }
+
+    /**
+     * Grows the buffers if they can't hold the amount of values.
+     */
+    protected abstract void ensureCapacity(int capacity);
+
+    /**
+     * Sets the value at index size, the value may be null.
+     */
+    protected abstract void appendValue(Object value);
+
+    /**
+     * Trims the buffers to the size of the column.
+     */
+    protected abstract void trimToSize();
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * @return the capacity to grow to, doubling the current capacity until it fits.
+     */
+    protected static int grow(int currentCapacity, int capacity) {
+        int newCapacity = Math.max(currentCapacity, INITIAL_CAPACITY);
+        while (newCapacity < capacity) {
+            newCapacity *= 2;
+        }
+        return newCapacity;
+    }
+
+}
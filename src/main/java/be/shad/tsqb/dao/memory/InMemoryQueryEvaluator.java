@@ -0,0 +1,978 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.memory;
+
+import static java.lang.String.format;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.hibernate.transform.ResultTransformer;
+
+import be.shad.tsqb.data.TypeSafeQueryFrom;
+import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.joins.TypeSafeQueryJoin;
+import be.shad.tsqb.ordering.OrderBy;
+import be.shad.tsqb.ordering.OrderByImpl;
+import be.shad.tsqb.ordering.OrderByProjection;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.query.TypeSafeRootQuery;
+import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+import be.shad.tsqb.restrictions.Restriction;
+import be.shad.tsqb.restrictions.RestrictionImpl;
+import be.shad.tsqb.restrictions.RestrictionNode;
+import be.shad.tsqb.restrictions.RestrictionNodeType;
+import be.shad.tsqb.restrictions.RestrictionOperator;
+import be.shad.tsqb.restrictions.RestrictionsGroup;
+import be.shad.tsqb.restrictions.RestrictionsGroupImpl;
+import be.shad.tsqb.restrictions.predicate.RestrictionGuard;
+import be.shad.tsqb.selection.SelectionDtoAccessor;
+import be.shad.tsqb.selection.SelectionTree;
+import be.shad.tsqb.selection.TypeSafeQueryResultTransformer;
+import be.shad.tsqb.selection.TypeSafeValueProjection;
+import be.shad.tsqb.values.CaseTypeSafeValue;
+import be.shad.tsqb.values.CoalesceTypeSafeValue;
+import be.shad.tsqb.values.CollectionTypeSafeValue;
+import be.shad.tsqb.values.CountTypeSafeValue;
+import be.shad.tsqb.values.CustomTypeSafeValue;
+import be.shad.tsqb.values.DirectTypeSafeValue;
+import be.shad.tsqb.values.DistinctTypeSafeValue;
+import be.shad.tsqb.values.HqlQueryBuilderParamsImpl;
+import be.shad.tsqb.values.OnGoingCaseImpl;
+import be.shad.tsqb.values.OperationTypeSafeValue;
+import be.shad.tsqb.values.OperatorAwareValue;
+import be.shad.tsqb.values.ReferenceTypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValue;
+import be.shad.tsqb.values.WrappedTypeSafeValue;
+import be.shad.tsqb.values.arithmetic.ArithmeticTypeSafeValueImpl;
+
+/**
+ * Evaluates a query against entities kept in memory instead of the database,
+ * for example cached reference data or a snapshot which was loaded earlier.
+ * <p>
+ * The query is evaluated the way the database evaluates its hql: the froms
+ * are combined and joined, the where restrictions filter the rows, the rows are
+ * grouped by the group by values (or into one group when only aggregated values
+ * are selected), the having restrictions filter the groups, the selected values
+ * are ordered and the results window is applied. The selected values are
+ * transformed into the results by the result transformer of the query,
+ * so selection dtos are populated the same way as when the query is executed.
+ * <p>
+ * The property values are read from the fields of the entities. Initialized hibernate
+ * proxies are unwrapped, uninitialized proxies and collections can't be evaluated in memory
+ * because their values weren't loaded. Null values are
+ * never equal to or comparable with other values, like in sql, and are ordered
+ * before the other values.
+ * <p>
+ * Subqueries, custom hql values and restrictions, casts, right joins, functions
+ * other than upper, lower, min, max, sum, avg and count and the properties of
+ * associations which weren't loaded can't be evaluated in memory.
+ * An {@link UnsupportedOperationException} is thrown when the query uses them.
+ * <p>
+ * Other values are compared and matched the java way: strings are ordered by
+ * {@link String#compareTo(String)} instead of the database collation and like is case sensitive,
+ * integral calculations overflow silently. In strict mode, see {@link #setStrict(boolean)},
+ * these evaluations are rejected instead.
+ * <p>
+ * The entities must be added before queries are evaluated, the evaluation
+ * itself is thread safe.
+ */
+public class InMemoryQueryEvaluator {
+    private final Map<Class<?>, Collection<?>> entities = new LinkedHashMap<>();
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, MethodHandle>> getters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Pattern> likePatterns = new ConcurrentHashMap<>();
+    private boolean strict;
+
+    /**
+     * Whether evaluations of which the result may depend on the database are rejected
+     * with an {@link UnsupportedOperationException}: ordering, comparing or like matching
+     * values which are not numbers or dates, ordering null values before other values and
+     * integral calculations which overflow. Disabled by default.
+     */
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    /**
+     * Adds the entities which are used when a query selects from the entity class
+     * or from one of its super classes.
+     */
+    public <T> void addEntities(Class<T> entityClass, Collection<? extends T> entities) {
+        Collection<?> existing = this.entities.get(entityClass);
+        if (existing == null) {
+            this.entities.put(entityClass, new ArrayList<>(entities));
+        } else {
+            addAll(existing, entities);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addAll(Collection<?> existing, Collection<?> entities) {
+        ((Collection<Object>) existing).addAll(entities);
+    }
+
+    /**
+     * Evaluates the query against the added entities.
+     *
+     * @return the results, the same results as when the query is
+     *         executed on a database containing the same entities.
+     * @throws UnsupportedOperationException when the query uses a value or
+     *         restriction which can't be evaluated in memory.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> doQuery(TypeSafeRootQuery tsqbQuery) {
+        TypeSafeRootQueryInternal query = (TypeSafeRootQueryInternal) tsqbQuery;
+        // validates the query and creates the result transformer:
+        HqlQuery hqlQuery = tsqbQuery.toHqlQuery();
+
+        List<Row> rows = createRows(query);
+        rows = filter(rows, query.getRestrictions());
+        if (isGrouped(query)) {
+            rows = filter(group(rows, query.getGroupBys().getValues()), query.getHavingRestrictions());
+        }
+
+        List<TypeSafeValueProjection> projections = new ArrayList<>(query.getProjections().getProjections());
+        List<OrderBy> orderBys = query.getOrderBys().getOrderBys();
+        List<Result> results = new ArrayList<>(rows.size());
+        boolean distinct = false;
+        for(Row row: rows) {
+            Object[] tuple;
+            if (projections.isEmpty()) {
+                tuple = getSelectedEntities(query, row);
+            } else {
+                tuple = new Object[projections.size()];
+                for(int i=0; i < tuple.length; i++) {
+                    TypeSafeValue<?> value = projections.get(i).getValue();
+                    if (value instanceof DistinctTypeSafeValue<?>) {
+                        distinct = true;
+                        value = ((DistinctTypeSafeValue<?>) value).getValue();
+                    }
+                    tuple[i] = evaluate(value, row);
+                }
+            }
+            Object[] orderValues = new Object[orderBys.size()];
+            for(int i=0; i < orderValues.length; i++) {
+                orderValues[i] = evaluateOrderBy(orderBys.get(i), projections, tuple, row);
+            }
+            results.add(new Result(tuple, orderValues));
+        }
+        if (distinct) {
+            results = removeDuplicates(results);
+        }
+        if (!orderBys.isEmpty()) {
+            Collections.sort(results, new ResultComparator(orderBys));
+        }
+        results = getResultsWindow(results, query.getFirstResult(), query.getMaxResults());
+
+        ResultTransformer transformer = hqlQuery.getResultTransformer();
+        List<Object> list = new ArrayList<>(results.size());
+        if (transformer == null) {
+            for(Result result: results) {
+                list.add(result.tuple.length == 1 ? result.tuple[0]: result.tuple);
+            }
+            return (List<T>) list;
+        }
+        String[] aliases = new String[projections.size()];
+        for(int i=0; i < aliases.length; i++) {
+            aliases[i] = projections.get(i).getAlias();
+        }
+        TypeSafeQueryResultTransformer.beginExecution(transformer);
+        try {
+            for(Result result: results) {
+                list.add(transformer.transformTuple(result.tuple, aliases));
+            }
+            return transformer.transformList(list);
+        } finally {
+            TypeSafeQueryResultTransformer.endExecution(transformer);
+        }
+    }
+
+    /**
+     * Combines the entities of the froms and joins them, the way the database
+     * creates the rows of the query.
+     */
+    private List<Row> createRows(TypeSafeRootQueryInternal query) {
+        List<Row> rows = Collections.singletonList(new Row(
+                Collections.<TypeSafeQueryProxyData, Object>emptyMap(), null));
+        for(TypeSafeQueryFrom from: query.getDataTree().getFroms()) {
+            Collection<?> fromEntities = getEntities(from.getRoot().getPropertyType());
+            List<Row> combined = new ArrayList<>(rows.size() * fromEntities.size());
+            for(Row row: rows) {
+                for(Object entity: fromEntities) {
+                    combined.add(row.bind(from.getRoot(), entity));
+                }
+            }
+            rows = combined;
+            for(TypeSafeQueryJoin<?> join: from.getJoins()) {
+                rows = join(rows, join);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return the entities of the class and of its subclasses.
+     */
+    private Collection<?> getEntities(Class<?> entityClass) {
+        List<Object> result = new ArrayList<>();
+        boolean found = false;
+        for(Map.Entry<Class<?>, Collection<?>> entry: entities.entrySet()) {
+            if (entityClass.isAssignableFrom(entry.getKey())) {
+                result.addAll(entry.getValue());
+                found = true;
+            }
+        }
+        if (!found) {
+            throw new IllegalArgumentException(format("No entities were added for [%s].", entityClass.getName()));
+        }
+        return result;
+    }
+
+    /**
+     * Joins the entity or the elements of the collection to each row, rows without
+     * entities to join are removed unless the join is a left join.
+     */
+    private List<Row> join(List<Row> rows, TypeSafeQueryJoin<?> join) {
+        TypeSafeQueryProxyData data = join.getData();
+        JoinType joinType = data.getEffectiveJoinType();
+        switch (joinType) {
+            case None: return rows;
+            case Right: throw new UnsupportedOperationException(format(
+                    "Right joins can't be evaluated in memory: [%s].", data));
+            default:
+        }
+        boolean left = joinType == JoinType.Left || joinType == JoinType.LeftFetch;
+        List<Row> joined = new ArrayList<>(rows.size());
+        for(Row row: rows) {
+            boolean found = false;
+            Object owner = resolve(data.getParent(), row);
+            Object value = owner == null ? null: getProperty(owner, data.getPropertyPath());
+            Collection<?> candidates = value instanceof Collection<?> ? (Collection<?>) value:
+                value == null ? Collections.emptyList(): Collections.singletonList(value);
+            for(Object candidate: candidates) {
+                Row joinedRow = row.bind(data, candidate);
+                if (matches(join, joinedRow)) {
+                    joined.add(joinedRow);
+                    found = true;
+                }
+            }
+            if (!found && left) {
+                joined.add(row.bind(data, null));
+            }
+        }
+        return joined;
+    }
+
+    /**
+     * The entities selected by a query without projections: the froms
+     * and the joined entities which are not fetched.
+     */
+    private Object[] getSelectedEntities(TypeSafeRootQueryInternal query, Row row) {
+        List<Object> selected = new ArrayList<>();
+        for(TypeSafeQueryFrom from: query.getDataTree().getFroms()) {
+            selected.add(row.entities.get(from.getRoot()));
+            for(TypeSafeQueryJoin<?> join: from.getJoins()) {
+                switch (join.getData().getEffectiveJoinType()) {
+                    case Inner:
+                    case Left:
+                        selected.add(row.entities.get(join.getData()));
+                        break;
+                    default:
+                }
+            }
+        }
+        return selected.toArray();
+    }
+
+    private List<Row> filter(List<Row> rows, RestrictionsGroup restrictions) {
+        List<Row> filtered = new ArrayList<>(rows.size());
+        for(Row row: rows) {
+            if (matches(restrictions, row)) {
+                filtered.add(row);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * The rows are grouped when group bys are used or when aggregated values are used.
+     */
+    private boolean isGrouped(TypeSafeRootQueryInternal query) {
+        if (!query.getGroupBys().getValues().isEmpty()) {
+            return true;
+        }
+        if (!((RestrictionsGroupImpl) query.getHavingRestrictions()).isEmpty()) {
+            return true;
+        }
+        for(TypeSafeValueProjection projection: query.getProjections().getProjections()) {
+            if (isAggregated(projection.getValue())) {
+                return true;
+            }
+        }
+        for(OrderBy orderBy: query.getOrderBys().getOrderBys()) {
+            if (orderBy instanceof OrderByImpl && isAggregated(((OrderByImpl) orderBy).getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Groups the rows with the same group by values, all rows are grouped
+     * in one group if there are no group by values.
+     */
+    private List<Row> group(List<Row> rows, List<TypeSafeValue<?>> groupBys) {
+        Map<List<Object>, List<Row>> groups = new LinkedHashMap<>();
+        for(Row row: rows) {
+            List<Object> key = new ArrayList<>(groupBys.size());
+            for(TypeSafeValue<?> groupBy: groupBys) {
+                key.add(evaluate(groupBy, row));
+            }
+            List<Row> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(row);
+        }
+        if (groupBys.isEmpty() && groups.isEmpty()) {
+            // aggregating without group bys results in one row, even without rows:
+            groups.put(Collections.emptyList(), Collections.<Row>emptyList());
+        }
+        List<Row> grouped = new ArrayList<>(groups.size());
+        for(List<Row> group: groups.values()) {
+            Map<TypeSafeQueryProxyData, Object> entities = group.isEmpty() ?
+                    Collections.<TypeSafeQueryProxyData, Object>emptyMap(): group.get(0).entities;
+            grouped.add(new Row(entities, group));
+        }
+        return grouped;
+    }
+
+    private Object evaluateOrderBy(OrderBy orderBy, List<TypeSafeValueProjection> projections,
+            Object[] tuple, Row row) {
+        if (orderBy instanceof OrderByImpl) {
+            return evaluate(((OrderByImpl) orderBy).getValue(), row);
+        } else if (orderBy instanceof OrderByProjection) {
+            String propertyPath = ((OrderByProjection) orderBy).getPropertyPath();
+            for(int i=0; i < projections.size(); i++) {
+                if (propertyPath.equals(projections.get(i).getPropertyPath())) {
+                    return tuple[i];
+                }
+            }
+            throw new IllegalStateException(format("No value was selected into [%s].", propertyPath));
+        }
+        throw new UnsupportedOperationException(format("Order by [%s] can't be evaluated in memory.",
+                orderBy.getClass().getName()));
+    }
+
+    private static List<Result> removeDuplicates(List<Result> results) {
+        Set<List<Object>> tuples = new HashSet<>();
+        List<Result> distinct = new ArrayList<>(results.size());
+        for(Result result: results) {
+            if (tuples.add(Arrays.asList(result.tuple))) {
+                distinct.add(result);
+            }
+        }
+        return distinct;
+    }
+
+    private static List<Result> getResultsWindow(List<Result> results, int firstResult, int maxResults) {
+        int from = Math.min(Math.max(firstResult, 0), results.size());
+        int to = maxResults > 0 ? (int) Math.min((long) from + maxResults, results.size()): results.size();
+        return results.subList(from, to);
+    }
+
+    /**
+     * Evaluates the restrictions the way the hql is evaluated: the restrictions
+     * which are and-ed are evaluated before the ones which are or-ed.
+     * Restrictions which are not applicable are left out.
+     */
+    private boolean matches(RestrictionsGroup restrictions, Row row) {
+        boolean result = false;
+        boolean term = true;
+        boolean first = true;
+        for(RestrictionNode node: ((RestrictionsGroupImpl) restrictions).getRestrictionNodes()) {
+            Restriction restriction = node.getRestriction();
+            if (restriction instanceof RestrictionGuard
+                    && !((RestrictionGuard) restriction).isRestrictionApplicable()) {
+                continue;
+            }
+            if (!first && node.getType() == RestrictionNodeType.Or) {
+                result = result || term;
+                term = true;
+            }
+            first = false;
+            term = term && isTrue(restriction, row);
+        }
+        return result || term;
+    }
+
+    private boolean isTrue(Restriction restriction, Row row) {
+        if (restriction instanceof RestrictionsGroupImpl) {
+            return matches((RestrictionsGroupImpl) restriction, row);
+        } else if (restriction instanceof RestrictionImpl<?>) {
+            return isTrue((RestrictionImpl<?>) restriction, row);
+        }
+        throw new UnsupportedOperationException(format("Restriction [%s] can't be evaluated in memory.",
+                restriction.getClass().getName()));
+    }
+
+    private boolean isTrue(RestrictionImpl<?> restriction, Row row) {
+        RestrictionOperator operator = restriction.getOperator();
+        TypeSafeValue<?> right = restriction.getRight();
+        if (operator == null) {
+            throw new UnsupportedOperationException(format("Custom hql restrictions can't be evaluated in memory: [%s].",
+                    toHql(restriction.getLeft())));
+        }
+        if (right instanceof CollectionTypeSafeValue<?>) {
+            return isIn(evaluate(restriction.getLeft(), row),
+                    ((CollectionTypeSafeValue<?>) right).getValues(), operator);
+        }
+        if (right instanceof OperatorAwareValue) {
+            operator = ((OperatorAwareValue) right).getOperator(operator);
+        }
+        switch (operator) {
+            case EXISTS:
+            case NOT_EXISTS:
+            case IN:
+            case NOT_IN:
+                throw new UnsupportedOperationException(format("Subqueries can't be evaluated in memory: [%s].",
+                        toHql(right)));
+            default:
+        }
+        Object left = evaluate(restriction.getLeft(), row);
+        switch (operator) {
+            case IS_NULL: return left == null;
+            case IS_NOT_NULL: return left != null;
+            default:
+        }
+        Object other = evaluate(right, row);
+        if (left == null || other == null) {
+            return false;
+        }
+        switch (operator) {
+            case EQUAL: return isEqual(left, other);
+            case NOT_EQUAL: return !isEqual(left, other);
+            case LIKE: return isLike(left, other);
+            case NOT_LIKE: return !isLike(left, other);
+            case LESS_THAN: return compareOrdered(left, other) < 0;
+            case LESS_THAN_EQUAL: return compareOrdered(left, other) <= 0;
+            case GREATER_THAN: return compareOrdered(left, other) > 0;
+            case GREATER_THAN_EQUAL: return compareOrdered(left, other) >= 0;
+            default: throw new UnsupportedOperationException(format(
+                    "Operator [%s] can't be evaluated in memory.", operator));
+        }
+    }
+
+    private boolean isIn(Object value, Collection<?> values, RestrictionOperator operator) {
+        if (value == null) {
+            return false;
+        }
+        boolean contains = false;
+        for(Object element: values) {
+            if (element != null && isEqual(value, element)) {
+                contains = true;
+                break;
+            }
+        }
+        switch (operator) {
+            case IN: return contains;
+            case NOT_IN: return !contains;
+            default: throw new UnsupportedOperationException(format(
+                    "Operator [%s] can't be evaluated in memory with a collection of values.", operator));
+        }
+    }
+
+    private boolean isLike(Object value, Object likePattern) {
+        checkDatabaseIndependent(value);
+        String pattern = likePattern.toString();
+        Pattern regex = likePatterns.get(pattern);
+        if (regex == null) {
+            StringBuilder sb = new StringBuilder();
+            for(char c: pattern.toCharArray()) {
+                switch (c) {
+                    case '%': sb.append(".*"); break;
+                    case '_': sb.append('.'); break;
+                    default: sb.append(Pattern.quote(String.valueOf(c)));
+                }
+            }
+            regex = Pattern.compile(sb.toString(), Pattern.DOTALL);
+            likePatterns.putIfAbsent(pattern, regex);
+        }
+        return regex.matcher(value.toString()).matches();
+    }
+
+    /**
+     * Evaluates the value for the row. Aggregated values are evaluated for the
+     * rows of the group, the other values are evaluated for the first row of the group.
+     */
+    private Object evaluate(TypeSafeValue<?> value, Row row) {
+        if (value instanceof DirectTypeSafeValue<?>) {
+            return ((DirectTypeSafeValue<?>) value).getValue();
+        } else if (value instanceof ReferenceTypeSafeValue<?>) {
+            return resolve(((ReferenceTypeSafeValue<?>) value).getData(), row);
+        } else if (value instanceof ArithmeticTypeSafeValueImpl) {
+            return calculate(((ArithmeticTypeSafeValueImpl) value).getCombinedValue(), row);
+        } else if (value instanceof CaseTypeSafeValue<?>) {
+            for(OnGoingCaseImpl<?> ongoingCase: ((CaseTypeSafeValue<?>) value).getCases()) {
+                if (matches(ongoingCase.getRestrictionsGroup(), row)) {
+                    return evaluate(ongoingCase.getValue(), row);
+                }
+            }
+            return null;
+        } else if (value instanceof CoalesceTypeSafeValue<?>) {
+            for(TypeSafeValue<?> coalesced: ((CoalesceTypeSafeValue<?>) value).getValues()) {
+                Object result = evaluate(coalesced, row);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        } else if (value instanceof WrappedTypeSafeValue<?>) {
+            return evaluateFunction((WrappedTypeSafeValue<?>) value, row);
+        } else if (value instanceof CountTypeSafeValue) {
+            TypeSafeValue<?> counted = ((CountTypeSafeValue) value).getValue();
+            if (counted instanceof DistinctTypeSafeValue<?>) {
+                return (long) new HashSet<>(aggregate(((DistinctTypeSafeValue<?>) counted).getValue(), row)).size();
+            }
+            return (long) aggregate(counted, row).size();
+        } else if (value instanceof CustomTypeSafeValue<?>) {
+            String hql = toHql(value);
+            if ("count(*)".equals(hql)) {
+                return (long) getGroup(row, hql).size();
+            } else if ("null".equals(hql)) {
+                return null;
+            }
+        }
+        throw new UnsupportedOperationException(format("Value [%s] of type [%s] can't be evaluated in memory.",
+                toHql(value), value.getClass().getSimpleName()));
+    }
+
+    private Object evaluateFunction(WrappedTypeSafeValue<?> value, Row row) {
+        String function = value.getFunction();
+        switch (function) {
+            case "":
+                return evaluate(value.getValue(), row);
+            case "upper":
+            case "lower":
+                Object text = evaluate(value.getValue(), row);
+                if (text == null) {
+                    return null;
+                }
+                return "upper".equals(function) ? text.toString().toUpperCase(): text.toString().toLowerCase();
+            case "min":
+            case "max":
+                Object extreme = null;
+                for(Object element: aggregate(value.getValue(), row)) {
+                    int comparison = extreme == null ? 0: compareOrdered(element, extreme);
+                    if (extreme == null || ("min".equals(function) ? comparison < 0: comparison > 0)) {
+                        extreme = element;
+                    }
+                }
+                return extreme;
+            case "sum":
+                Number sum = null;
+                for(Object element: aggregate(value.getValue(), row)) {
+                    sum = sum == null ? widen((Number) element): calculate(sum, "+", (Number) element);
+                }
+                return sum;
+            case "avg":
+                List<Object> elements = aggregate(value.getValue(), row);
+                if (elements.isEmpty()) {
+                    return null;
+                }
+                double total = 0;
+                for(Object element: elements) {
+                    total += ((Number) element).doubleValue();
+                }
+                return total / elements.size();
+            default:
+                throw new UnsupportedOperationException(format("Function [%s] can't be evaluated in memory: [%s].",
+                        function, toHql(value)));
+        }
+    }
+
+    /**
+     * @return the values of the rows of the group which are not null.
+     */
+    private List<Object> aggregate(TypeSafeValue<?> value, Row row) {
+        List<Row> group = getGroup(row, toHql(value));
+        List<Object> values = new ArrayList<>(group.size());
+        for(Row member: group) {
+            Object result = evaluate(value, member);
+            if (result != null) {
+                values.add(result);
+            }
+        }
+        return values;
+    }
+
+    private static List<Row> getGroup(Row row, String hql) {
+        if (row.group == null) {
+            throw new IllegalStateException(format("The aggregated value [%s] "
+                    + "can only be used in the select, having or order by clauses.", hql));
+        }
+        return row.group;
+    }
+
+    /**
+     * Multiplications and divisions are calculated before additions and subtractions,
+     * the result is null if any of the values is null.
+     */
+    private Number calculate(OperationTypeSafeValue<Number> operation, Row row) {
+        List<? extends TypeSafeValue<? extends Number>> values = operation.getValues();
+        List<String> operations = operation.getOperations();
+        List<Number> terms = new ArrayList<>();
+        List<String> termOperations = new ArrayList<>();
+        Number term = (Number) evaluate(values.get(0), row);
+        for(int i=0; i < operations.size(); i++) {
+            String op = operations.get(i);
+            Number next = (Number) evaluate(values.get(i + 1), row);
+            if ("*".equals(op) || "/".equals(op)) {
+                term = term == null || next == null ? null: calculate(term, op, next);
+            } else {
+                terms.add(term);
+                termOperations.add(op);
+                term = next;
+            }
+        }
+        terms.add(term);
+        Number result = terms.get(0);
+        for(int i=0; i < termOperations.size(); i++) {
+            Number next = terms.get(i + 1);
+            result = result == null || next == null ? null: calculate(result, termOperations.get(i), next);
+        }
+        return result;
+    }
+
+    /**
+     * Integral values are calculated as integers, or as longs if either value is a long,
+     * like in the database. Integer divisions are truncated.
+     */
+    private Number calculate(Number left, String op, Number right) {
+        if (left instanceof BigDecimal || right instanceof BigDecimal
+                || left instanceof BigInteger || right instanceof BigInteger) {
+            BigDecimal a = new BigDecimal(left.toString());
+            BigDecimal b = new BigDecimal(right.toString());
+            switch (op) {
+                case "+": return a.add(b);
+                case "-": return a.subtract(b);
+                case "*": return a.multiply(b);
+                default: return a.divide(b, Math.max(a.scale(), 10), RoundingMode.HALF_UP);
+            }
+        }
+        if (!isIntegral(left) || !isIntegral(right)) {
+            double a = left.doubleValue();
+            double b = right.doubleValue();
+            switch (op) {
+                case "+": return a + b;
+                case "-": return a - b;
+                case "*": return a * b;
+                default: return a / b;
+            }
+        }
+        long a = left.longValue();
+        long b = right.longValue();
+        long result;
+        switch (op) {
+            case "+": result = a + b; break;
+            case "-": result = a - b; break;
+            case "*": result = a * b; break;
+            default: result = a / b;
+        }
+        if (left instanceof Long || right instanceof Long) {
+            if (strict && isLongOverflow(a, op, b, result)) {
+                throw new UnsupportedOperationException(format(
+                        "The calculation [%d %s %d] overflows, it isn't evaluated in memory.", a, op, b));
+            }
+            return result;
+        }
+        if (strict && result != (int) result) {
+            throw new UnsupportedOperationException(format(
+                    "The calculation [%d %s %d] overflows, it isn't evaluated in memory.", a, op, b));
+        }
+        return (int) result;
+    }
+
+    private static boolean isLongOverflow(long a, String op, long b, long result) {
+        switch (op) {
+            case "+": return ((a ^ result) & (b ^ result)) < 0;
+            case "-": return ((a ^ b) & (a ^ result)) < 0;
+            case "*": return a != 0 && (result / a != b || (a == -1 && b == Long.MIN_VALUE));
+            default: return a == Long.MIN_VALUE && b == -1;
+        }
+    }
+
+    /**
+     * Sums of integral values are longs, sums of floating point values are doubles.
+     */
+    private static Number widen(Number number) {
+        if (isIntegral(number)) {
+            return number.longValue();
+        } else if (number instanceof Float) {
+            return number.doubleValue();
+        }
+        return number;
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long
+                || number instanceof Short || number instanceof Byte;
+    }
+
+    private static boolean isEqual(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            return compare(left, right) == 0;
+        }
+        return left.equals(right);
+    }
+
+    /**
+     * Compares values to determine their order, in strict mode only numbers and
+     * dates are compared because the order of other values depends on the database.
+     */
+    private int compareOrdered(Object left, Object right) {
+        checkDatabaseIndependent(left);
+        checkDatabaseIndependent(right);
+        return compare(left, right);
+    }
+
+    private void checkDatabaseIndependent(Object value) {
+        if (strict && !(value instanceof Number || value instanceof Date)) {
+            throw new UnsupportedOperationException(format("Values of [%s] are ordered and matched "
+                    + "by the database, they aren't evaluated in memory in strict mode.",
+                    value.getClass().getName()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            Number a = (Number) left;
+            Number b = (Number) right;
+            if (isIntegral(a) && isIntegral(b)) {
+                return Long.compare(a.longValue(), b.longValue());
+            } else if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) {
+                return Double.compare(a.doubleValue(), b.doubleValue());
+            }
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+        }
+        if (left instanceof Comparable<?>) {
+            return ((Comparable<Object>) left).compareTo(right);
+        }
+        throw new UnsupportedOperationException(format("Values of [%s] can't be compared in memory.",
+                left.getClass().getName()));
+    }
+
+    /**
+     * Whether the value is or contains an aggregated value.
+     */
+    private static boolean isAggregated(TypeSafeValue<?> value) {
+        if (value instanceof CountTypeSafeValue) {
+            return true;
+        } else if (value instanceof CustomTypeSafeValue<?>) {
+            return "count(*)".equals(toHql(value));
+        } else if (value instanceof WrappedTypeSafeValue<?>) {
+            WrappedTypeSafeValue<?> wrapped = (WrappedTypeSafeValue<?>) value;
+            switch (wrapped.getFunction()) {
+                case "min":
+                case "max":
+                case "sum":
+                case "avg":
+                    return true;
+                default:
+                    return isAggregated(wrapped.getValue());
+            }
+        } else if (value instanceof DistinctTypeSafeValue<?>) {
+            return isAggregated(((DistinctTypeSafeValue<?>) value).getValue());
+        } else if (value instanceof ArithmeticTypeSafeValueImpl) {
+            for(TypeSafeValue<?> operand: ((ArithmeticTypeSafeValueImpl) value).getCombinedValue().getValues()) {
+                if (isAggregated(operand)) {
+                    return true;
+                }
+            }
+        } else if (value instanceof CoalesceTypeSafeValue<?>) {
+            for(TypeSafeValue<?> coalesced: ((CoalesceTypeSafeValue<?>) value).getValues()) {
+                if (isAggregated(coalesced)) {
+                    return true;
+                }
+            }
+        } else if (value instanceof CaseTypeSafeValue<?>) {
+            for(OnGoingCaseImpl<?> ongoingCase: ((CaseTypeSafeValue<?>) value).getCases()) {
+                if (isAggregated(ongoingCase.getValue())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves the entity or property value of the data, the data is either joined
+     * in the row or it is a property of the value of its parent.
+     */
+    private Object resolve(TypeSafeQueryProxyData data, Row row) {
+        if (row.entities.containsKey(data)) {
+            return row.entities.get(data);
+        }
+        if (data.getParent() == null) {
+            if (row.entities.isEmpty()) {
+                return null; // aggregating without rows
+            }
+            throw new UnsupportedOperationException(format("Values of the outer query "
+                    + "can't be evaluated in memory: [%s].", data));
+        }
+        Object owner = resolve(data.getParent(), row);
+        return owner == null ? null: getProperty(owner, data.getPropertyPath());
+    }
+
+    /**
+     * Reads the property from the field of the owner. The values of lazy associations
+     * which weren't loaded are unknown, the query can't be evaluated in memory in that case.
+     */
+    private Object getProperty(Object owner, String property) {
+        if (owner instanceof HibernateProxy) {
+            LazyInitializer initializer = ((HibernateProxy) owner).getHibernateLazyInitializer();
+            if (initializer.isUninitialized()) {
+                throw new UnsupportedOperationException(format("Property [%s] of the uninitialized proxy "
+                        + "[%s#%s] can't be evaluated in memory.", property, initializer.getEntityName(),
+                        initializer.getIdentifier()));
+            }
+            owner = initializer.getImplementation();
+        }
+        Class<?> ownerClass = owner.getClass();
+        ConcurrentMap<String, MethodHandle> classGetters = getters.get(ownerClass);
+        if (classGetters == null) {
+            classGetters = new ConcurrentHashMap<>();
+            ConcurrentMap<String, MethodHandle> existing = getters.putIfAbsent(ownerClass, classGetters);
+            if (existing != null) {
+                classGetters = existing;
+            }
+        }
+        MethodHandle getter = classGetters.get(property);
+        if (getter == null) {
+            getter = SelectionDtoAccessor.forClass(ownerClass).getGetter(
+                    SelectionTree.getField(ownerClass, property));
+            classGetters.putIfAbsent(property, getter);
+        }
+        Object value;
+        try {
+            value = (Object) getter.invokeExact(owner);
+        } catch (Throwable e) {
+            throw new IllegalStateException(format("Property [%s] of [%s] couldn't be read.",
+                    property, ownerClass.getName()), e);
+        }
+        if (value instanceof PersistentCollection && !((PersistentCollection) value).wasInitialized()) {
+            throw new UnsupportedOperationException(format("The uninitialized collection [%s] of [%s] "
+                    + "can't be evaluated in memory.", property, ownerClass.getName()));
+        }
+        return value;
+    }
+
+    private static String toHql(TypeSafeValue<?> value) {
+        return value.toHqlQueryValue(new HqlQueryBuilderParamsImpl()).getHql();
+    }
+
+    /**
+     * The entities of a row of the query, the rows of the group are
+     * set when the rows were grouped, the entities are those of its first row.
+     */
+    private static final class Row {
+        private final Map<TypeSafeQueryProxyData, Object> entities;
+        private final List<Row> group;
+
+        public Row(Map<TypeSafeQueryProxyData, Object> entities, List<Row> group) {
+            this.entities = entities;
+            this.group = group;
+        }
+
+        public Row bind(TypeSafeQueryProxyData data, Object entity) {
+            Map<TypeSafeQueryProxyData, Object> bound = new HashMap<>(entities);
+            bound.put(data, entity);
+            return new Row(bound, group);
+        }
+    }
+
+    /**
+     * The selected values of a row, with the values to order by.
+     */
+    private static final class Result {
+        private final Object[] tuple;
+        private final Object[] orderValues;
+
+        public Result(Object[] tuple, Object[] orderValues) {
+            this.tuple = tuple;
+            this.orderValues = orderValues;
+        }
+    }
+
+    private final class ResultComparator implements Comparator<Result> {
+        private final boolean[] descending;
+
+        public ResultComparator(List<OrderBy> orderBys) {
+            descending = new boolean[orderBys.size()];
+            for(int i=0; i < descending.length; i++) {
+                OrderBy orderBy = orderBys.get(i);
+                descending[i] = orderBy instanceof OrderByImpl ? ((OrderByImpl) orderBy).isDescending():
+                    ((OrderByProjection) orderBy).isDescending();
+            }
+        }
+
+        @Override
+        public int compare(Result a, Result b) {
+            for(int i=0; i < descending.length; i++) {
+                Object left = a.orderValues[i];
+                Object right = b.orderValues[i];
+                int comparison;
+                if (left == null || right == null) {
+                    if (strict && left != right) {
+                        throw new UnsupportedOperationException("The order of null values depends "
+                                + "on the database, it isn't evaluated in memory in strict mode.");
+                    }
+                    comparison = left == right ? 0: left == null ? -1: 1;
+                } else {
+                    comparison = compareOrdered(left, right);
+                }
+                if (comparison != 0) {
+                    return descending[i] ? -comparison: comparison;
+                }
+            }
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import be.shad.tsqb.NamedParameter;
+import be.shad.tsqb.dao.TypeSafeQueryDao;
+import be.shad.tsqb.data.TypeSafeQueryFrom;
+import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.joins.TypeSafeQueryJoin;
+import be.shad.tsqb.ordering.OrderBy;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.query.TypeSafeRootQuery;
+import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+import be.shad.tsqb.restrictions.RestrictionNode;
+import be.shad.tsqb.restrictions.RestrictionNodeType;
+import be.shad.tsqb.restrictions.RestrictionsGroupImpl;
+import be.shad.tsqb.restrictions.predicate.RestrictionGuard;
+import be.shad.tsqb.values.HqlQueryBuilderParams;
+import be.shad.tsqb.values.HqlQueryBuilderParamsImpl;
+import be.shad.tsqb.values.HqlQueryValue;
+
+/**
+ * Caches the entities selected by queries and answers queries which refine a cached
+ * query in memory, using the {@link InMemoryQueryEvaluator}, instead of querying the database.
+ * <p>
+ * A query selecting the entities of one from, without joins which change the rows,
+ * projections, grouping or first result is cached. Its results are reused for queries
+ * on the same from of which the where restrictions start with the same restrictions,
+ * followed only by restrictions which are and-ed. The restrictions are compared by their
+ * hql and parameter values. Such a query can restrict, select, group and order by the
+ * properties of the cached entities. It can only use their associations when these were
+ * loaded: lazy associations which are still uninitialized hibernate proxies or collections
+ * can't be evaluated in memory, the query is executed using the dao in that case, like
+ * other queries which can't be evaluated in memory.
+ * <p>
+ * The evaluator is used in strict mode, see {@link InMemoryQueryEvaluator#setStrict(boolean)}:
+ * refinements which order, compare or like match values other than numbers and dates,
+ * order null values or overflow a calculation are executed using the dao as well, because
+ * their results depend on the database collation and settings. Other values are
+ * compared for equality the java way, strings are equal when their case matches.
+ * <p>
+ * When the cached query has a maximum amount of results, the results are only reused
+ * for queries with the same restrictions and order bys, without additional joins,
+ * which select a part of the cached results.
+ * <p>
+ * The cached results are not refreshed, call {@link #clear()} when the entities change.
+ * The cache keeps the most recently used results, up to the maximum amount of cached results.
+ */
+public class QueryResultCache {
+    public static final int DEFAULT_MAX_CACHED_RESULTS = 32;
+
+    private final LinkedList<CachedResult> cachedResults = new LinkedList<>();
+    private int maxCachedResults = DEFAULT_MAX_CACHED_RESULTS;
+
+    /**
+     * The maximum amount of query results kept in the cache,
+     * the least recently used results are removed first.
+     */
+    public synchronized void setMaxCachedResults(int maxCachedResults) {
+        if (maxCachedResults <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "The maximum amount of cached results must be positive: [%d].", maxCachedResults));
+        }
+        this.maxCachedResults = maxCachedResults;
+        removeLeastRecentlyUsed();
+    }
+
+    public synchronized int getMaxCachedResults() {
+        return maxCachedResults;
+    }
+
+    /**
+     * Answers the query using the cache if possible, executes the query using the dao
+     * and caches its results otherwise.
+     */
+    public <T> List<T> doQuery(TypeSafeQueryDao dao, TypeSafeRootQuery query) {
+        List<T> results = get(query);
+        if (results == null) {
+            results = dao.doQuery(query);
+            put(query, results);
+        }
+        return results;
+    }
+
+    /**
+     * Caches the results of the query if they can be reused.
+     *
+     * @return whether the results were cached.
+     */
+    public synchronized boolean put(TypeSafeRootQuery query, List<?> results) {
+        if (!isCacheable((TypeSafeRootQueryInternal) query)) {
+            return false;
+        }
+        TypeSafeRootQueryInternal copy = (TypeSafeRootQueryInternal) query.copy();
+        cachedResults.addFirst(new CachedResult(copy, getRestrictionNodes(copy), new ArrayList<>(results)));
+        removeLeastRecentlyUsed();
+        return true;
+    }
+
+    /**
+     * @return the results of the query evaluated against cached results,
+     *         null if none of the cached results can be used.
+     */
+    public synchronized <T> List<T> get(TypeSafeRootQuery tsqbQuery) {
+        TypeSafeRootQueryInternal query = (TypeSafeRootQueryInternal) tsqbQuery;
+        if (query.getDataTree().getFroms().size() != 1) {
+            return null;
+        }
+        List<RestrictionNode> nodes = getRestrictionNodes(query);
+        Iterator<CachedResult> it = cachedResults.iterator();
+        while (it.hasNext()) {
+            CachedResult cached = it.next();
+            if (!isRefinement(cached, query, nodes)) {
+                continue;
+            }
+            List<T> results = evaluate(cached, query);
+            if (results != null) {
+                it.remove();
+                cachedResults.addFirst(cached);
+                return results;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public synchronized void clear() {
+        cachedResults.clear();
+    }
+
+    private void removeLeastRecentlyUsed() {
+        while (cachedResults.size() > maxCachedResults) {
+            cachedResults.removeLast();
+        }
+    }
+
+    /**
+     * The query must select the entities of its only from, the rows must not be changed
+     * by joins and the results must not be grouped or skipped.
+     */
+    private boolean isCacheable(TypeSafeRootQueryInternal query) {
+        if (query.getDataTree().getFroms().size() != 1 || query.getFirstResult() > 0
+                || !query.getProjections().getProjections().isEmpty()
+                || !query.getGroupBys().getValues().isEmpty()
+                || !((RestrictionsGroupImpl) query.getHavingRestrictions()).isEmpty()) {
+            return false;
+        }
+        return !hasJoins(query.getDataTree().getFroms().get(0));
+    }
+
+    private boolean hasJoins(TypeSafeQueryFrom from) {
+        for(TypeSafeQueryJoin<?> join: from.getJoins()) {
+            if (join.getData().getEffectiveJoinType() != JoinType.None) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the query selects from the same from and restricts the rows
+     * by the restrictions of the cached query and zero or more and-ed restrictions.
+     */
+    private boolean isRefinement(CachedResult cached, TypeSafeRootQueryInternal query,
+            List<RestrictionNode> nodes) {
+        TypeSafeQueryFrom cachedFrom = cached.query.getDataTree().getFroms().get(0);
+        TypeSafeQueryFrom from = query.getDataTree().getFroms().get(0);
+        if (!cachedFrom.getRoot().getPropertyType().equals(from.getRoot().getPropertyType())
+                || !cachedFrom.getRoot().getAlias().equals(from.getRoot().getAlias())
+                || nodes.size() < cached.nodes.size()) {
+            return false;
+        }
+        HqlQueryBuilderParams cachedParams = new HqlQueryBuilderParamsImpl();
+        HqlQueryBuilderParams params = new HqlQueryBuilderParamsImpl();
+        for(int i=0; i < cached.nodes.size(); i++) {
+            RestrictionNode cachedNode = cached.nodes.get(i);
+            RestrictionNode node = nodes.get(i);
+            if (cachedNode.getType() != node.getType() || !isSameValue(
+                    cachedNode.getRestriction().toHqlQueryValue(cachedParams),
+                    node.getRestriction().toHqlQueryValue(params))) {
+                return false;
+            }
+        }
+        for(int i=cached.nodes.size(); i < nodes.size(); i++) {
+            if (i > 0 && nodes.get(i).getType() != RestrictionNodeType.And) {
+                return false;
+            }
+        }
+        if (cached.query.getMaxResults() <= 0) {
+            return true;
+        }
+        // only a part of the entities were cached, the same entities must be selected:
+        return nodes.size() == cached.nodes.size() && !hasJoins(from)
+                && query.getGroupBys().getValues().isEmpty()
+                && ((RestrictionsGroupImpl) query.getHavingRestrictions()).isEmpty()
+                && isSameOrder(cached.query, query) && query.getMaxResults() > 0
+                && (long) Math.max(query.getFirstResult(), 0) + query.getMaxResults() <= cached.query.getMaxResults();
+    }
+
+    private boolean isSameOrder(TypeSafeRootQueryInternal cached, TypeSafeRootQueryInternal query) {
+        List<OrderBy> cachedOrderBys = cached.getOrderBys().getOrderBys();
+        List<OrderBy> orderBys = query.getOrderBys().getOrderBys();
+        if (cachedOrderBys.size() != orderBys.size()) {
+            return false;
+        }
+        HqlQueryBuilderParams params = new HqlQueryBuilderParamsImpl();
+        for(int i=0; i < orderBys.size(); i++) {
+            HqlQuery cachedOrderBy = new HqlQuery();
+            cachedOrderBys.get(i).appendTo(cachedOrderBy, params);
+            HqlQuery orderBy = new HqlQuery();
+            orderBys.get(i).appendTo(orderBy, params);
+            if (!cachedOrderBy.getOrderBy().equals(orderBy.getOrderBy())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSameValue(HqlQueryValue a, HqlQueryValue b) {
+        return a.getHql().equals(b.getHql()) && getParamValues(a.getParams()).equals(getParamValues(b.getParams()));
+    }
+
+    private static List<Object> getParamValues(Collection<Object> params) {
+        List<Object> values = new ArrayList<>(params.size());
+        for(Object param: params) {
+            values.add(param instanceof NamedParameter ? ((NamedParameter) param).getValue(): param);
+        }
+        return values;
+    }
+
+    /**
+     * Evaluates the query against the cached entities.
+     *
+     * @return the results, null if the query can't be evaluated in memory.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> evaluate(CachedResult cached, TypeSafeRootQueryInternal query) {
+        InMemoryQueryEvaluator evaluator = new InMemoryQueryEvaluator();
+        evaluator.setStrict(true);
+        Class<Object> entityClass = (Class<Object>) cached.query.getDataTree().getFroms().get(0).getRoot().getPropertyType();
+        evaluator.addEntities(entityClass, cached.results);
+        try {
+            return evaluator.doQuery(query);
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The restriction nodes which are applicable, like when the hql is created.
+     */
+    private static List<RestrictionNode> getRestrictionNodes(TypeSafeRootQueryInternal query) {
+        List<RestrictionNode> nodes = new ArrayList<>();
+        for(RestrictionNode node: ((RestrictionsGroupImpl) query.getRestrictions()).getRestrictionNodes()) {
+            if (node.getRestriction() instanceof RestrictionGuard
+                    && !((RestrictionGuard) node.getRestriction()).isRestrictionApplicable()) {
+                continue;
+            }
+            nodes.add(new RestrictionNode(node.getRestriction(), nodes.isEmpty() ? null: node.getType()));
+        }
+        return nodes;
+    }
+
+    private static final class CachedResult {
+        private final TypeSafeRootQueryInternal query;
+        private final List<RestrictionNode> nodes;
+        private final List<Object> results;
+
+        public CachedResult(TypeSafeRootQueryInternal query, List<RestrictionNode> nodes, List<Object> results) {
+            this.query = query;
+            this.nodes = nodes;
+            this.results = results;
+        }
+    }
+
+}
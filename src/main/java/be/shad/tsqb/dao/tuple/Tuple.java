@@ -0,0 +1,70 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.tuple;
+
+import java.util.Arrays;
+
+/**
+ * A view on a row of a {@link TupleResult}, it only holds the row index,
+ * the values are read from the buffer of the result.
+ */
+public final class Tuple {
+    private final TupleResult result;
+    private int row = -1;
+
+    Tuple(TupleResult result) {
+        this.result = result;
+    }
+
+    void moveTo(int row) {
+        if (row < 0 || row >= result.getRowCount()) {
+            throw new IndexOutOfBoundsException(String.format("Row %d, row count %d.", row, result.getRowCount()));
+        }
+        this.row = row;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int size() {
+        return result.getColumnCount();
+    }
+
+    /**
+     * @return the value of the column, cast to the type of the assignment.
+     */
+    public <T> T get(int column) {
+        return result.get(row, column);
+    }
+
+    /**
+     * @return a copy of the values of the row.
+     */
+    public Object[] toArray() {
+        Object[] values = new Object[result.getColumnCount()];
+        for(int i=0; i < values.length; i++) {
+            values[i] = result.get(row, i);
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+}
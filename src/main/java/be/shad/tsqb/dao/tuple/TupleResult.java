@@ -0,0 +1,133 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dao.tuple;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Row oriented query results without selection dto, the values of all rows are stored
+ * in one contiguous buffer instead of one object array per row, 
+ * see {@link be.shad.tsqb.dao.TypeSafeQueryDao#doTupleQuery}.
+ * <p>
+ * The rows are read using a {@link Tuple} view, the iterator reuses a single view
+ * which is moved from row to row.
+ */
+public class TupleResult implements Iterable<Tuple> {
+    private final int columnCount;
+    private Object[] values;
+    private int rowCount;
+
+    /**
+     * @param expectedRowCount the initial capacity of the buffer, in rows.
+     */
+    public TupleResult(int columnCount, int expectedRowCount) {
+        if (columnCount <= 0) {
+            throw new IllegalArgumentException("The column count must be positive: " + columnCount);
+        }
+        this.columnCount = columnCount;
+        this.values = new Object[columnCount * Math.max(expectedRowCount, 1)];
+    }
+
+    /**
+     * Appends a row, the values are copied into the buffer.
+     */
+    public void appendRow(Object[] row) {
+        if (row.length != columnCount) {
+            throw new IllegalArgumentException(String.format("Expected a row with %d values, got %d.", 
+                    columnCount, row.length));
+        }
+        int offset = rowCount * columnCount;
+        if (offset + columnCount > values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, offset + columnCount));
+        }
+        System.arraycopy(row, 0, values, offset, columnCount);
+        rowCount++;
+    }
+
+    /**
+     * Trims the buffer to the row count, called when all rows were appended.
+     */
+    public void trimToSize() {
+        if (values.length > rowCount * columnCount) {
+            values = Arrays.copyOf(values, rowCount * columnCount);
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @return the value of the column in the row, cast to the type of the assignment.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(int row, int column) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException(String.format("Row %d, row count %d.", row, rowCount));
+        }
+        if (column < 0 || column >= columnCount) {
+            throw new IndexOutOfBoundsException(String.format("Column %d, column count %d.", column, columnCount));
+        }
+        return (T) values[row * columnCount + column];
+    }
+
+    /**
+     * @return a new view on the row.
+     */
+    public Tuple getTuple(int row) {
+        Tuple tuple = new Tuple(this);
+        tuple.moveTo(row);
+        return tuple;
+    }
+
+    /**
+     * Iterates the rows using a single view, the returned tuple should 
+     * not be kept after moving to the next one, use {@link #getTuple(int)} instead.
+     */
+    @Override
+    public Iterator<Tuple> iterator() {
+        final Tuple tuple = new Tuple(this);
+        return new Iterator<Tuple>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < rowCount;
+            }
+
+            @Override
+            public Tuple next() {
+                if (next >= rowCount) {
+                    throw new NoSuchElementException();
+                }
+                tuple.moveTo(next++);
+                return tuple;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+}
@@ -53,6 +53,25 @@ public class TypeSafeQueryFrom implements HqlQueryBuilder {
         joins.add(join);
     }
 
+    /**
+     * Lists the joins which fetch a collection (Fetch or LeftFetch on a collection property).
+     * When more than one is present, the rows of the query are the product of the
+     * collection sizes, because all collections are fetched in the same result set.
+     */
+    public List<TypeSafeQueryJoin<?>> getCollectionFetchJoins() {
+        List<TypeSafeQueryJoin<?>> collectionFetchJoins = new LinkedList<>();
+        for(TypeSafeQueryJoin<?> join: joins) {
+            TypeSafeQueryProxyData data = join.getData();
+            if (data.getProxyType().isCollection() && data.getJoinType() != null) {
+                JoinType joinType = data.getEffectiveJoinType();
+                if (joinType == JoinType.Fetch || joinType == JoinType.LeftFetch) {
+                    collectionFetchJoins.add(join);
+                }
+            }
+        }
+        return collectionFetchJoins;
+    }
+
     @Override
     public void appendTo(HqlQuery query, HqlQueryBuilderParams params) {
         HqlQueryValueImpl from = new HqlQueryValueImpl();
@@ -67,7 +86,7 @@ public class TypeSafeQueryFrom implements HqlQueryBuilder {
                 throw new IllegalArgumentException("The getter for [" + data.getProxy() + "] was called, "
                         + "but it was not passed to query.join(object, jointype).");
             }
-            if( data.getEffectiveJoinType() != JoinType.None ) {
+            if( data.getEffectiveJoinType() != JoinType.None && !params.isPrunedJoin(data) ) {
                 // example: 'left join fetch' 'hobj1'.'propertyPath' 'hobj2' 
                 from.appendHql(format(" %s %s.%s %s", getJoinTypeString(data.getEffectiveJoinType()), 
                         data.getParent().getAlias(), data.getPropertyPath(), data.getAlias()));
@@ -33,6 +33,7 @@ public class TypeSafeQueryProxyData {
 
     private final LinkedHashMap<String, TypeSafeQueryProxyData> children = new LinkedHashMap<>();
     private final TypeSafeQueryProxyType proxyType;
+    private final TypeSafeQueryProxyDataTree dataTree;
     private final TypeSafeQueryProxyData parent;
     private final TypeSafeQueryProxy proxy;
     private final TypeSafeQueryProxyData compositeTypeEntityParent;
@@ -47,17 +48,19 @@ public class TypeSafeQueryProxyData {
     /**
      * Package protected so that the data is correctly add to the data tree.
      */
-    TypeSafeQueryProxyData(TypeSafeQueryProxyData parent, String propertyPath, Class<?> propertyType) {
-        this(parent, propertyPath, propertyType, EntityPropertyType, null, null, null);
+    TypeSafeQueryProxyData(TypeSafeQueryProxyDataTree dataTree, TypeSafeQueryProxyData parent,
+            String propertyPath, Class<?> propertyType) {
+        this(dataTree, parent, propertyPath, propertyType, EntityPropertyType, null, null, null);
     }
     
     /**
      * 
      * Package protected so that the data is correctly add to the data tree.
      */
-    TypeSafeQueryProxyData(TypeSafeQueryProxyData parent, String propertyPath, 
+    TypeSafeQueryProxyData(TypeSafeQueryProxyDataTree dataTree, TypeSafeQueryProxyData parent, String propertyPath, 
             Class<?> propertyType, TypeSafeQueryProxyType proxyType, TypeSafeQueryProxy proxy, 
             String identifierPath, String alias) {
+        this.dataTree = dataTree;
         this.identifierPath = identifierPath;
         this.propertyPath = propertyPath;
         this.propertyType = propertyType;
@@ -89,6 +92,13 @@ public class TypeSafeQueryProxyData {
         return identifierPath;
     }
     
+    /**
+     * The data tree of the query which created this data.
+     */
+    public TypeSafeQueryProxyDataTree getDataTree() {
+        return dataTree;
+    }
+    
     public TypeSafeQueryProxyData getParent() {
         return parent;
     }
@@ -103,6 +103,13 @@ public class TypeSafeQueryProxyDataTree implements HqlQueryBuilder {
         }
     }
 
+    /**
+     * The froms of the query, in the order in which they were added.
+     */
+    public List<TypeSafeQueryFrom> getFroms() {
+        return froms;
+    }
+
     public <T> WhereRestrictions getJoinRestrictions(TypeSafeQueryProxyData data) {
         return (WhereRestrictions) joins.get(data);
     }
@@ -129,7 +136,7 @@ public class TypeSafeQueryProxyDataTree implements HqlQueryBuilder {
     public TypeSafeQueryProxyData createData(TypeSafeQueryProxyData parent, 
             String propertyName, Class<?> propertyType, TypeSafeQueryProxyType proxyType,
             String identifierPath, TypeSafeQueryProxy proxy) {
-        TypeSafeQueryProxyData child = new TypeSafeQueryProxyData(parent, propertyName, 
+        TypeSafeQueryProxyData child = new TypeSafeQueryProxyData(this, parent, propertyName, 
                 propertyType, proxyType, proxy, identifierPath, query.createEntityAlias());
         child.setJoinType(JoinType.Default); // default join type
         if( parent == null ) {
@@ -159,7 +166,7 @@ public class TypeSafeQueryProxyDataTree implements HqlQueryBuilder {
     public TypeSafeQueryProxyData createData(TypeSafeQueryProxyData parent,
             String propertyName, Class<?> propertyType) {
         TypeSafeQueryProxyData child = new TypeSafeQueryProxyData(
-                parent, propertyName, propertyType);
+                this, parent, propertyName, propertyType);
         if( parent == null ) {
             throw new IllegalArgumentException("");
         }
@@ -175,9 +182,10 @@ public class TypeSafeQueryProxyDataTree implements HqlQueryBuilder {
      *             then the join data must be the data or must be added after data.
      */
     public boolean isInScope(TypeSafeQueryProxyData data, TypeSafeQueryProxyData join) {
+        // the data knows the tree it was added to:
         if( join == null ) {
-            return queryData.contains(data);
-        } else if ( !queryData.contains(data) ) {
+            return data.getDataTree() == this;
+        } else if ( data.getDataTree() != this ) {
             return false;
         }
         
@@ -15,6 +15,7 @@
  */
 package be.shad.tsqb.grouping;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -56,6 +57,13 @@ public class TypeSafeQueryGroupBys implements HqlQueryBuilder, Copyable {
         return val;
     }
 
+    /**
+     * The grouped values, in the order in which they were added.
+     */
+    public List<TypeSafeValue<?>> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
     /**
      * Delegates to copy constructor
      */
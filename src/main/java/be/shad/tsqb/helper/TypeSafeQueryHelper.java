@@ -17,10 +17,14 @@ package be.shad.tsqb.helper;
 
 import be.shad.tsqb.data.TypeSafeQueryProxyData;
 import be.shad.tsqb.data.TypeSafeQuerySelectionProxyData;
+import be.shad.tsqb.query.TypeSafeDeleteQuery;
+import be.shad.tsqb.query.TypeSafeInsertQuery;
 import be.shad.tsqb.query.TypeSafeQueryInternal;
 import be.shad.tsqb.query.TypeSafeRootQuery;
 import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+import be.shad.tsqb.query.TypeSafeUpdateQuery;
 import be.shad.tsqb.selection.group.TypeSafeQuerySelectionGroup;
+import be.shad.tsqb.values.LiteralPolicy;
 
 public interface TypeSafeQueryHelper {
     
@@ -28,6 +32,22 @@ public interface TypeSafeQueryHelper {
      * Creates a fresh query instance. This is the starting point to create a new query.
      */
     TypeSafeRootQuery createQuery();
+
+    /**
+     * Creates a fresh bulk update statement, the starting point to update entities without loading them.
+     */
+    TypeSafeUpdateQuery createUpdateQuery();
+
+    /**
+     * Creates a fresh bulk delete statement, the starting point to delete entities without loading them.
+     */
+    TypeSafeDeleteQuery createDeleteQuery();
+
+    /**
+     * Creates an insert statement which inserts the values selected by the select query.
+     * The select query must select into the entity class, see {@link TypeSafeInsertQuery}.
+     */
+    TypeSafeInsertQuery createInsertQuery(TypeSafeRootQuery selectQuery);
     
     /**
      * Retrieves the entity name from hibernate. Used to construct the from clause.
@@ -74,6 +94,18 @@ public interface TypeSafeQueryHelper {
      * Uses the hibernate Type object to convert to a literal.
      */
     String toLiteral(Object value);
+
+    /**
+     * Same as {@link #toLiteral(Object)}, but appends the literal to the hql.
+     * Numbers, booleans and enums are appended without creating the literal first.
+     */
+    void appendLiteral(StringBuilder hql, Object value);
+
+    /**
+     * The policy deciding whether values are added as literals or as named parameters,
+     * for all queries created with this helper.
+     */
+    LiteralPolicy getLiteralPolicy();
     
     /**
      * Uses the type resolver to get the name of the type for the given class.
@@ -81,6 +113,20 @@ public interface TypeSafeQueryHelper {
      */
     String getResolvedTypeName(Class<?> javaType);
 
+    /**
+     * Checks whether values of the value class can be stored in the property of the entity,
+     * according to the hibernate metadata. Primitives and their wrappers are interchangeable.
+     * 
+     * @throws IllegalArgumentException if the class is not an entity or doesn't have the property.
+     */
+    boolean isAssignableToProperty(Class<?> entityClass, String property, Class<?> valueClass);
+
+    /**
+     * Checks whether the property of the entity can be null, according to the hibernate metadata.
+     * Unknown properties are considered nullable.
+     */
+    boolean isNullableProperty(Class<?> entityClass, String property);
+
     /**
      * return a random value, (but take primitives into account to prevent NPEs)
      */
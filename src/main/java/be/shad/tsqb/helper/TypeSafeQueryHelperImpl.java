@@ -22,9 +22,12 @@ import static be.shad.tsqb.proxy.TypeSafeQueryProxyType.EntityType;
 import static be.shad.tsqb.proxy.TypeSafeQueryProxyType.SelectionDtoType;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javassist.util.proxy.ProxyObject;
 
+import org.hibernate.HibernateException;
 import org.hibernate.SessionFactory;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.metadata.ClassMetadata;
@@ -40,15 +43,24 @@ import be.shad.tsqb.proxy.TypeSafeQueryProxy;
 import be.shad.tsqb.proxy.TypeSafeQueryProxyFactory;
 import be.shad.tsqb.proxy.TypeSafeQueryProxyType;
 import be.shad.tsqb.proxy.TypeSafeQuerySelectionProxy;
+import be.shad.tsqb.query.TypeSafeDeleteQuery;
+import be.shad.tsqb.query.TypeSafeDeleteQueryImpl;
+import be.shad.tsqb.query.TypeSafeInsertQuery;
+import be.shad.tsqb.query.TypeSafeInsertQueryImpl;
 import be.shad.tsqb.query.TypeSafeQueryInternal;
 import be.shad.tsqb.query.TypeSafeRootQuery;
 import be.shad.tsqb.query.TypeSafeRootQueryImpl;
 import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+import be.shad.tsqb.query.TypeSafeUpdateQuery;
+import be.shad.tsqb.query.TypeSafeUpdateQueryImpl;
 import be.shad.tsqb.selection.group.TypeSafeQuerySelectionGroup;
+import be.shad.tsqb.values.LiteralPolicy;
 
 public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
     private final SessionFactory sessionFactory;
     private final TypeSafeQueryProxyFactory proxyFactory;
+    private final ConcurrentMap<Class<?>, StringRepresentableType<Object>> literalTypes = new ConcurrentHashMap<>();
+    private LiteralPolicy literalPolicy = LiteralPolicy.PARAMETERS_WHEN_POSSIBLE;
 
     public TypeSafeQueryHelperImpl(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
@@ -92,6 +104,30 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
         return new TypeSafeRootQueryImpl(this);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeUpdateQuery createUpdateQuery() {
+        return new TypeSafeUpdateQueryImpl(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeDeleteQuery createDeleteQuery() {
+        return new TypeSafeDeleteQueryImpl(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeInsertQuery createInsertQuery(TypeSafeRootQuery selectQuery) {
+        return new TypeSafeInsertQueryImpl(this, selectQuery);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -173,8 +209,9 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
     @Override
     public <T> T createTypeSafeFromProxy(TypeSafeQueryInternal query, Class<T> clazz) {
         T proxy = proxyFactory.getProxy(clazz, EntityType);
-        TypeSafeQueryProxyData data = query.getDataTree().createData(null, 
-                null, clazz, EntityType, null, (TypeSafeQueryProxy) proxy);
+        ClassMetadata metadata = sessionFactory.getClassMetadata(clazz);
+        TypeSafeQueryProxyData data = query.getDataTree().createData(null, null, clazz, EntityType, 
+                metadata == null ? null: metadata.getIdentifierPropertyName(), (TypeSafeQueryProxy) proxy);
         setEntityProxyMethodListener(query, (TypeSafeQueryProxy) proxy, data);
         return proxy;
     }
@@ -245,22 +282,74 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
     /**
      * {@inheritDoc}
      */
-    @SuppressWarnings("unchecked")
+    @Override
+    public LiteralPolicy getLiteralPolicy() {
+        return literalPolicy;
+    }
+
+    public void setLiteralPolicy(LiteralPolicy literalPolicy) {
+        if (literalPolicy == null) {
+            throw new IllegalArgumentException("The literal policy is required.");
+        }
+        this.literalPolicy = literalPolicy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public String toLiteral(Object value) {
+        StringBuilder literal = new StringBuilder();
+        appendLiteral(literal, value);
+        return literal.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Enums are appended as java constants, hibernate converts these to the mapped value.
+     */
+    @Override
+    public void appendLiteral(StringBuilder hql, Object value) {
         if( value == null ) {
-            return "null";
+            hql.append("null");
+        } else if( value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte ) {
+            hql.append(((Number) value).longValue());
+        } else if( value instanceof Double ) {
+            hql.append(((Double) value).doubleValue());
+        } else if( value instanceof Float ) {
+            hql.append(((Float) value).floatValue());
+        } else if( value instanceof Boolean ) {
+            hql.append(((Boolean) value).booleanValue());
+        } else if( value instanceof Enum<?> ) {
+            hql.append(((Enum<?>) value).getDeclaringClass().getName()).append('.').append(((Enum<?>) value).name());
+        } else {
+            String literal = getLiteralType(value.getClass()).toString(value);
+            if( value instanceof Number ) {
+                hql.append(literal);
+            } else {
+                hql.append('\'').append(literal).append('\'');
+            }
         }
-        BasicType basic = sessionFactory.getTypeHelper().basic(value.getClass());
-        if( basic instanceof StringRepresentableType<?> ) {
-            String literal = ((StringRepresentableType<Object>) basic).toString(value);
-            if( value instanceof Number || value instanceof Boolean ) {
-                return literal;
+    }
+
+    /**
+     * The hibernate type used to convert values of the class to a literal,
+     * resolved once for each class.
+     */
+    @SuppressWarnings("unchecked")
+    private StringRepresentableType<Object> getLiteralType(Class<?> valueClass) {
+        StringRepresentableType<Object> literalType = literalTypes.get(valueClass);
+        if( literalType == null ) {
+            BasicType basic = sessionFactory.getTypeHelper().basic(valueClass);
+            if( !(basic instanceof StringRepresentableType<?>) ) {
+                throw new IllegalArgumentException("Failed to convert values of type: " + valueClass.getName());
             }
-            return "'" + literal + "'";
-        } else {
-            throw new IllegalArgumentException("Failed to convert: " + value);
+            literalType = (StringRepresentableType<Object>) basic;
+            literalTypes.put(valueClass, literalType);
         }
+        return literalType;
     }
 
     /**
@@ -271,6 +360,53 @@ public class TypeSafeQueryHelperImpl implements TypeSafeQueryHelper {
         return sessionFactory.getTypeHelper().basic(javaType).getName();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAssignableToProperty(Class<?> entityClass, String property, Class<?> valueClass) {
+        ClassMetadata metadata = sessionFactory.getClassMetadata(entityClass);
+        if (metadata == null) {
+            throw new IllegalArgumentException(String.format("[%s] is not an entity.", entityClass));
+        }
+        Type propertyType;
+        if (property.equals(metadata.getIdentifierPropertyName())) {
+            propertyType = metadata.getIdentifierType();
+        } else {
+            try {
+                propertyType = metadata.getPropertyType(property);
+            } catch (HibernateException e) {
+                throw new IllegalArgumentException(String.format("[%s] is not a property of [%s].", 
+                        property, entityClass), e);
+            }
+        }
+        Class<?> propertyClass = propertyType.getReturnedClass();
+        BasicType valueType = sessionFactory.getTypeHelper().basic(valueClass);
+        if (valueType != null) {
+            // the basic type is the same for primitives and their wrappers:
+            return propertyClass.equals(valueType.getReturnedClass());
+        }
+        return propertyClass.isAssignableFrom(valueClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isNullableProperty(Class<?> entityClass, String property) {
+        ClassMetadata metadata = sessionFactory.getClassMetadata(entityClass);
+        if (metadata == null) {
+            return true;
+        }
+        String[] propertyNames = metadata.getPropertyNames();
+        for(int i=0; i < propertyNames.length; i++) {
+            if (propertyNames[i].equals(property)) {
+                return metadata.getPropertyNullability()[i];
+            }
+        }
+        return true;
+    }
+
     /**
      * return a random value, (but take primitives into account to prevent NPEs)
      */
@@ -38,6 +38,14 @@ public class OrderByImpl implements OrderBy {
         this.descending = original.descending;
     }
 
+    public TypeSafeValue<?> getValue() {
+        return value;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
     @Override
     public void appendTo(HqlQuery query, HqlQueryBuilderParams params) {
         //ascending is the default
@@ -49,6 +49,14 @@ public class OrderByProjection implements OrderBy {
         this.descending = original.descending;
     }
 
+    public String getPropertyPath() {
+        return propertyPath;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
     /**
      * Orders by the projection with the same alias using the index of the alias.
      * The order by uses the column index because ordering by the alias
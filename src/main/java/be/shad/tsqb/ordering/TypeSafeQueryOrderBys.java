@@ -15,6 +15,7 @@
  */
 package be.shad.tsqb.ordering;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
@@ -166,6 +167,27 @@ public class TypeSafeQueryOrderBys implements OnGoingOrderBy, HqlQueryBuilder, C
         return orderBy(val, false);
     }
     
+    /**
+     * Removes all order bys, used when the order of the results doesn't matter.
+     */
+    public void clear() {
+        orderBys.clear();
+    }
+
+    /**
+     * The order bys, in the order in which they were added.
+     */
+    public List<OrderBy> getOrderBys() {
+        return Collections.unmodifiableList(orderBys);
+    }
+
+    /**
+     * @return true if no order bys were added.
+     */
+    public boolean isEmpty() {
+        return orderBys.isEmpty();
+    }
+
     @Override
     public void appendTo(HqlQuery query, HqlQueryBuilderParams params) {
         for(OrderBy orderBy: orderBys) {
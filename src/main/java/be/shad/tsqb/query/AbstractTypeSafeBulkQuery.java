@@ -0,0 +1,330 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import java.util.Date;
+
+import be.shad.tsqb.data.TypeSafeQueryFrom;
+import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.helper.TypeSafeQueryHelper;
+import be.shad.tsqb.joins.TypeSafeQueryJoin;
+import be.shad.tsqb.query.copy.CopyContext;
+import be.shad.tsqb.query.copy.Copyable;
+import be.shad.tsqb.restrictions.OnGoingBooleanRestriction;
+import be.shad.tsqb.restrictions.OnGoingDateRestriction;
+import be.shad.tsqb.restrictions.OnGoingEnumRestriction;
+import be.shad.tsqb.restrictions.OnGoingNumberRestriction;
+import be.shad.tsqb.restrictions.OnGoingTextRestriction;
+import be.shad.tsqb.restrictions.Restriction;
+import be.shad.tsqb.restrictions.RestrictionChainable;
+import be.shad.tsqb.restrictions.RestrictionHolder;
+import be.shad.tsqb.restrictions.RestrictionsGroup;
+import be.shad.tsqb.restrictions.RestrictionsGroupFactory;
+import be.shad.tsqb.restrictions.RestrictionsGroupInternal;
+import be.shad.tsqb.values.CustomTypeSafeValue;
+import be.shad.tsqb.values.HqlQueryBuilderParams;
+import be.shad.tsqb.values.HqlQueryBuilderParamsImpl;
+import be.shad.tsqb.values.HqlQueryValue;
+import be.shad.tsqb.values.HqlQueryValueImpl;
+import be.shad.tsqb.values.TypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValueFunctions;
+import be.shad.tsqb.values.arithmetic.ArithmeticTypeSafeValueFactory;
+
+/**
+ * Base for the update and delete statements. The proxies, invocation queue, restrictions,
+ * subqueries and named parameters are kept by a query which is only used to build the where
+ * clause, the statement itself is built by the subclasses. The query is not exposed,
+ * a statement can't be selected from or executed as a query.
+ */
+public abstract class AbstractTypeSafeBulkQuery implements TypeSafeRestrictedBulkQuery, Copyable {
+    protected final TypeSafeQueryHelper helper;
+    protected final TypeSafeRootQueryImpl query;
+
+    /**
+     * Copy constructor
+     */
+    protected AbstractTypeSafeBulkQuery(CopyContext context, AbstractTypeSafeBulkQuery original) {
+        this.helper = original.helper;
+        this.query = context.get(original.query);
+    }
+
+    public AbstractTypeSafeBulkQuery(TypeSafeQueryHelper helper) {
+        this.helper = helper;
+        this.query = new TypeSafeRootQueryImpl(helper);
+    }
+
+    /**
+     * Creates the proxy of the entity the statement applies to.
+     * 
+     * @throws IllegalStateException if the entity type was already set.
+     */
+    protected <T> T bulkFrom(Class<T> entityClass) {
+        if (!query.getDataTree().getFroms().isEmpty()) {
+            throw new IllegalStateException(String.format("The entity of the statement was already set "
+                    + "to [%s] when attempting to set it to [%s].", getTarget().getPropertyType(), entityClass));
+        }
+        return query.from(entityClass);
+    }
+
+    /**
+     * @return the data of the entity the statement applies to.
+     * @throws IllegalStateException if the entity type was not set yet.
+     */
+    protected TypeSafeQueryProxyData getTarget() {
+        if (query.getDataTree().getFroms().isEmpty()) {
+            throw new IllegalStateException("The entity of the statement was not set.");
+        }
+        return query.getDataTree().getFroms().get(0).getRoot();
+    }
+
+    /**
+     * Appends the part of the statement before the where clause.
+     */
+    protected abstract void appendStatement(HqlQueryValueImpl statement, HqlQueryBuilderParams params);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HqlQueryValue toHqlQueryValue() {
+        validateNoJoins();
+        HqlQueryBuilderParams params = new HqlQueryBuilderParamsImpl();
+        HqlQueryValueImpl statement = new HqlQueryValueImpl();
+        appendStatement(statement, params);
+        HqlQueryValue where = ((RestrictionsGroupInternal) query.getRestrictions()).toHqlQueryValue(params);
+        if (where.getHql().length() > 0) {
+            statement.appendHql(" where ").append(where.getHql());
+            statement.addParams(where.getParams());
+        }
+        return statement;
+    }
+
+    /**
+     * Hql doesn't allow joins in bulk statements, check the joins are all resolved
+     * as property paths (for example when only the identifier of a relation is used).
+     */
+    private void validateNoJoins() {
+        for(TypeSafeQueryFrom from: query.getDataTree().getFroms()) {
+            for(TypeSafeQueryJoin<?> join: from.getJoins()) {
+                if (join.getData().getEffectiveJoinType() != JoinType.None) {
+                    throw new IllegalStateException(String.format("Joins are not allowed in bulk statements, "
+                            + "use a subquery to restrict on [%s] instead.", join.getData()));
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> TypeSafeSubQuery<T> subquery(Class<T> resultClass) {
+        return query.subquery(resultClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeValueFunctions hqlFunction() {
+        return query.hqlFunction();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArithmeticTypeSafeValueFactory getArithmeticsBuilder() {
+        return query.getArithmeticsBuilder();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RestrictionsGroupFactory getGroupedRestrictionsBuilder() {
+        return query.getGroupedRestrictionsBuilder();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeNameds named() {
+        return query.named();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <VAL> CustomTypeSafeValue<VAL> customValue(Class<VAL> valueClass, String hql, Object... params) {
+        return query.customValue(valueClass, hql, params);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <VAL> TypeSafeValue<VAL> toValue(VAL val) {
+        return query.toValue(val);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RestrictionChainable where() {
+        return query.where();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RestrictionChainable and(RestrictionHolder restriction, RestrictionHolder... restrictions) {
+        return query.and(restriction, restrictions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RestrictionChainable or(RestrictionHolder restriction, RestrictionHolder... restrictions) {
+        return query.or(restriction, restrictions);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RestrictionChainable where(HqlQueryValue restriction) {
+        return query.where(restriction);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RestrictionChainable where(RestrictionsGroup group) {
+        return query.where(group);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RestrictionChainable where(Restriction restriction) {
+        return query.where(restriction);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RestrictionChainable whereExists(TypeSafeSubQuery<?> subquery) {
+        return query.whereExists(subquery);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RestrictionChainable whereNotExists(TypeSafeSubQuery<?> subquery) {
+        return query.whereNotExists(subquery);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <E extends Enum<E>> OnGoingEnumRestriction<E> where(E value) {
+        return query.where(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <E extends Enum<E>> OnGoingEnumRestriction<E> whereEnum(TypeSafeValue<E> value) {
+        return query.whereEnum(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OnGoingBooleanRestriction where(Boolean value) {
+        return query.where(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OnGoingBooleanRestriction whereBoolean(TypeSafeValue<Boolean> value) {
+        return query.whereBoolean(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OnGoingNumberRestriction where(Number value) {
+        return query.where(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <N extends Number> OnGoingNumberRestriction whereNumber(TypeSafeValue<N> value) {
+        return query.whereNumber(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OnGoingDateRestriction where(Date value) {
+        return query.where(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OnGoingDateRestriction whereDate(TypeSafeValue<Date> value) {
+        return query.whereDate(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OnGoingTextRestriction where(String value) {
+        return query.where(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OnGoingTextRestriction whereString(TypeSafeValue<String> value) {
+        return query.whereString(value);
+    }
+
+}
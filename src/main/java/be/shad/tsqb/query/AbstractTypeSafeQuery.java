@@ -743,6 +743,14 @@ public abstract class AbstractTypeSafeQuery implements TypeSafeQuery, TypeSafeQu
         return whereRestrictions;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RestrictionsGroup getHavingRestrictions() {
+        return havingRestrictions;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -791,6 +799,20 @@ public abstract class AbstractTypeSafeQuery implements TypeSafeQuery, TypeSafeQu
         HqlQueryValue hqlWhereRestrictions = whereRestrictions.toHqlQueryValue(params);
         query.appendWhere(hqlWhereRestrictions.getHql());
         query.addParams(hqlWhereRestrictions.getParams());
+
+        // append the froms of the subqueries which were rewritten to restrictions,
+        // including those of rewritten subqueries nested in them:
+        for(TypeSafeSubQuery<?> subquery: params.getJoinedSubqueries()) {
+            TypeSafeQueryInternal subqueryInternal = (TypeSafeQueryInternal) subquery;
+            TypeSafeQueryInternal parentQuery = subqueryInternal.getParentQuery();
+            while (parentQuery instanceof TypeSafeSubQuery<?>
+                    && params.getJoinedSubqueries().contains(parentQuery)) {
+                parentQuery = parentQuery.getParentQuery();
+            }
+            if (parentQuery == this) {
+                subqueryInternal.getDataTree().appendTo(query, params);
+            }
+        }
         
         // append group part:
         groupBys.appendTo(query, params);
@@ -0,0 +1,42 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import be.shad.tsqb.values.TypeSafeValue;
+
+/**
+ * Completes a set-clause of an update query with the new value of the property.
+ */
+public interface OnGoingUpdateValue<T> {
+
+    /**
+     * Sets the property to a direct value, or to another property 
+     * of the updated entity when a getter of the proxy is passed.
+     */
+    TypeSafeUpdateQuery to(T value);
+
+    /**
+     * Sets the property to a type safe value, for example
+     * an arithmetic value or a subquery.
+     */
+    TypeSafeUpdateQuery to(TypeSafeValue<T> value);
+
+    /**
+     * Sets the property to null.
+     */
+    TypeSafeUpdateQuery toNull();
+
+}
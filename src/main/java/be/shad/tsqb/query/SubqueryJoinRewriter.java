@@ -0,0 +1,177 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import static be.shad.tsqb.restrictions.RestrictionNodeType.Or;
+import static be.shad.tsqb.restrictions.RestrictionOperator.EQUAL;
+import static be.shad.tsqb.restrictions.RestrictionOperator.EXISTS;
+import static be.shad.tsqb.restrictions.RestrictionOperator.IN;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import be.shad.tsqb.data.TypeSafeQueryFrom;
+import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.joins.TypeSafeQueryJoin;
+import be.shad.tsqb.restrictions.Restriction;
+import be.shad.tsqb.restrictions.RestrictionImpl;
+import be.shad.tsqb.restrictions.RestrictionNode;
+import be.shad.tsqb.restrictions.RestrictionsGroupImpl;
+import be.shad.tsqb.restrictions.predicate.RestrictionGuard;
+import be.shad.tsqb.values.ReferenceTypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValue;
+
+/**
+ * Finds the subqueries in the where restrictions of a query and its subqueries
+ * which can be rewritten to an additional from of their parent query.
+ * <p>
+ * Adding a from multiplies the rows of the parent query, unless the subquery
+ * matches at most one row for each row of the parent query, and the restrictions
+ * of the subquery are applied to all rows:
+ * <ul>
+ * <li>the restriction on the subquery is and-ed with all other restrictions of the parent query,</li>
+ * <li>the subquery has a single from without joins and doesn't group its results,</li>
+ * <li>an 'in' subquery selects the identifier of its from,</li>
+ * <li>an 'exists' subquery restricts the identifier of its from to a value of the parent query,
+ * and-ed with all other restrictions of the subquery.</li>
+ * </ul>
+ * The parent query must have projections, otherwise the entities of the additional from are selected.
+ */
+class SubqueryJoinRewriter {
+    private final TypeSafeQueryInternal query;
+
+    public SubqueryJoinRewriter(TypeSafeQueryInternal query) {
+        this.query = query;
+    }
+
+    /**
+     * @return the subqueries which can be rewritten.
+     */
+    public Set<TypeSafeSubQuery<?>> getJoinableSubqueries() {
+        Set<TypeSafeSubQuery<?>> joinableSubqueries = new HashSet<>();
+        collectJoinableSubqueries(query, joinableSubqueries);
+        return joinableSubqueries;
+    }
+
+    private void collectJoinableSubqueries(TypeSafeQueryInternal query, Set<TypeSafeSubQuery<?>> joinableSubqueries) {
+        boolean joinable = !query.getProjections().getProjections().isEmpty();
+        List<RestrictionNode> nodes = ((RestrictionsGroupImpl) query.getRestrictions()).getRestrictionNodes();
+        for(RestrictionNode node: nodes) {
+            if (node.getType() == Or) {
+                joinable = false;
+            }
+        }
+        for(RestrictionNode node: nodes) {
+            if (!(node.getRestriction() instanceof RestrictionImpl<?>)) {
+                continue;
+            }
+            RestrictionImpl<?> restriction = (RestrictionImpl<?>) node.getRestriction();
+            if (!(restriction.getRight() instanceof TypeSafeSubQueryImpl<?>)) {
+                continue;
+            }
+            TypeSafeSubQueryImpl<?> subquery = (TypeSafeSubQueryImpl<?>) restriction.getRight();
+            if (joinable && restriction.isRestrictionApplicable() && isJoinable(query, restriction, subquery)) {
+                joinableSubqueries.add(subquery);
+            }
+            collectJoinableSubqueries(subquery, joinableSubqueries);
+        }
+    }
+
+    private boolean isJoinable(TypeSafeQueryInternal query, RestrictionImpl<?> restriction,
+            TypeSafeSubQueryImpl<?> subquery) {
+        if (subquery.getParentQuery() != query || subquery.getDataTree().getFroms().size() != 1
+                || !subquery.getGroupBys().getValues().isEmpty()
+                || !((RestrictionsGroupImpl) subquery.getHavingRestrictions()).isEmpty()) {
+            return false;
+        }
+        TypeSafeQueryFrom from = subquery.getDataTree().getFroms().get(0);
+        for(TypeSafeQueryJoin<?> join: from.getJoins()) {
+            if (join.getData().getEffectiveJoinType() != JoinType.None) {
+                return false;
+            }
+        }
+        if (restriction.getOperator() == IN && restriction.getLeft() != null) {
+            return subquery.getProjections().getProjections().size() == 1 && isIdentifier(from.getRoot(),
+                    subquery.getProjections().getProjections().getFirst().getValue());
+        }
+        if (restriction.getOperator() == EXISTS && restriction.getLeft() == null) {
+            return isIdentifierRestricted(subquery, from.getRoot());
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an and-ed restriction of the subquery restricts the identifier
+     * of the root to a value of the parent query.
+     */
+    private boolean isIdentifierRestricted(TypeSafeSubQueryImpl<?> subquery, TypeSafeQueryProxyData root) {
+        boolean restricted = false;
+        for(RestrictionNode node: ((RestrictionsGroupImpl) subquery.getRestrictions()).getRestrictionNodes()) {
+            if (node.getType() == Or) {
+                return false;
+            }
+            Restriction restriction = node.getRestriction();
+            if (!(restriction instanceof RestrictionImpl<?>)
+                    || !((RestrictionGuard) restriction).isRestrictionApplicable()) {
+                continue;
+            }
+            RestrictionImpl<?> restrictionImpl = (RestrictionImpl<?>) restriction;
+            if (restrictionImpl.getOperator() != EQUAL) {
+                continue;
+            }
+            TypeSafeValue<?> left = restrictionImpl.getLeft();
+            TypeSafeValue<?> right = restrictionImpl.getRight();
+            if (isIdentifier(root, left) && isOuterReference(subquery, right)
+                    || isIdentifier(root, right) && isOuterReference(subquery, left)) {
+                restricted = true;
+            }
+        }
+        return restricted;
+    }
+
+    /**
+     * The root entity or its identifier.
+     */
+    private boolean isIdentifier(TypeSafeQueryProxyData root, TypeSafeValue<?> value) {
+        if (!(value instanceof ReferenceTypeSafeValue<?>) || root.getIdentifierPath() == null) {
+            return false;
+        }
+        TypeSafeQueryProxyData data = ((ReferenceTypeSafeValue<?>) value).getData();
+        return data == root || data.getParent() == root && root.getIdentifierPath().equals(data.getPropertyPath());
+    }
+
+    /**
+     * A value referencing data of the parent queries.
+     */
+    private boolean isOuterReference(TypeSafeSubQueryImpl<?> subquery, TypeSafeValue<?> value) {
+        if (!(value instanceof ReferenceTypeSafeValue<?>)) {
+            return false;
+        }
+        TypeSafeQueryProxyData data = ((ReferenceTypeSafeValue<?>) value).getData();
+        while (data.getParent() != null) {
+            data = data.getParent();
+        }
+        for(TypeSafeQueryFrom from: subquery.getDataTree().getFroms()) {
+            if (from.getRoot() == data) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
+
@@ -0,0 +1,34 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import be.shad.tsqb.dao.TypeSafeQueryDao;
+import be.shad.tsqb.values.HqlQueryValue;
+
+/**
+ * A statement which changes entities in bulk in the database,
+ * without loading them in the session.
+ * <p>
+ * Executed using {@link TypeSafeQueryDao#executeUpdate(TypeSafeBulkQuery)}.
+ */
+public interface TypeSafeBulkQuery {
+
+    /**
+     * Converts the statement to hql and params, to be executed with executeUpdate.
+     */
+    HqlQueryValue toHqlQueryValue();
+
+}
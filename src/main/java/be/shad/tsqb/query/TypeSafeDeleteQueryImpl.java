@@ -0,0 +1,59 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import be.shad.tsqb.helper.TypeSafeQueryHelper;
+import be.shad.tsqb.query.copy.CopyContext;
+import be.shad.tsqb.query.copy.Copyable;
+import be.shad.tsqb.values.HqlQueryBuilderParams;
+import be.shad.tsqb.values.HqlQueryValueImpl;
+
+/**
+ * Builds a 'delete from Entity alias where ...' statement.
+ */
+public class TypeSafeDeleteQueryImpl extends AbstractTypeSafeBulkQuery implements TypeSafeDeleteQuery {
+
+    /**
+     * Copy constructor
+     */
+    protected TypeSafeDeleteQueryImpl(CopyContext context, TypeSafeDeleteQueryImpl original) {
+        super(context, original);
+    }
+
+    public TypeSafeDeleteQueryImpl(TypeSafeQueryHelper helper) {
+        super(helper);
+    }
+
+    @Override
+    public Copyable copy(CopyContext context) {
+        return new TypeSafeDeleteQueryImpl(context, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T delete(Class<T> entityClass) {
+        return bulkFrom(entityClass);
+    }
+
+    @Override
+    protected void appendStatement(HqlQueryValueImpl statement, HqlQueryBuilderParams params) {
+        statement.appendHql("delete from ").append(helper.getEntityName(getTarget().getPropertyType())).
+            append(" ").append(getTarget().getAlias());
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+/**
+ * Inserts the values selected by a select query into new entities in a single statement.
+ * <p>
+ * The select query selects into the entity class which is inserted, each selected property
+ * becomes an inserted property:
+ * <pre>
+ * TypeSafeRootQuery select = TypeSafeQueryHelper#createQuery();
+ * Person person = select.from(Person.class);
+ * Town town = select.select(Town.class);
+ * town.setName(person.getName());
+ * 
+ * TypeSafeInsertQuery insert = TypeSafeQueryHelper#createInsertQuery(select);
+ * int inserted = dao.executeUpdate(insert);
+ * </pre>
+ * The selected values are checked against the types of the entity properties
+ * when the statement is converted to hql. The identifier can be omitted
+ * when it is generated by the database.
+ */
+public interface TypeSafeInsertQuery extends TypeSafeBulkQuery {
+
+    /**
+     * @return the query which selects the values to insert.
+     */
+    TypeSafeRootQuery getSelectQuery();
+
+}
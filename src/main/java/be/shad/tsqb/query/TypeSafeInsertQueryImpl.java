@@ -0,0 +1,124 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import be.shad.tsqb.data.TypeSafeQuerySelectionProxyData;
+import be.shad.tsqb.helper.TypeSafeQueryHelper;
+import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.selection.TypeSafeQueryProjections;
+import be.shad.tsqb.selection.TypeSafeValueProjection;
+import be.shad.tsqb.values.HqlQueryValue;
+import be.shad.tsqb.values.HqlQueryValueImpl;
+
+/**
+ * Builds an 'insert into Entity (property, ...) select ...' statement
+ * using the projections of the select query.
+ */
+public class TypeSafeInsertQueryImpl implements TypeSafeInsertQuery {
+    private final TypeSafeQueryHelper helper;
+    private final TypeSafeRootQueryInternal selectQuery;
+
+    public TypeSafeInsertQueryImpl(TypeSafeQueryHelper helper, TypeSafeRootQuery selectQuery) {
+        this.helper = helper;
+        this.selectQuery = (TypeSafeRootQueryInternal) selectQuery;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeRootQuery getSelectQuery() {
+        return selectQuery;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The select query is copied, the order by and the selection aliases
+     * are left out because hql doesn't allow them in an insert statement.
+     * 
+     * @throws IllegalStateException if the select query can't be used for an insert.
+     * @throws IllegalArgumentException if a selected value doesn't match the type of its property.
+     */
+    @Override
+    public HqlQueryValue toHqlQueryValue() {
+        Class<?> entityClass = selectQuery.getProjections().getResultClass();
+        if (entityClass == null) {
+            throw new IllegalStateException("The select query of an insert statement must select "
+                    + "into the entity class to insert.");
+        }
+        if (selectQuery.getFirstResult() > 0 || selectQuery.getMaxResults() > 0) {
+            throw new IllegalStateException("First and max results can't be used in an insert statement.");
+        }
+
+        TypeSafeRootQueryImpl copy = (TypeSafeRootQueryImpl) selectQuery.copy();
+        copy.getOrderBys().clear();
+        TypeSafeQueryProjections projections = copy.getProjections();
+        List<TypeSafeValueProjection> values = new ArrayList<>(projections.getProjections());
+        projections.getProjections().clear();
+        projections.setResultInvoker(null, null);
+
+        StringBuilder properties = new StringBuilder();
+        for(TypeSafeValueProjection projection: values) {
+            String property = getInsertedProperty(entityClass, projection);
+            if (properties.length() > 0) {
+                properties.append(", ");
+            }
+            properties.append(property);
+            projections.addProjection(new TypeSafeValueProjection(projection.getValue(), null, null));
+        }
+        if (properties.length() == 0) {
+            throw new IllegalStateException(String.format("No properties of [%s] were selected.", entityClass));
+        }
+
+        HqlQuery select = copy.toHqlQuery();
+        HqlQueryValueImpl statement = new HqlQueryValueImpl();
+        statement.appendHql("insert into ").append(helper.getEntityName(entityClass)).
+            append(" (").append(properties).append(") ").append(select.getHql());
+        statement.addParams(select.getParams());
+        return statement;
+    }
+
+    /**
+     * Validates the projection sets a property of the inserted entity with a value of a matching type.
+     */
+    private String getInsertedProperty(Class<?> entityClass, TypeSafeValueProjection projection) {
+        TypeSafeQuerySelectionProxyData selectionData = projection.getSelectionData();
+        if (selectionData == null || !selectionData.getGroup().isResultGroup()) {
+            throw new IllegalStateException(String.format("The selected value [%s] is not "
+                    + "selected into a property of [%s].", projection.getValue(), entityClass));
+        }
+        if (projection.getTransformer() != null) {
+            throw new IllegalStateException(String.format("The value selected into [%s] can't be "
+                    + "transformed in an insert statement.", selectionData.getEffectivePropertyPath()));
+        }
+        String property = selectionData.getEffectivePropertyPath();
+        if (selectionData.getParent().getParent() != null) {
+            throw new IllegalStateException(String.format("Only direct properties of [%s] can be inserted, "
+                    + "[%s] is nested.", entityClass, property));
+        }
+        Class<?> valueClass = projection.getValue().getValueClass();
+        if (!helper.isAssignableToProperty(entityClass, property, valueClass)) {
+            throw new IllegalArgumentException(String.format("The selected value of type [%s] "
+                    + "can't be inserted in [%s.%s].", valueClass, entityClass.getName(), property));
+        }
+        return property;
+    }
+
+}
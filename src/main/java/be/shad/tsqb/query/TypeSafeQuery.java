@@ -293,5 +293,36 @@ public interface TypeSafeQuery extends WhereRestrictions, HavingRestrictions {
      * Sets what is used by {@link #getDefaultRestrictionPredicate()}
      */
     void setDefaultRestrictionPredicate(RestrictionPredicate restrictionValuePredicate);
+
+    /**
+     * Whether the restrictions are simplified before they are transformed to hql:
+     * duplicate restrictions are removed, nested groups are flattened, equalities 
+     * on the same property which are or-ed are collapsed into an 'in' restriction,
+     * number and date ranges are merged and restrictions which are always true are left out.
+     * <p>
+     * Disabled by default, the setting is shared with the subqueries.
+     */
+    boolean isRestrictionsOptimized();
+
+    /**
+     * Sets what is used by {@link #isRestrictionsOptimized()}
+     */
+    void setRestrictionsOptimized(boolean restrictionsOptimized);
+
+    /**
+     * Whether subqueries which can match at most one row are rewritten to an additional
+     * from with restrictions when that doesn't change the results: an 'in' subquery which
+     * selects the identifier of its entity, or an 'exists' subquery which restricts the
+     * identifier of its entity to a value of the outer query. Only subqueries without joins
+     * which are and-ed to all other restrictions of a query with projections are rewritten.
+     * <p>
+     * Disabled by default, the setting is shared with the subqueries.
+     */
+    boolean isSubqueriesRewrittenToJoins();
+
+    /**
+     * Sets what is used by {@link #isSubqueriesRewrittenToJoins()}
+     */
+    void setSubqueriesRewrittenToJoins(boolean subqueriesRewrittenToJoins);
     
 }
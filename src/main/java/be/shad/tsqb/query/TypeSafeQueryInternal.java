@@ -98,6 +98,11 @@ public interface TypeSafeQueryInternal extends TypeSafeQuery, Copyable {
      */
     RestrictionsGroup getRestrictions();
     
+    /**
+     * @return the known having restrictions for this query.
+     */
+    RestrictionsGroup getHavingRestrictions();
+    
     /**
      * @return the known order bys for this query.
      */
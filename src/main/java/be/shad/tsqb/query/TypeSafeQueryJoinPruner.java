@@ -0,0 +1,215 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import be.shad.tsqb.data.TypeSafeQueryFrom;
+import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.joins.TypeSafeQueryJoin;
+import be.shad.tsqb.ordering.OrderBy;
+import be.shad.tsqb.ordering.OrderByImpl;
+import be.shad.tsqb.ordering.OrderByProjection;
+import be.shad.tsqb.restrictions.Restriction;
+import be.shad.tsqb.restrictions.RestrictionImpl;
+import be.shad.tsqb.restrictions.RestrictionNode;
+import be.shad.tsqb.restrictions.RestrictionsGroupImpl;
+import be.shad.tsqb.selection.TypeSafeValueProjection;
+import be.shad.tsqb.values.CaseTypeSafeValue;
+import be.shad.tsqb.values.CollectionTypeSafeValue;
+import be.shad.tsqb.values.CustomTypeSafeValue;
+import be.shad.tsqb.values.DirectTypeSafeValue;
+import be.shad.tsqb.values.HqlQueryBuilderParamsImpl;
+import be.shad.tsqb.values.OnGoingCaseImpl;
+import be.shad.tsqb.values.ReferenceTypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValueContainer;
+
+/**
+ * Walks the values of a query and its subqueries to find the joins which don't
+ * affect the results and can be left out of the hql:
+ * <ul>
+ * <li>left joins on an entity property of which the alias is not used,</li>
+ * <li>inner joins without restrictions on a property which can't be null, of which
+ * the alias is not used, as long as the parent is not left joined.</li>
+ * </ul>
+ * Fetch joins and collection joins are never pruned, and neither are the joins of a
+ * query without projections, because those select all joined entities.
+ * <p>
+ * Walks the nested values the same way their scope is validated.
+ */
+class TypeSafeQueryJoinPruner implements TypeSafeQueryScopeValidator {
+    private final TypeSafeQueryInternal query;
+    private final Set<TypeSafeQueryProxyData> usedData = new HashSet<>();
+    private final List<String> customHqls = new ArrayList<>();
+    private final List<TypeSafeQueryJoin<?>> joins = new ArrayList<>();
+    private boolean unknownUsage;
+
+    public TypeSafeQueryJoinPruner(TypeSafeQueryInternal query) {
+        this.query = query;
+    }
+
+    /**
+     * @return the joins which can be left out of the hql.
+     */
+    public Set<TypeSafeQueryProxyData> getPrunedJoins() {
+        collectUsage(query);
+        if (unknownUsage) {
+            return Collections.emptySet();
+        }
+        Set<TypeSafeQueryProxyData> prunedJoins = new HashSet<>();
+        // nested joins and join restrictions refer to earlier joins:
+        for(int i=joins.size()-1; i >= 0; i--) {
+            TypeSafeQueryJoin<?> join = joins.get(i);
+            if (isPrunable(join, prunedJoins)) {
+                prunedJoins.add(join.getData());
+            } else {
+                collectUsage(join.getRestrictions());
+            }
+        }
+        if (unknownUsage) {
+            return Collections.emptySet();
+        }
+        return prunedJoins;
+    }
+
+    private boolean isPrunable(TypeSafeQueryJoin<?> join, Set<TypeSafeQueryProxyData> prunedJoins) {
+        TypeSafeQueryProxyData data = join.getData();
+        if (data.getProxyType().isCollection() || isUsed(data, prunedJoins)) {
+            return false;
+        }
+        switch (data.getEffectiveJoinType()) {
+            case Left:
+                return true;
+            case Inner:
+                TypeSafeQueryProxyData parent = data.getParent();
+                if (!join.isEmpty() || !parent.getProxyType().isEntity()) {
+                    return false;
+                }
+                if (parent.getParent() != null) {
+                    JoinType parentJoinType = parent.getEffectiveJoinType();
+                    if (parentJoinType != JoinType.Inner && parentJoinType != JoinType.Fetch) {
+                        return false;
+                    }
+                }
+                return !query.getHelper().isNullableProperty(parent.getPropertyType(), data.getPropertyPath());
+            default:
+                return false;
+        }
+    }
+
+    private boolean isUsed(TypeSafeQueryProxyData data, Set<TypeSafeQueryProxyData> prunedJoins) {
+        if (data.getCustomAlias() != null || isReferenced(data, prunedJoins)) {
+            return true;
+        }
+        Pattern aliasPattern = Pattern.compile("\\b" + Pattern.quote(data.getAlias()) + "\\b");
+        for(String hql: customHqls) {
+            if (aliasPattern.matcher(hql).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The data is referenced when it or one of its properties is referenced,
+     * or when one of the joins on it is kept.
+     */
+    private boolean isReferenced(TypeSafeQueryProxyData data, Set<TypeSafeQueryProxyData> prunedJoins) {
+        if (usedData.contains(data)) {
+            return true;
+        }
+        for(TypeSafeQueryProxyData child: data.getChildren()) {
+            if (child.getJoinType() != null ? !prunedJoins.contains(child): isReferenced(child, prunedJoins)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void collectUsage(TypeSafeQueryInternal query) {
+        for(TypeSafeQueryFrom from: query.getDataTree().getFroms()) {
+            for(TypeSafeQueryJoin<?> join: from.getJoins()) {
+                if (query.getProjections().getProjections().isEmpty()) {
+                    usedData.add(join.getData());
+                }
+                joins.add(join);
+            }
+        }
+        for(TypeSafeValueProjection projection: query.getProjections().getProjections()) {
+            validateInScope(projection.getValue());
+        }
+        collectUsage(query.getRestrictions().getRestrictions());
+        for(TypeSafeValue<?> value: query.getGroupBys().getValues()) {
+            validateInScope(value);
+        }
+        collectUsage(query.getHavingRestrictions().getRestrictions());
+        for(OrderBy orderBy: query.getOrderBys().getOrderBys()) {
+            if (orderBy instanceof OrderByImpl) {
+                validateInScope(((OrderByImpl) orderBy).getValue());
+            } else if (!(orderBy instanceof OrderByProjection)) {
+                unknownUsage = true;
+            }
+        }
+    }
+
+    private void collectUsage(Restriction restriction) {
+        if (restriction instanceof RestrictionsGroupImpl) {
+            for(RestrictionNode node: ((RestrictionsGroupImpl) restriction).getRestrictionNodes()) {
+                collectUsage(node.getRestriction());
+            }
+        } else if (restriction instanceof RestrictionImpl<?>) {
+            RestrictionImpl<?> restrictionImpl = (RestrictionImpl<?>) restriction;
+            if (restrictionImpl.getLeft() != null) {
+                validateInScope(restrictionImpl.getLeft());
+            }
+            if (restrictionImpl.getRight() != null) {
+                validateInScope(restrictionImpl.getRight());
+            }
+        } else {
+            unknownUsage = true;
+        }
+    }
+
+    /**
+     * Collects the referenced data, instead of validating it.
+     */
+    @Override
+    public void validateInScope(TypeSafeValue<?> value) {
+        if (value instanceof ReferenceTypeSafeValue<?>) {
+            usedData.add(((ReferenceTypeSafeValue<?>) value).getData());
+        } else if (value instanceof TypeSafeQueryInternal) {
+            collectUsage((TypeSafeQueryInternal) value);
+        } else if (value instanceof CustomTypeSafeValue<?>) {
+            customHqls.add(value.toHqlQueryValue(new HqlQueryBuilderParamsImpl()).getHql());
+        } else if (value instanceof CaseTypeSafeValue<?>) {
+            for(OnGoingCaseImpl<?> ongoingCase: ((CaseTypeSafeValue<?>) value).getCases()) {
+                collectUsage(ongoingCase.getRestrictionsGroup().getRestrictions());
+                validateInScope(ongoingCase.getValue());
+            }
+        } else if (value instanceof TypeSafeValueContainer) {
+            ((TypeSafeValueContainer) value).validateContainedInScope(this);
+        } else if (!(value instanceof DirectTypeSafeValue<?>) && !(value instanceof CollectionTypeSafeValue<?>)) {
+            unknownUsage = true;
+        }
+    }
+
+}
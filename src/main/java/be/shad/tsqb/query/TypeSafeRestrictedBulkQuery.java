@@ -0,0 +1,69 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import be.shad.tsqb.restrictions.RestrictionsGroupFactory;
+import be.shad.tsqb.restrictions.WhereRestrictions;
+import be.shad.tsqb.values.CustomTypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValueFunctions;
+import be.shad.tsqb.values.arithmetic.ArithmeticTypeSafeValueFactory;
+
+/**
+ * A bulk statement on a single entity type, which may be restricted with a where clause.
+ * The restrictions, subqueries and named parameters work the same as they do in a {@link TypeSafeQuery}.
+ * <p>
+ * Hql doesn't allow joins in bulk statements, use subqueries to restrict on related entities.
+ * Only the identifier of a related entity can be used directly.
+ */
+public interface TypeSafeRestrictedBulkQuery extends TypeSafeBulkQuery, WhereRestrictions {
+
+    /**
+     * @see TypeSafeQuery#subquery(Class)
+     */
+    <T> TypeSafeSubQuery<T> subquery(Class<T> resultClass);
+
+    /**
+     * @see TypeSafeQuery#hqlFunction()
+     */
+    TypeSafeValueFunctions hqlFunction();
+
+    /**
+     * @see TypeSafeQuery#getArithmeticsBuilder()
+     */
+    ArithmeticTypeSafeValueFactory getArithmeticsBuilder();
+
+    /**
+     * @see TypeSafeQuery#getGroupedRestrictionsBuilder()
+     */
+    RestrictionsGroupFactory getGroupedRestrictionsBuilder();
+
+    /**
+     * @see TypeSafeQuery#named()
+     */
+    TypeSafeNameds named();
+
+    /**
+     * @see TypeSafeQuery#customValue(Class, String, Object...)
+     */
+    <VAL> CustomTypeSafeValue<VAL> customValue(Class<VAL> valueClass, String hql, Object... params);
+
+    /**
+     * @see TypeSafeQuery#toValue(Object)
+     */
+    <VAL> TypeSafeValue<VAL> toValue(VAL val);
+
+}
@@ -16,7 +16,9 @@
 package be.shad.tsqb.query;
 
 import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.selection.ResultGrouping;
 import be.shad.tsqb.selection.SelectionValueTransformer;
+import be.shad.tsqb.selection.parallel.CollectionSelectionMerger;
 import be.shad.tsqb.selection.parallel.SelectPair;
 import be.shad.tsqb.selection.parallel.SelectTriplet;
 import be.shad.tsqb.selection.parallel.SelectValue;
@@ -125,6 +127,58 @@ public interface TypeSafeRootQuery extends TypeSafeQuery {
      */
     <T, A, B, C> SelectTriplet<A, B, C> selectMergeValues(T resultDto, SelectionMerger3<T, A, B, C> merger);
 
+    /**
+     * Create an additional proxy to select the values of a collection element into,
+     * the merger adds the element to the collection of the result dto.
+     * <p>
+     * The rows for which the same values are selected into the result dto and its merged values
+     * are grouped into one result, having the elements of all of these rows in its collection.
+     * Select a value which identifies the result, like its id, otherwise different results with
+     * equal values are grouped together. At least one such value is required. By default consecutive
+     * rows are grouped, so the query should be ordered by the result dto values, 
+     * see {@link #setResultGrouping(ResultGrouping)}. No element is added when only null values
+     * are selected into it (after an outer join without a match for example).
+     * <p>
+     * Example, selecting persons with the names of their children:
+     * <pre>
+     * Person person = query.from(Person.class);
+     * Relation relation = query.join(person.getChildRelations(), JoinType.Left);
+     * PersonDto dto = query.select(PersonDto.class);
+     * dto.setId(person.getId());
+     * PersonDto child = query.selectCollectionValues(dto, PersonDto.class, childrenMerger);
+     * child.setThePersonsName(relation.getChild().getName());
+     * query.orderBy().asc(person.getId());
+     * </pre>
+     * Max results limit the amount of rows, not the amount of grouped results.
+     */
+    <T, E> E selectCollectionValues(T resultDto, Class<E> elementClass, CollectionSelectionMerger<T, E> merger);
+
+    /**
+     * Sets how rows are grouped when collection values are selected, the default is
+     * {@link ResultGrouping#Consecutive}.
+     */
+    void setResultGrouping(ResultGrouping resultGrouping);
+
+    /**
+     * Creates the results by invoking a constructor of the result class with the selected values
+     * as arguments, in the order in which they were selected. Meant for immutable dtos:
+     * <pre>
+     * query.select(person.getName());
+     * query.select(person.getAge());
+     * query.setResultConstructor(PersonValue.class);
+     * List&lt;PersonValue&gt; values = dao.doQuery(query);
+     * </pre>
+     * The constructor is matched using the classes of the selected values when the query is built,
+     * values can't be selected into a selection dto as well.
+     */
+    void setResultConstructor(Class<?> resultClass);
+
+    /**
+     * Creates the results by invoking a static method of the factory class with the selected values
+     * as arguments, see {@link #setResultConstructor(Class)}.
+     */
+    void setResultFactory(Class<?> factoryClass, String factoryMethodName);
+
     /**
      * Registers the transformer to be used for the selection value
      * when the default result transformer is used.
@@ -162,5 +216,14 @@ public interface TypeSafeRootQuery extends TypeSafeQuery {
      * The amount of results to fetch, default is -1, see {@link org.hibernate.Query#setMaxResults}
      */
     int getMaxResults();
+
+    /**
+     * By default all nested dtos of the selection dto are created for every result,
+     * even when only null values are selected into them (after an outer join for example).
+     * <p>
+     * When lazy creation is enabled, a nested dto is only created when a value which 
+     * is not null is selected into it, the nested property remains null otherwise.
+     */
+    void setLazyNestedDtoCreation(boolean lazyNestedDtoCreation);
     
 }
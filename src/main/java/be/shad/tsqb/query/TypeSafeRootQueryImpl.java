@@ -21,16 +21,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import be.shad.tsqb.data.TypeSafeQueryFrom;
 import be.shad.tsqb.data.TypeSafeQueryProxyData;
 import be.shad.tsqb.helper.TypeSafeQueryHelper;
 import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.joins.TypeSafeQueryJoin;
 import be.shad.tsqb.proxy.TypeSafeQueryProxy;
 import be.shad.tsqb.query.copy.CopyContext;
 import be.shad.tsqb.query.copy.Copyable;
 import be.shad.tsqb.restrictions.predicate.RestrictionPredicate;
+import be.shad.tsqb.selection.ResultGrouping;
 import be.shad.tsqb.selection.SelectionValueTransformer;
 import be.shad.tsqb.selection.group.TypeSafeQuerySelectionGroup;
 import be.shad.tsqb.selection.group.TypeSafeQuerySelectionGroupImpl;
+import be.shad.tsqb.selection.parallel.CollectionSelectionMerger;
 import be.shad.tsqb.selection.parallel.SelectPair;
 import be.shad.tsqb.selection.parallel.SelectTriplet;
 import be.shad.tsqb.selection.parallel.SelectValue;
@@ -53,6 +57,8 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
     private TypeSafeValue<?> lastSelectedValue;
     private String lastInvokedProjectionPath;
     private RestrictionPredicate restrictionPredicate;
+    private boolean restrictionsOptimized;
+    private boolean subqueriesRewrittenToJoins;
     private int entityAliasCount;
     private int selectionGroupAliasCount;
     private int firstResult;
@@ -96,6 +102,8 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
             customAliasedProxies.put(customAliasedProxy.getKey(), context.get(customAliasedProxy.getValue()));
         }
         restrictionPredicate = context.get(original.restrictionPredicate);
+        restrictionsOptimized = original.restrictionsOptimized;
+        subqueriesRewrittenToJoins = original.subqueriesRewrittenToJoins;
         lastSelectedValue = context.get(original.lastSelectedValue);
         lastInvokedProjectionPath = original.lastInvokedProjectionPath;
         entityAliasCount = original.entityAliasCount;
@@ -142,6 +150,14 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
         this.maxResults = maxResults;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLazyNestedDtoCreation(boolean lazyNestedDtoCreation) {
+        getProjections().setLazyNestedDtoCreation(lazyNestedDtoCreation);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -270,6 +286,38 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
         this.restrictionPredicate = restrictionPredicate;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRestrictionsOptimized() {
+        return restrictionsOptimized;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setRestrictionsOptimized(boolean restrictionsOptimized) {
+        this.restrictionsOptimized = restrictionsOptimized;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSubqueriesRewrittenToJoins() {
+        return subqueriesRewrittenToJoins;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSubqueriesRewrittenToJoins(boolean subqueriesRewrittenToJoins) {
+        this.subqueriesRewrittenToJoins = subqueriesRewrittenToJoins;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -372,9 +420,99 @@ public class TypeSafeRootQueryImpl extends AbstractTypeSafeQuery implements Type
         return selectMergeValues(resultDto, SelectTriplet.class, (SelectionMerger) merger);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T, E> E selectCollectionValues(T resultDto, Class<E> elementClass, 
+            CollectionSelectionMerger<T, E> merger) {
+        return selectMergeValues(resultDto, elementClass, merger);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setResultGrouping(ResultGrouping resultGrouping) {
+        getProjections().setResultGrouping(resultGrouping);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setResultConstructor(Class<?> resultClass) {
+        getProjections().setResultInvoker(resultClass, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setResultFactory(Class<?> factoryClass, String factoryMethodName) {
+        if (factoryMethodName == null) {
+            throw new IllegalArgumentException("The factory method name is required.");
+        }
+        getProjections().setResultInvoker(factoryClass, factoryMethodName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeRootQuery copyForExists() {
+        TypeSafeRootQueryImpl copy = (TypeSafeRootQueryImpl) copy();
+        copy.getOrderBys().clear();
+        copy.getProjections().getProjections().clear();
+        copy.getProjections().setResultClass(null);
+        copy.getProjections().setResultInvoker(null, null);
+        copy.getProjections().project(1L, null);
+        copy.setMaxResults(1);
+        // nothing is selected to fetch into, hibernate rejects fetch joins in that case:
+        for(TypeSafeQueryFrom from: copy.getDataTree().getFroms()) {
+            for(TypeSafeQueryJoin<?> join: from.getJoins()) {
+                TypeSafeQueryProxyData data = join.getData();
+                if (data.getJoinType() == JoinType.Fetch) {
+                    data.setJoinType(JoinType.Inner);
+                } else if (data.getJoinType() == JoinType.LeftFetch) {
+                    data.setJoinType(JoinType.Left);
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeRootQuery copyForFirstResult() {
+        TypeSafeRootQuery copy = copy();
+        copy.setMaxResults(1);
+        return copy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeSafeRootQuery copyForUniqueResult() {
+        TypeSafeRootQueryImpl copy = (TypeSafeRootQueryImpl) copy();
+        copy.getOrderBys().clear();
+        if (copy.getMaxResults() <= 0 || copy.getMaxResults() > 2) {
+            copy.setMaxResults(2);
+        }
+        return copy;
+    }
+
     @Override
     public HqlQuery toHqlQuery() {
-        return super.toHqlQuery(new HqlQueryBuilderParamsImpl());
+        HqlQueryBuilderParamsImpl params = new HqlQueryBuilderParamsImpl();
+        params.setPrunedJoins(new TypeSafeQueryJoinPruner(this).getPrunedJoins());
+        if (subqueriesRewrittenToJoins) {
+            params.setJoinableSubqueries(new SubqueryJoinRewriter(this).getJoinableSubqueries());
+        }
+        return super.toHqlQuery(params);
     }
 
     /**
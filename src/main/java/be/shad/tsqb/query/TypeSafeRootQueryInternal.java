@@ -57,4 +57,24 @@ public interface TypeSafeRootQueryInternal extends TypeSafeRootQuery, TypeSafeQu
      */
     String createSelectGroupAlias();
     
+    /**
+     * Creates a copy of this query to check if it has any results:
+     * the projections are replaced with a constant, the order bys are
+     * dropped, fetch joins become regular joins and only a single row is fetched.
+     */
+    TypeSafeRootQuery copyForExists();
+
+    /**
+     * Creates a copy of this query to fetch only the first result,
+     * the order bys are kept because they determine which result is first.
+     */
+    TypeSafeRootQuery copyForFirstResult();
+
+    /**
+     * Creates a copy of this query to fetch a unique result. The order bys
+     * are dropped and at most two rows are fetched, which is enough to
+     * detect the result is not unique.
+     */
+    TypeSafeRootQuery copyForUniqueResult();
+    
 }
@@ -15,11 +15,18 @@
  */
 package be.shad.tsqb.query;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
+import be.shad.tsqb.data.TypeSafeQueryFrom;
 import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.data.TypeSafeQueryProxyDataTree;
 import be.shad.tsqb.helper.TypeSafeQueryHelper;
 import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.joins.TypeSafeQueryJoin;
 import be.shad.tsqb.query.copy.CopyContext;
 import be.shad.tsqb.query.copy.Copyable;
 import be.shad.tsqb.restrictions.predicate.RestrictionPredicate;
@@ -39,6 +46,7 @@ import be.shad.tsqb.values.TypeSafeValue;
 public class TypeSafeSubQueryImpl<T> extends AbstractTypeSafeQuery implements TypeSafeSubQuery<T> {
     private TypeSafeQueryInternal parentQuery;
     private final Class<T> valueClass;
+    private Set<TypeSafeQueryProxyDataTree> scopeDataTrees;
 
     public TypeSafeSubQueryImpl(Class<T> valueClass, 
             TypeSafeQueryHelper helper,
@@ -110,18 +118,64 @@ public class TypeSafeSubQueryImpl<T> extends AbstractTypeSafeQuery implements Ty
                     + "this subquery instead of another custom way, or select a value.");
         }
         HqlQuery query = toHqlQuery(params);
-        return new HqlQueryValueImpl("(" +query.getHql() + ")", query.getParams());
+        HqlQueryValue value = new HqlQueryValueImpl("(" +query.getHql() + ")", query.getParams());
+        // identical subqueries are added with the hql and named parameters of the first one:
+        return params.shareSubqueryValue(value, getAliases());
+    }
+
+    /**
+     * The generated aliases of the froms and joins of this subquery.
+     */
+    private List<String> getAliases() {
+        List<String> aliases = new ArrayList<>();
+        for(TypeSafeQueryFrom from: getDataTree().getFroms()) {
+            addAlias(aliases, from.getRoot());
+            for(TypeSafeQueryJoin<?> join: from.getJoins()) {
+                if (join.getData().getEffectiveJoinType() != JoinType.None) {
+                    addAlias(aliases, join.getData());
+                }
+            }
+        }
+        return aliases;
+    }
+
+    private void addAlias(List<String> aliases, TypeSafeQueryProxyData data) {
+        if (data.getCustomAlias() == null) {
+            aliases.add(data.getAlias());
+        }
     }
 
     /**
      * In scope if it is in this query's scope or in its parents' scope.
+     * <p>
+     * The data knows the data tree it belongs to, so only that
+     * data tree is checked instead of walking up the parent queries.
      */
     @Override
     public boolean isInScope(TypeSafeQueryProxyData data, TypeSafeQueryProxyData join) {
-        if( super.isInScope(data, join) ) {
-            return true;
+        if( !getScopeDataTrees().contains(data.getDataTree()) ) {
+            return false;
         }
-        return parentQuery.isInScope(data, join);
+        return data.getDataTree().isInScope(data, join);
+    }
+
+    /**
+     * The data trees of this query and its parent queries,
+     * collected when the scope is checked for the first time.
+     */
+    private Set<TypeSafeQueryProxyDataTree> getScopeDataTrees() {
+        if( scopeDataTrees == null ) {
+            Set<TypeSafeQueryProxyDataTree> dataTrees = Collections.newSetFromMap(
+                    new IdentityHashMap<TypeSafeQueryProxyDataTree, Boolean>());
+            TypeSafeQueryInternal scope = this;
+            while( scope != scope.getRootQuery() ) {
+                dataTrees.add(scope.getDataTree());
+                scope = scope.getParentQuery();
+            }
+            dataTrees.add(scope.getDataTree());
+            scopeDataTrees = dataTrees;
+        }
+        return scopeDataTrees;
     }
     
     /**
@@ -172,6 +226,38 @@ public class TypeSafeSubQueryImpl<T> extends AbstractTypeSafeQuery implements Ty
         getRootQuery().setDefaultRestrictionPredicate(restrictionValuePredicate);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRestrictionsOptimized() {
+        return getRootQuery().isRestrictionsOptimized();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setRestrictionsOptimized(boolean restrictionsOptimized) {
+        getRootQuery().setRestrictionsOptimized(restrictionsOptimized);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSubqueriesRewrittenToJoins() {
+        return getRootQuery().isSubqueriesRewrittenToJoins();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setSubqueriesRewrittenToJoins(boolean subqueriesRewrittenToJoins) {
+        getRootQuery().setSubqueriesRewrittenToJoins(subqueriesRewrittenToJoins);
+    }
+
     @Override
     public T select() {
         return getRootQuery().queueValueSelected(this);
@@ -0,0 +1,57 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+/**
+ * Updates properties of the entities matching the restrictions in a single statement.
+ * <p>
+ * Example:
+ * <pre>
+ * TypeSafeUpdateQuery update = TypeSafeQueryHelper#createUpdateQuery();
+ * Person person = update.update(Person.class);
+ * update.set(person.isMarried()).to(true);
+ * update.set(person.getSpouse()).toNull();
+ * update.where(person.getName()).eq("Josh");
+ * 
+ * int updated = dao.executeUpdate(update);
+ * </pre>
+ */
+public interface TypeSafeUpdateQuery extends TypeSafeRestrictedBulkQuery {
+
+    /**
+     * Sets the entity type to update and returns a proxy to set values and build the restrictions.
+     * 
+     * @throws IllegalStateException if the entity type was already set.
+     */
+    <T> T update(Class<T> entityClass);
+
+    /**
+     * Starts a set-clause for the property of the updated entity, 
+     * the property is passed by calling its getter on the proxy.
+     * Setting the same property twice replaces the first value.
+     * 
+     * @throws IllegalArgumentException if the property is not a property of the updated entity.
+     */
+    <T> OnGoingUpdateValue<T> set(T property);
+
+    /**
+     * Number specific set-clause, so arithmetic values can be used as value.
+     * 
+     * @see #set(Object)
+     */
+    <N extends Number> OnGoingUpdateValue<Number> set(N property);
+
+}
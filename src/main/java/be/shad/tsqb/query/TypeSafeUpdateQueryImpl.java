@@ -0,0 +1,175 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.helper.TypeSafeQueryHelper;
+import be.shad.tsqb.proxy.TypeSafeQueryProxy;
+import be.shad.tsqb.query.copy.CopyContext;
+import be.shad.tsqb.query.copy.Copyable;
+import be.shad.tsqb.restrictions.DirectValueProvider;
+import be.shad.tsqb.values.CustomTypeSafeValue;
+import be.shad.tsqb.values.DirectTypeSafeValue;
+import be.shad.tsqb.values.HqlQueryBuilderParams;
+import be.shad.tsqb.values.HqlQueryValue;
+import be.shad.tsqb.values.HqlQueryValueImpl;
+import be.shad.tsqb.values.TypeSafeValue;
+
+/**
+ * Builds an 'update Entity alias set alias.property = value, ... where ...' statement.
+ */
+public class TypeSafeUpdateQueryImpl extends AbstractTypeSafeBulkQuery implements TypeSafeUpdateQuery {
+    private final Map<TypeSafeQueryProxyData, TypeSafeValue<?>> assignments = new LinkedHashMap<>();
+
+    /**
+     * Copy constructor
+     */
+    protected TypeSafeUpdateQueryImpl(CopyContext context, TypeSafeUpdateQueryImpl original) {
+        super(context, original);
+        for(Entry<TypeSafeQueryProxyData, TypeSafeValue<?>> assignment: original.assignments.entrySet()) {
+            assignments.put(context.get(assignment.getKey()), context.get(assignment.getValue()));
+        }
+    }
+
+    public TypeSafeUpdateQueryImpl(TypeSafeQueryHelper helper) {
+        super(helper);
+    }
+
+    @Override
+    public Copyable copy(CopyContext context) {
+        return new TypeSafeUpdateQueryImpl(context, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T update(Class<T> entityClass) {
+        return bulkFrom(entityClass);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> OnGoingUpdateValue<T> set(T property) {
+        return new OnGoingUpdateValueImpl<>(toAssignedProperty(property));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <N extends Number> OnGoingUpdateValue<Number> set(N property) {
+        return new OnGoingUpdateValueImpl<>(toAssignedProperty(property));
+    }
+
+    /**
+     * Resolves the property data using the invocation queue, or the proxy
+     * in case a relation is set. The property must belong to the updated entity,
+     * embedded properties are allowed.
+     */
+    private TypeSafeQueryProxyData toAssignedProperty(Object property) {
+        TypeSafeQueryProxyData data = query.dequeueInvocation();
+        if (property instanceof TypeSafeQueryProxy) {
+            data = ((TypeSafeQueryProxy) property).getTypeSafeProxyData();
+        }
+        if (data == null) {
+            throw new IllegalArgumentException(String.format("The value [%s] is not a property of the updated entity, "
+                    + "use a getter of the updated entity proxy to set a value.", property));
+        }
+        if (data.getProxyType().isCollection()) {
+            throw new IllegalArgumentException(String.format("Collection [%s] can't be updated.", data));
+        }
+        TypeSafeQueryProxyData parent = data.getParent();
+        while (parent != null && parent.getProxyType().isComposite()) {
+            parent = parent.getParent();
+        }
+        if (parent == null || !parent.equals(getTarget())) {
+            throw new IllegalArgumentException(String.format("[%s] is not a property of the updated entity.", data));
+        }
+        if (data.getProxy() != null && data.getProxyType().isEntity()) {
+            // the relation is assigned, it must not be joined:
+            data.setJoinType(JoinType.None);
+        }
+        return data;
+    }
+
+    @Override
+    protected void appendStatement(HqlQueryValueImpl statement, HqlQueryBuilderParams params) {
+        if (assignments.isEmpty()) {
+            throw new IllegalStateException("No values were set in the update statement.");
+        }
+        statement.appendHql("update ").append(helper.getEntityName(getTarget().getPropertyType())).
+            append(" ").append(getTarget().getAlias()).append(" set ");
+        boolean first = true;
+        for(Entry<TypeSafeQueryProxyData, TypeSafeValue<?>> assignment: assignments.entrySet()) {
+            if (!first) {
+                statement.appendHql(", ");
+            }
+            first = false;
+            HqlQueryValue value = assignment.getValue().toHqlQueryValue(params);
+            statement.appendHql(assignment.getKey().getAlias()).append(" = ").append(value.getHql());
+            statement.addParams(value.getParams());
+        }
+    }
+
+    /**
+     * Completes the set-clause for the property.
+     */
+    private class OnGoingUpdateValueImpl<T> implements OnGoingUpdateValue<T>, DirectValueProvider<T> {
+        private final TypeSafeQueryProxyData property;
+
+        OnGoingUpdateValueImpl(TypeSafeQueryProxyData property) {
+            this.property = property;
+        }
+
+        /**
+         * Used when null is passed without a queued invocation, the empty value is set as null.
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public DirectTypeSafeValue<T> createEmptyDirectValue() {
+            return new DirectTypeSafeValue<>(query, (Class<T>) property.getPropertyType());
+        }
+
+        @Override
+        public TypeSafeUpdateQuery to(T value) {
+            return to(query.toValue(value, this));
+        }
+
+        @Override
+        public TypeSafeUpdateQuery to(TypeSafeValue<T> value) {
+            if (value instanceof DirectTypeSafeValue<?> && ((DirectTypeSafeValue<?>) value).getValue() == null) {
+                return toNull();
+            }
+            query.validateInScope(value, null);
+            assignments.put(property, value);
+            return TypeSafeUpdateQueryImpl.this;
+        }
+
+        @Override
+        public TypeSafeUpdateQuery toNull() {
+            assignments.put(property, new CustomTypeSafeValue<>(query, property.getPropertyType(), "null"));
+            return TypeSafeUpdateQueryImpl.this;
+        }
+    }
+
+}
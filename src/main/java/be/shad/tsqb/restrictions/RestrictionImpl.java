@@ -16,7 +16,14 @@
 package be.shad.tsqb.restrictions;
 
 import static be.shad.tsqb.restrictions.RestrictionOperator.EXISTS;
+import static be.shad.tsqb.restrictions.RestrictionOperator.IN;
 import static be.shad.tsqb.restrictions.RestrictionOperator.NOT_EXISTS;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import be.shad.tsqb.query.TypeSafeQueryInternal;
 import be.shad.tsqb.query.TypeSafeSubQuery;
 import be.shad.tsqb.query.copy.CopyContext;
@@ -29,6 +36,7 @@ import be.shad.tsqb.values.DirectTypeSafeValue;
 import be.shad.tsqb.values.HqlQueryBuilderParams;
 import be.shad.tsqb.values.HqlQueryValue;
 import be.shad.tsqb.values.HqlQueryValueImpl;
+import be.shad.tsqb.values.LiteralPolicy;
 import be.shad.tsqb.values.OperatorAwareValue;
 import be.shad.tsqb.values.TypeSafeValue;
 
@@ -47,6 +55,7 @@ import be.shad.tsqb.values.TypeSafeValue;
  * The rest requires both parts.
  */
 public class RestrictionImpl<VAL> implements Restriction, RestrictionGuard {
+    private static final Logger LOGGER = Logger.getLogger(RestrictionImpl.class.getName());
     
     private final RestrictionsGroupInternal group;
     private final TypeSafeQueryInternal query;
@@ -82,6 +91,10 @@ public class RestrictionImpl<VAL> implements Restriction, RestrictionGuard {
         this.operator = original.operator;
     }
 
+    public RestrictionOperator getOperator() {
+        return operator;
+    }
+
     public void setOperator(RestrictionOperator operator) {
         this.operator = operator;
     }
@@ -115,16 +128,12 @@ public class RestrictionImpl<VAL> implements Restriction, RestrictionGuard {
     
     @Override
     public HqlQueryValue toHqlQueryValue(HqlQueryBuilderParams params) {
+        if (right instanceof TypeSafeSubQuery<?> && params.isJoinableSubquery((TypeSafeSubQuery<?>) right)) {
+            return toJoinedSubqueryHqlQueryValue((TypeSafeSubQuery<?>) right, params);
+        }
         HqlQueryValueImpl value = new HqlQueryValueImpl();
         if( left != null ) {
-            HqlQueryValue hqlQueryValue;
-            if( leftSideRequiresLiterals() && !params.isRequiresLiterals()) {
-                boolean previous = params.setRequiresLiterals(true);
-                hqlQueryValue = left.toHqlQueryValue(params);
-                params.setRequiresLiterals(previous);
-            } else {
-                hqlQueryValue = left.toHqlQueryValue(params);
-            }
+            HqlQueryValue hqlQueryValue = toHqlQueryValue(left, right, leftSideRequiresLiterals(), params);
             value.appendHql(hqlQueryValue.getHql());
             value.addParams(hqlQueryValue.getParams());
         }
@@ -144,20 +153,46 @@ public class RestrictionImpl<VAL> implements Restriction, RestrictionGuard {
             }
         }
         if( right != null ) {
-            HqlQueryValue hqlQueryValue;
-            if( rightSideRequiresLiterals() && !params.isRequiresLiterals()) {
-                boolean previous = params.setRequiresLiterals(true);
-                hqlQueryValue = right.toHqlQueryValue(params);
-                params.setRequiresLiterals(previous);
-            } else {
-                hqlQueryValue = right.toHqlQueryValue(params);
-            }
+            HqlQueryValue hqlQueryValue = toHqlQueryValue(right, left, rightSideRequiresLiterals(), params);
             value.appendHql(hqlQueryValue.getHql());
             value.addParams(hqlQueryValue.getParams());
         }
         return value;
     }
     
+    /**
+     * Transforms the restriction on a subquery which is rewritten to an additional from
+     * of the parent query: 'in' becomes an equality with the selected identifier and
+     * 'exists' is left out, the restrictions of the subquery are added instead.
+     */
+    private HqlQueryValue toJoinedSubqueryHqlQueryValue(TypeSafeSubQuery<?> subquery, HqlQueryBuilderParams params) {
+        params.addJoinedSubquery(subquery);
+        TypeSafeQueryInternal subqueryInternal = (TypeSafeQueryInternal) subquery;
+        HqlQueryValueImpl value = new HqlQueryValueImpl();
+        if (operator == IN) {
+            HqlQueryValue leftValue = left.toHqlQueryValue(params);
+            HqlQueryValue selectedValue = subqueryInternal.getProjections().getProjections().
+                    getFirst().getValue().toHqlQueryValue(params);
+            value.appendHql(leftValue.getHql() + " = " + selectedValue.getHql());
+            value.addParams(leftValue.getParams());
+            value.addParams(selectedValue.getParams());
+        }
+        RestrictionsGroupImpl subqueryRestrictions = (RestrictionsGroupImpl) subqueryInternal.getRestrictions();
+        HqlQueryValue restrictions = subqueryRestrictions.toHqlQueryValue(params);
+        if (restrictions.getHql().length() > 0) {
+            if (value.getHql().length() > 0) {
+                value.appendHql(" and ");
+            }
+            if (subqueryRestrictions.getRestrictionNodes().size() > 1) {
+                value.appendHql("(" + restrictions.getHql() + ")");
+            } else {
+                value.appendHql(restrictions.getHql());
+            }
+            value.addParams(restrictions.getParams());
+        }
+        return value;
+    }
+
     /**
      * Adds a dummy 'select 1' to subqueries in case of exists/not exists.
      * This is the easiest way to allow validating the user selected value
@@ -178,6 +213,73 @@ public class RestrictionImpl<VAL> implements Restriction, RestrictionGuard {
         return this;
     }
 
+    /**
+     * Transforms one side of the restriction, as literal if it is required.
+     * When the literal is only required because the number type differs from the other side,
+     * the number is converted to the type of the other side instead, if the policy allows it.
+     */
+    private HqlQueryValue toHqlQueryValue(TypeSafeValue<VAL> value, TypeSafeValue<VAL> other,
+            boolean requiresLiterals, HqlQueryBuilderParams params) {
+        if( !requiresLiterals || params.isRequiresLiterals() ) {
+            return value.toHqlQueryValue(params);
+        }
+        if( query.getHelper().getLiteralPolicy() == LiteralPolicy.PARAMETERS_WHEN_POSSIBLE
+                && value instanceof DirectTypeSafeValue<?> && !(other instanceof CastTypeSafeValue<?>) ) {
+            Object number = ((DirectTypeSafeValue<?>) value).getValue();
+            Number converted = number instanceof Number ? convertNumber((Number) number, other.getValueClass()): null;
+            if( converted != null ) {
+                if( LOGGER.isLoggable(Level.FINE) ) {
+                    LOGGER.fine(String.format("Converted [%s] to [%s] to add it as named parameter.",
+                            number, other.getValueClass().getName()));
+                }
+                return new DirectTypeSafeValue<>(query, converted).toHqlQueryValue(params);
+            }
+        }
+        boolean previous = params.setRequiresLiterals(true);
+        HqlQueryValue hqlQueryValue = value.toHqlQueryValue(params);
+        params.setRequiresLiterals(previous);
+        return hqlQueryValue;
+    }
+
+    /**
+     * Converts the number to the number class,
+     * null if the class is not supported or the conversion would change the number.
+     */
+    private static Number convertNumber(Number number, Class<?> numberClass) {
+        BigDecimal decimal;
+        try {
+            decimal = new BigDecimal(number.toString());
+        } catch (NumberFormatException e) {
+            // NaN or infinite
+            return null;
+        }
+        Number converted;
+        if( Integer.class.equals(numberClass) ) {
+            converted = decimal.intValue();
+        } else if( Long.class.equals(numberClass) ) {
+            converted = decimal.longValue();
+        } else if( Short.class.equals(numberClass) ) {
+            converted = decimal.shortValue();
+        } else if( Byte.class.equals(numberClass) ) {
+            converted = decimal.byteValue();
+        } else if( Double.class.equals(numberClass) ) {
+            converted = decimal.doubleValue();
+        } else if( Float.class.equals(numberClass) ) {
+            converted = decimal.floatValue();
+        } else if( BigInteger.class.equals(numberClass) ) {
+            converted = decimal.toBigInteger();
+        } else if( BigDecimal.class.equals(numberClass) ) {
+            converted = decimal;
+        } else {
+            return null;
+        }
+        try {
+            return new BigDecimal(converted.toString()).compareTo(decimal) == 0 ? converted: null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * Hibernate will validate the left side parameter type is exactly
      * the same as the right side during the parameter binding phase for some reason
@@ -18,6 +18,7 @@ package be.shad.tsqb.restrictions;
 import static be.shad.tsqb.restrictions.RestrictionNodeType.And;
 import static be.shad.tsqb.restrictions.RestrictionNodeType.Or;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
@@ -104,6 +105,11 @@ public class RestrictionsGroupImpl extends RestrictionChainableImpl implements R
     public boolean isEmpty() {
         return restrictions.isEmpty();
     }
+
+    @Override
+    public Boolean getConstantValue() {
+        return new RestrictionsOptimizer(this).evaluate();
+    }
     
     @Override
     public RestrictionChainable where(HqlQueryValue restriction) {
@@ -152,9 +158,14 @@ public class RestrictionsGroupImpl extends RestrictionChainableImpl implements R
     
     /**
      * Loops the restrictions and links them together with ands and ors.
+     * The restrictions are simplified first if the query optimizes its restrictions.
      */
     @Override
     public HqlQueryValueImpl toHqlQueryValue(HqlQueryBuilderParams params) {
+        List<RestrictionNode> restrictions = this.restrictions;
+        if (query.isRestrictionsOptimized()) {
+            restrictions = new RestrictionsOptimizer(this).optimize();
+        }
         HqlQueryValueImpl value = new HqlQueryValueImpl();
         boolean hasValue = false;
         for(RestrictionNode item: restrictions) {
@@ -178,7 +189,7 @@ public class RestrictionsGroupImpl extends RestrictionChainableImpl implements R
                 }
             }
         }
-        if (!hasValue || !isAddBrackets()) {
+        if (!hasValue || !isAddBrackets(restrictions)) {
             return value;
         }
         return new HqlQueryValueImpl("(" + value.getHql() + ")", value.getParams());
@@ -194,7 +205,7 @@ public class RestrictionsGroupImpl extends RestrictionChainableImpl implements R
     /**
      * Evaluates brackets policy to decide whether to add brackets or not.
      */
-    private boolean isAddBrackets() {
+    private boolean isAddBrackets(List<RestrictionNode> restrictions) {
         switch (bracketsPolicy) {
             case WhenMoreThanOne: return restrictions.size() > 1;
             case Never:           return false;
@@ -399,6 +410,13 @@ public class RestrictionsGroupImpl extends RestrictionChainableImpl implements R
         return andNotExists(subquery);
     }
 
+    /**
+     * The restrictions in this group with the way they are chained.
+     */
+    public List<RestrictionNode> getRestrictionNodes() {
+        return Collections.unmodifiableList(restrictions);
+    }
+
     /**
      * Delegate the call to and().
      */
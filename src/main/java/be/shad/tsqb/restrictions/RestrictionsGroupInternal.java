@@ -38,5 +38,11 @@ public interface RestrictionsGroupInternal extends RestrictionsGroup, Restrictio
      * @return true if the group doesn't contain restrictions
      */
     boolean isEmpty();
+
+    /**
+     * @return true if the restrictions are always true, false if they are always false, 
+     *         null if it depends on the data, see {@link RestrictionsOptimizer}.
+     */
+    Boolean getConstantValue();
     
 }
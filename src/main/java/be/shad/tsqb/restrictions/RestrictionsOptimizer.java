@@ -0,0 +1,575 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.restrictions;
+
+import static be.shad.tsqb.restrictions.RestrictionNodeType.And;
+import static be.shad.tsqb.restrictions.RestrictionNodeType.Or;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.restrictions.predicate.RestrictionGuard;
+import be.shad.tsqb.values.CollectionTypeSafeValue;
+import be.shad.tsqb.values.CustomTypeSafeValue;
+import be.shad.tsqb.values.DirectTypeSafeValue;
+import be.shad.tsqb.values.ReferenceTypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValue;
+
+/**
+ * Simplifies the restrictions of a group before they are transformed to hql,
+ * see {@link be.shad.tsqb.query.TypeSafeQuery#setRestrictionsOptimized(boolean)}.
+ * <p>
+ * The restrictions are split into terms the way the hql is evaluated: the terms are or-ed
+ * and the restrictions of a term are and-ed. An empty term is always true, a group without 
+ * terms is always false. The terms are simplified as follows:
+ * <ul>
+ * <li>restrictions which are not applicable are left out, like when the hql is created.</li>
+ * <li>nested groups with one term are inlined in the term, nested groups which are the only
+ *     restriction of a term are replaced by their terms.</li>
+ * <li>restrictions comparing direct values are evaluated, true restrictions are left out
+ *     and terms with a false restriction are removed.</li>
+ * <li>duplicate restrictions in a term and duplicate terms are removed.</li>
+ * <li>number and date ranges on the same property are merged into the strictest bounds,
+ *     terms with contradicting bounds or equalities are removed.</li>
+ * <li>terms comparing the same property to a value are collapsed into one 'in' restriction.</li>
+ * </ul>
+ * The restrictions of the group are not modified, the simplified nodes 
+ * are created each time the group is transformed to hql.
+ */
+class RestrictionsOptimizer {
+    private final RestrictionsGroupImpl group;
+
+    RestrictionsOptimizer(RestrictionsGroupImpl group) {
+        this.group = group;
+    }
+
+    /**
+     * @return the nodes to transform to hql instead of the restriction nodes of the group.
+     */
+    List<RestrictionNode> optimize() {
+        List<List<Restriction>> terms = toTerms(group);
+        List<RestrictionNode> nodes = new ArrayList<>();
+        if (terms.isEmpty()) {
+            nodes.add(new RestrictionNode(createFalseRestriction(), null));
+            return nodes;
+        }
+        for(List<Restriction> term: terms) {
+            for(int i=0; i < term.size(); i++) {
+                RestrictionNodeType type = nodes.isEmpty() ? null: i == 0 ? Or: And;
+                nodes.add(new RestrictionNode(term.get(i), type));
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * @return true if the restrictions are always true, false if they are always false, null otherwise.
+     */
+    Boolean evaluate() {
+        List<List<Restriction>> terms = toTerms(group);
+        if (terms.isEmpty()) {
+            return false;
+        } else if (terms.size() == 1 && terms.get(0).isEmpty()) {
+            return true;
+        }
+        return null;
+    }
+
+    /**
+     * Splits the nodes into terms and simplifies them.
+     */
+    private List<List<Restriction>> toTerms(RestrictionsGroupImpl group) {
+        List<List<Restriction>> terms = new ArrayList<>();
+        List<Restriction> term = null;
+        for(RestrictionNode node: group.getRestrictionNodes()) {
+            Restriction restriction = node.getRestriction();
+            if (restriction instanceof RestrictionGuard 
+                    && !((RestrictionGuard) restriction).isRestrictionApplicable()) {
+                continue;
+            }
+            if (term == null || node.getType() == Or) {
+                term = new ArrayList<>();
+                terms.add(term);
+            }
+            term.add(restriction);
+        }
+        if (terms.isEmpty()) {
+            // nothing is restricted:
+            terms.add(new ArrayList<Restriction>());
+            return terms;
+        }
+
+        List<List<Restriction>> simplified = new ArrayList<>();
+        for(List<Restriction> original: terms) {
+            List<List<Restriction>> inlined = inlineGroups(original);
+            if (inlined == null) {
+                simplified.add(original);
+            } else {
+                simplified.addAll(inlined);
+            }
+        }
+        terms = new ArrayList<>();
+        for(List<Restriction> original: simplified) {
+            List<Restriction> simplifiedTerm = simplifyTerm(original);
+            if (simplifiedTerm == null) {
+                continue; // always false
+            }
+            if (simplifiedTerm.isEmpty()) {
+                // always true, the other terms don't matter:
+                terms.clear();
+                terms.add(simplifiedTerm);
+                return terms;
+            }
+            if (!containsTerm(terms, simplifiedTerm)) {
+                terms.add(simplifiedTerm);
+            }
+        }
+        return collapseEqualities(terms);
+    }
+
+    /**
+     * Inlines the nested groups of the term.
+     * 
+     * @return the terms replacing the term, null if the term is not modified.
+     */
+    private List<List<Restriction>> inlineGroups(List<Restriction> term) {
+        boolean modified = false;
+        List<Restriction> inlined = new ArrayList<>(term.size());
+        for(Restriction restriction: term) {
+            if (!(restriction instanceof RestrictionsGroupImpl)) {
+                inlined.add(restriction);
+                continue;
+            }
+            List<List<Restriction>> nestedTerms = toTerms((RestrictionsGroupImpl) restriction);
+            if (nestedTerms.isEmpty()) {
+                // the term is always false:
+                return new ArrayList<>();
+            } else if (nestedTerms.size() == 1) {
+                inlined.addAll(nestedTerms.get(0));
+                modified = true;
+            } else if (term.size() == 1) {
+                return nestedTerms;
+            } else {
+                inlined.add(restriction);
+            }
+        }
+        if (!modified) {
+            return null;
+        }
+        List<List<Restriction>> terms = new ArrayList<>();
+        terms.add(inlined);
+        return terms;
+    }
+
+    /**
+     * Removes the duplicate and the always true restrictions, merges the ranges.
+     * 
+     * @return the simplified term, null if the term is always false.
+     */
+    private List<Restriction> simplifyTerm(List<Restriction> term) {
+        List<Restriction> simplified = new ArrayList<>(term.size());
+        for(Restriction restriction: term) {
+            Boolean constant = evaluate(restriction);
+            if (Boolean.FALSE.equals(constant)) {
+                return null;
+            }
+            if (constant == null && !containsRestriction(simplified, restriction)) {
+                simplified.add(restriction);
+            }
+        }
+        return mergeRanges(simplified);
+    }
+
+    /**
+     * Keeps the strictest lower and upper bound per property, or only the equality
+     * if the property is compared to a value with equals.
+     * 
+     * @return the term without the redundant bounds, null if the bounds contradict.
+     */
+    private List<Restriction> mergeRanges(List<Restriction> term) {
+        Map<TypeSafeQueryProxyData, Range> ranges = new LinkedHashMap<>();
+        for(Restriction restriction: term) {
+            Comparable<Object> value = getRangeValue(restriction);
+            if (value != null) {
+                TypeSafeQueryProxyData property = ((ReferenceTypeSafeValue<?>) 
+                        ((RestrictionImpl<?>) restriction).getLeft()).getData();
+                Range range = ranges.get(property);
+                if (range == null) {
+                    range = new Range(value.getClass());
+                    ranges.put(property, range);
+                }
+                if (!range.add((RestrictionImpl<?>) restriction, value)) {
+                    return null;
+                }
+            }
+        }
+        Set<Restriction> redundant = Collections.newSetFromMap(new IdentityHashMap<Restriction, Boolean>());
+        for(Range range: ranges.values()) {
+            if (range.isMixed()) {
+                continue;
+            }
+            if (range.isContradicting()) {
+                return null;
+            }
+            redundant.addAll(range.getRedundantRestrictions());
+        }
+        if (redundant.isEmpty()) {
+            return term;
+        }
+        List<Restriction> merged = new ArrayList<>(term.size());
+        for(Restriction restriction: term) {
+            if (!redundant.contains(restriction)) {
+                merged.add(restriction);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Collapses the terms which only compare a property to values with equals,
+     * or with in, into one term with an in restriction.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private List<List<Restriction>> collapseEqualities(List<List<Restriction>> terms) {
+        Map<TypeSafeQueryProxyData, List<Integer>> equalityTerms = new LinkedHashMap<>();
+        for(int i=0; i < terms.size(); i++) {
+            TypeSafeQueryProxyData property = getEqualityProperty(terms.get(i));
+            if (property != null) {
+                List<Integer> indexes = equalityTerms.get(property);
+                if (indexes == null) {
+                    indexes = new ArrayList<>();
+                    equalityTerms.put(property, indexes);
+                }
+                indexes.add(i);
+            }
+        }
+        List<List<Restriction>> collapsed = new ArrayList<>(terms);
+        for(List<Integer> indexes: equalityTerms.values()) {
+            if (indexes.size() < 2) {
+                continue;
+            }
+            Class<?> valueClass = null;
+            Set<Object> values = new LinkedHashSet<>();
+            for(Integer index: indexes) {
+                RestrictionImpl<?> restriction = (RestrictionImpl<?>) terms.get(index).get(0);
+                TypeSafeValue<?> right = restriction.getRight();
+                Class<?> rightValueClass = right.getValueClass();
+                if (valueClass != null && !valueClass.equals(rightValueClass)) {
+                    valueClass = null;
+                    break;
+                }
+                valueClass = rightValueClass;
+                if (right instanceof DirectTypeSafeValue) {
+                    values.add(((DirectTypeSafeValue<?>) right).getValue());
+                } else {
+                    values.addAll(((CollectionTypeSafeValue<?>) right).getValues());
+                }
+            }
+            if (valueClass == null) {
+                continue; // different value types, leave them as they are.
+            }
+            RestrictionImpl<?> first = (RestrictionImpl<?>) terms.get(indexes.get(0)).get(0);
+            CollectionTypeSafeValue in = new CollectionTypeSafeValue(group.getQuery(), valueClass, values);
+            List<Restriction> term = new ArrayList<>(1);
+            term.add(new RestrictionImpl(group, null, first.getLeft(), RestrictionOperator.IN, in));
+            collapsed.set(indexes.get(0), term);
+            for(int i=1; i < indexes.size(); i++) {
+                collapsed.set(indexes.get(i), null);
+            }
+        }
+        List<List<Restriction>> result = new ArrayList<>(collapsed.size());
+        for(List<Restriction> term: collapsed) {
+            if (term != null) {
+                result.add(term);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the property if the term only compares it to values with equals or in.
+     */
+    private TypeSafeQueryProxyData getEqualityProperty(List<Restriction> term) {
+        if (term.size() != 1 || !(term.get(0) instanceof RestrictionImpl)) {
+            return null;
+        }
+        RestrictionImpl<?> restriction = (RestrictionImpl<?>) term.get(0);
+        if (!(restriction.getLeft() instanceof ReferenceTypeSafeValue)) {
+            return null;
+        }
+        TypeSafeValue<?> right = restriction.getRight();
+        boolean equality = restriction.getOperator() == RestrictionOperator.EQUAL 
+                && right instanceof DirectTypeSafeValue && ((DirectTypeSafeValue<?>) right).getValue() != null
+                || restriction.getOperator() == RestrictionOperator.IN 
+                && right instanceof CollectionTypeSafeValue && ((CollectionTypeSafeValue<?>) right).getValues() != null;
+        if (!equality) {
+            return null;
+        }
+        return ((ReferenceTypeSafeValue<?>) restriction.getLeft()).getData();
+    }
+
+    /**
+     * @return the value if the restriction compares a property to a number or date value, null otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private Comparable<Object> getRangeValue(Restriction restriction) {
+        if (!(restriction instanceof RestrictionImpl)) {
+            return null;
+        }
+        RestrictionImpl<?> impl = (RestrictionImpl<?>) restriction;
+        if (impl.getOperator() == null || !(impl.getLeft() instanceof ReferenceTypeSafeValue) 
+                || !(impl.getRight() instanceof DirectTypeSafeValue)) {
+            return null;
+        }
+        switch (impl.getOperator()) {
+            case EQUAL:
+            case LESS_THAN:
+            case LESS_THAN_EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_EQUAL:
+                Object value = ((DirectTypeSafeValue<?>) impl.getRight()).getValue();
+                if (value instanceof Comparable && (value instanceof Number || value instanceof Date)) {
+                    return (Comparable<Object>) value;
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return whether the restriction is always true or false, null if it depends on the data.
+     */
+    @SuppressWarnings("unchecked")
+    private Boolean evaluate(Restriction restriction) {
+        if (!(restriction instanceof RestrictionImpl)) {
+            return null;
+        }
+        RestrictionImpl<?> impl = (RestrictionImpl<?>) restriction;
+        if (impl.getOperator() == null || !(impl.getLeft() instanceof DirectTypeSafeValue)) {
+            return null;
+        }
+        Object left = ((DirectTypeSafeValue<?>) impl.getLeft()).getValue();
+        if (left == null) {
+            return null;
+        }
+        switch (impl.getOperator()) {
+            case IS_NULL: return false;
+            case IS_NOT_NULL: return true;
+            default:
+        }
+        if (!(impl.getRight() instanceof DirectTypeSafeValue)) {
+            return null;
+        }
+        Object right = ((DirectTypeSafeValue<?>) impl.getRight()).getValue();
+        if (right == null || !left.getClass().equals(right.getClass()) || !(left instanceof Comparable)) {
+            return null;
+        }
+        int compare = ((Comparable<Object>) left).compareTo(right);
+        switch (impl.getOperator()) {
+            case EQUAL: return compare == 0;
+            case NOT_EQUAL: return compare != 0;
+            case LESS_THAN: return compare < 0;
+            case LESS_THAN_EQUAL: return compare <= 0;
+            case GREATER_THAN: return compare > 0;
+            case GREATER_THAN_EQUAL: return compare >= 0;
+            default: return null;
+        }
+    }
+
+    private boolean containsTerm(List<List<Restriction>> terms, List<Restriction> term) {
+        for(List<Restriction> existing: terms) {
+            if (existing.size() == term.size()) {
+                boolean same = true;
+                for(int i=0; same && i < term.size(); i++) {
+                    same = isSameRestriction(existing.get(i), term.get(i));
+                }
+                if (same) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean containsRestriction(List<Restriction> restrictions, Restriction restriction) {
+        for(Restriction existing: restrictions) {
+            if (isSameRestriction(existing, restriction)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSameRestriction(Restriction a, Restriction b) {
+        if (a == b) {
+            return true;
+        }
+        if (!(a instanceof RestrictionImpl) || !(b instanceof RestrictionImpl)) {
+            return false;
+        }
+        RestrictionImpl<?> implA = (RestrictionImpl<?>) a;
+        RestrictionImpl<?> implB = (RestrictionImpl<?>) b;
+        return implA.getOperator() == implB.getOperator() 
+                && isSameValue(implA.getLeft(), implB.getLeft())
+                && isSameValue(implA.getRight(), implB.getRight());
+    }
+
+    /**
+     * Values are the same if they reference the same property or if they are equal direct values.
+     */
+    private boolean isSameValue(TypeSafeValue<?> a, TypeSafeValue<?> b) {
+        if (a == b) {
+            return true;
+        }
+        if (a instanceof ReferenceTypeSafeValue && b instanceof ReferenceTypeSafeValue) {
+            return ((ReferenceTypeSafeValue<?>) a).getData() == ((ReferenceTypeSafeValue<?>) b).getData();
+        }
+        if (a instanceof DirectTypeSafeValue && b instanceof DirectTypeSafeValue) {
+            Object valueA = ((DirectTypeSafeValue<?>) a).getValue();
+            return valueA != null && a.getValueClass().equals(b.getValueClass())
+                    && valueA.equals(((DirectTypeSafeValue<?>) b).getValue());
+        }
+        if (a instanceof CollectionTypeSafeValue && b instanceof CollectionTypeSafeValue) {
+            Collection<?> valuesA = ((CollectionTypeSafeValue<?>) a).getValues();
+            Collection<?> valuesB = ((CollectionTypeSafeValue<?>) b).getValues();
+            return valuesA != null && valuesB != null && a.getValueClass().equals(b.getValueClass())
+                    && new ArrayList<>(valuesA).equals(new ArrayList<>(valuesB));
+        }
+        return false;
+    }
+
+    private Restriction createFalseRestriction() {
+        TypeSafeValue<Object> value = new CustomTypeSafeValue<Object>(group.getQuery(), Object.class, "1 = 0");
+        return new RestrictionImpl<>(group, null, value, null, null);
+    }
+
+    /**
+     * The bounds of a property in a term.
+     */
+    private static class Range {
+        private final Class<?> valueClass;
+        private final List<Restriction> restrictions = new ArrayList<>();
+        private boolean mixed;
+        private RestrictionImpl<?> lower;
+        private Comparable<Object> lowerValue;
+        private RestrictionImpl<?> upper;
+        private Comparable<Object> upperValue;
+        private RestrictionImpl<?> equal;
+        private Comparable<Object> equalValue;
+
+        Range(Class<?> valueClass) {
+            this.valueClass = valueClass;
+        }
+
+        /**
+         * @return false if the restriction contradicts an earlier equality.
+         */
+        boolean add(RestrictionImpl<?> restriction, Comparable<Object> value) {
+            restrictions.add(restriction);
+            if (!valueClass.equals(value.getClass())) {
+                mixed = true;
+                return true;
+            }
+            switch (restriction.getOperator()) {
+                case EQUAL:
+                    if (equal != null && equalValue.compareTo(value) != 0) {
+                        return false;
+                    }
+                    equal = restriction;
+                    equalValue = value;
+                    break;
+                case GREATER_THAN:
+                case GREATER_THAN_EQUAL:
+                    int lowerCompare = lower == null ? 1: value.compareTo(lowerValue);
+                    if (lowerCompare > 0 || lowerCompare == 0 && isStrict(restriction)) {
+                        lower = restriction;
+                        lowerValue = value;
+                    }
+                    break;
+                default:
+                    int upperCompare = upper == null ? -1: value.compareTo(upperValue);
+                    if (upperCompare < 0 || upperCompare == 0 && isStrict(restriction)) {
+                        upper = restriction;
+                        upperValue = value;
+                    }
+            }
+            return true;
+        }
+
+        private static boolean isStrict(RestrictionImpl<?> restriction) {
+            return restriction.getOperator() == RestrictionOperator.GREATER_THAN
+                    || restriction.getOperator() == RestrictionOperator.LESS_THAN;
+        }
+
+        /**
+         * Values of different types are not compared.
+         */
+        boolean isMixed() {
+            return mixed;
+        }
+
+        boolean isContradicting() {
+            if (equal != null) {
+                return !isInRange(equalValue);
+            }
+            if (lower != null && upper != null) {
+                int compare = lowerValue.compareTo(upperValue);
+                return compare > 0 || compare == 0 && (isStrict(lower) || isStrict(upper));
+            }
+            return false;
+        }
+
+        private boolean isInRange(Comparable<Object> value) {
+            if (lower != null) {
+                int compare = value.compareTo(lowerValue);
+                if (compare < 0 || compare == 0 && isStrict(lower)) {
+                    return false;
+                }
+            }
+            if (upper != null) {
+                int compare = value.compareTo(upperValue);
+                if (compare > 0 || compare == 0 && isStrict(upper)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the restrictions which are implied by the remaining restrictions.
+         */
+        List<Restriction> getRedundantRestrictions() {
+            List<Restriction> redundant = new ArrayList<>();
+            for(Restriction restriction: restrictions) {
+                if (equal != null ? restriction != equal: restriction != lower && restriction != upper) {
+                    redundant.add(restriction);
+                }
+            }
+            return redundant;
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+
+import org.hibernate.transform.BasicTransformerAdapter;
+
+/**
+ * Creates the results by invoking a constructor or a static factory method with the
+ * selected values as arguments, in the order in which they were selected.
+ * <p>
+ * The invoker is looked up once per dto class and argument classes, see
+ * {@link SelectionDtoAccessor#getConstructorInvoker(Class[])}. The tuple is passed
+ * to it as is, so the result is the only object created per row.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class ConstructorQueryResultTransformer extends BasicTransformerAdapter implements ExecutionScopedResultTransformer {
+    private static final long serialVersionUID = -2281375017380862203L;
+
+    private final MethodHandle invoker;
+    private final SelectionValueTransformer[] transformers;
+
+    /**
+     * @param invoker a handle of type (Object[])Object.
+     */
+    public ConstructorQueryResultTransformer(MethodHandle invoker, 
+            List<SelectionValueTransformer<?, ?>> transformers) {
+        this.invoker = invoker;
+        this.transformers = transformers.toArray(new SelectionValueTransformer[transformers.size()]);
+    }
+
+    @Override
+    public Object transformTuple(Object[] tuple, String[] aliases) {
+        for(int i=0; i < tuple.length; i++) {
+            if (transformers[i] != null) {
+                tuple[i] = transformers[i].convert(tuple[i]);
+            }
+        }
+        try {
+            return (Object) invoker.invokeExact(tuple);
+        } catch (Throwable e) {
+            throw SelectionDtoAccessor.rethrow(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beginExecution() {
+        endExecution();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void endExecution() {
+        MemoizingSelectionValueTransformer.clearCaches(transformers);
+    }
+
+    @Override
+    public List transformList(List list) {
+        endExecution();
+        return list;
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection;
+
+import org.hibernate.transform.ResultTransformer;
+
+/**
+ * A result transformer which keeps state for the execution it is transforming the rows of,
+ * per thread. The dao calls {@link #beginExecution()} before the rows are transformed and
+ * {@link #endExecution()} in a finally block afterwards, so the state of an execution which
+ * failed halfway doesn't leak into the next execution on the same thread.
+ */
+public interface ExecutionScopedResultTransformer extends ResultTransformer {
+
+    /**
+     * Starts the transformation of the rows of an execution on the current thread,
+     * discarding the state left behind by an execution which didn't complete.
+     */
+    void beginExecution();
+
+    /**
+     * Releases the state of the execution on the current thread.
+     */
+    void endExecution();
+
+}
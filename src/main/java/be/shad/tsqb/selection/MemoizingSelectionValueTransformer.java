@@ -0,0 +1,103 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Converts each distinct value once per execution and reuses the converted value,
+ * for columns with few distinct values which are expensive to convert (parsing a date for example).
+ * The rows with the same value share the same converted instance.
+ * <p>
+ * The cache is kept per thread and is cleared by the result transformer when an execution
+ * begins and ends, see {@link ExecutionScopedResultTransformer}, also when it failed halfway.
+ * It is bounded: when it is full, the least recently used value is evicted.
+ * <p>
+ * Example:
+ * <pre>
+ * dto.setDate(query.select(Date.class, entity.getDateString(), 
+ *      MemoizingSelectionValueTransformer.memoize(new StringToDateTransformer(format))));
+ * </pre>
+ */
+public class MemoizingSelectionValueTransformer<A, B> implements SelectionValueTransformer<A, B> {
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private final SelectionValueTransformer<A, B> delegate;
+    private final int maxSize;
+    private final ThreadLocal<Map<A, B>> caches = new ThreadLocal<Map<A, B>>() {
+        @Override
+        protected Map<A, B> initialValue() {
+            return new LinkedHashMap<A, B>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Entry<A, B> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+    };
+
+    public MemoizingSelectionValueTransformer(SelectionValueTransformer<A, B> delegate, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The max size of the cache must be positive: " + maxSize);
+        }
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Memoizes the transformer with a cache of {@link #DEFAULT_MAX_SIZE} values.
+     */
+    public static <A, B> MemoizingSelectionValueTransformer<A, B> memoize(SelectionValueTransformer<A, B> delegate) {
+        return new MemoizingSelectionValueTransformer<>(delegate, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Returns the cached converted value, or converts the value and caches it.
+     */
+    @Override
+    public B convert(A a) throws SelectionValueTransformerException {
+        Map<A, B> cache = caches.get();
+        B converted = cache.get(a);
+        if (converted == null && !cache.containsKey(a)) {
+            converted = delegate.convert(a);
+            cache.put(a, converted);
+        }
+        return converted;
+    }
+
+    /**
+     * Clears the cache of the current thread, called when an execution begins and ends.
+     */
+    public void clear() {
+        caches.remove();
+    }
+
+    /**
+     * Clears the caches of the memoizing transformers in the array, skipping other transformers.
+     */
+    public static void clearCaches(SelectionValueTransformer<?, ?>[] transformers) {
+        for(SelectionValueTransformer<?, ?> transformer: transformers) {
+            if (transformer instanceof MemoizingSelectionValueTransformer) {
+                ((MemoizingSelectionValueTransformer<?, ?>) transformer).clear();
+            }
+        }
+    }
+
+}
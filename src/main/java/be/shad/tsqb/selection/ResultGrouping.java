@@ -0,0 +1,36 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection;
+
+/**
+ * How rows are grouped into one result when collection values are selected,
+ * see {@link be.shad.tsqb.query.TypeSafeRootQuery#selectCollectionValues}.
+ * Rows are grouped when the same values are selected into the result dto.
+ */
+public enum ResultGrouping {
+    /**
+     * Consecutive rows are grouped, the query should be ordered by the values of the 
+     * result dto. Only the last result is remembered, so the results can be streamed.
+     */
+    Consecutive,
+
+    /**
+     * Rows are grouped using a hash map of all results by their values,
+     * for queries which are not ordered by the values of the result dto.
+     */
+    Hashed
+    
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Method handles to create a selection dto and to get and set its fields.
+ * <p>
+ * The handles are looked up once per dto class and shared by all result transformers
+ * selecting into the class, so transforming a tuple doesn't go through reflection.
+ * <p>
+ * Primitive fields are written by a handle taking the primitive value, the selected
+ * value is unboxed by a primitive specific method which allows the same widening 
+ * conversions as {@link Field#set(Object, Object)} without allocating.
+ * <p>
+ * Immutable dtos are created by invoking a constructor or a static factory method
+ * with all selected values at once, see {@link #getConstructorInvoker(Class[])}.
+ */
+public final class SelectionDtoAccessor {
+    private static final ClassValue<SelectionDtoAccessor> ACCESSORS = new ClassValue<SelectionDtoAccessor>() {
+        @Override
+        protected SelectionDtoAccessor computeValue(Class<?> dtoClass) {
+            return new SelectionDtoAccessor(dtoClass);
+        }
+    };
+
+    private static final MethodType CONSTRUCTOR_TYPE = methodType(Object.class);
+    private static final MethodType GETTER_TYPE = methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = methodType(void.class, Object.class, Object.class);
+    private static final MethodHandle FIELD_SET;
+    private static final Map<Class<?>, MethodHandle> UNBOXERS = new HashMap<>();
+    static {
+        try {
+            Lookup lookup = MethodHandles.lookup();
+            FIELD_SET = lookup.findVirtual(Field.class, "set", SETTER_TYPE);
+            for(Class<?> primitive: new Class<?>[] { boolean.class, byte.class, char.class, 
+                    short.class, int.class, long.class, float.class, double.class }) {
+                String name = "unbox" + Character.toUpperCase(primitive.getName().charAt(0)) 
+                        + primitive.getName().substring(1);
+                UNBOXERS.put(primitive, lookup.findStatic(SelectionDtoAccessor.class, 
+                        name, methodType(primitive, Object.class)));
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<?> dtoClass;
+    private final ConcurrentMap<Field, MethodHandle> getters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Field, MethodHandle> setters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, MethodHandle> invokers = new ConcurrentHashMap<>();
+    private volatile MethodHandle constructor;
+
+    private SelectionDtoAccessor(Class<?> dtoClass) {
+        this.dtoClass = dtoClass;
+    }
+
+    /**
+     * @return the cached accessor of the dto class.
+     */
+    public static SelectionDtoAccessor forClass(Class<?> dtoClass) {
+        return ACCESSORS.get(dtoClass);
+    }
+
+    public Class<?> getDtoClass() {
+        return dtoClass;
+    }
+
+    /**
+     * Creates a new instance of the dto using its no-args constructor.
+     */
+    public Object newInstance() {
+        MethodHandle constructor = this.constructor;
+        if (constructor == null) {
+            constructor = this.constructor = lookupConstructor();
+        }
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * @return a handle of type (Object)Object which gets the value of the field.
+     */
+    public MethodHandle getGetter(Field field) {
+        MethodHandle getter = getters.get(field);
+        if (getter == null) {
+            try {
+                field.setAccessible(true);
+                getter = MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(String.format("Field [%s] of [%s] can't be read.", 
+                        field.getName(), dtoClass.getName()), e);
+            }
+            getters.putIfAbsent(field, getter);
+        }
+        return getter;
+    }
+
+    /**
+     * @return a handle of type (Object, Object)void which sets the value of the field.
+     */
+    public MethodHandle getSetter(Field field) {
+        MethodHandle setter = setters.get(field);
+        if (setter == null) {
+            field.setAccessible(true);
+            try {
+                setter = MethodHandles.lookup().unreflectSetter(field);
+                if (field.getType().isPrimitive()) {
+                    setter = MethodHandles.filterArguments(setter, 1, UNBOXERS.get(field.getType()));
+                }
+                setter = setter.asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                // final fields can only be set using reflection
+                setter = FIELD_SET.bindTo(field);
+            }
+            setters.putIfAbsent(field, setter);
+        }
+        return setter;
+    }
+
+    /**
+     * Looks up the constructor of the dto which accepts arguments of the given classes,
+     * an argument class may be null if it is not known. 
+     * 
+     * @return a handle of type (Object[])Object which invokes the constructor with the array 
+     *         as arguments, primitive arguments are unboxed the same way as when they are set.
+     * @throws IllegalArgumentException if no constructor or more than one constructor matches.
+     */
+    public MethodHandle getConstructorInvoker(Class<?>[] argumentClasses) {
+        return getInvoker(null, argumentClasses);
+    }
+
+    /**
+     * Looks up the static method of the dto class with the given name which accepts
+     * arguments of the given classes, an argument class may be null if it is not known. 
+     * 
+     * @return a handle of type (Object[])Object which invokes the method with the array 
+     *         as arguments, primitive arguments are unboxed the same way as when they are set.
+     * @throws IllegalArgumentException if no method or more than one method matches.
+     */
+    public MethodHandle getFactoryInvoker(String methodName, Class<?>[] argumentClasses) {
+        if (methodName == null) {
+            throw new IllegalArgumentException("The factory method name is required.");
+        }
+        return getInvoker(methodName, argumentClasses);
+    }
+
+    private MethodHandle getInvoker(String methodName, Class<?>[] argumentClasses) {
+        String key = methodName + Arrays.toString(argumentClasses);
+        MethodHandle invoker = invokers.get(key);
+        if (invoker == null) {
+            invoker = lookupInvoker(methodName, argumentClasses);
+            invokers.putIfAbsent(key, invoker);
+        }
+        return invoker;
+    }
+
+    private MethodHandle lookupInvoker(String methodName, Class<?>[] argumentClasses) {
+        String description = methodName == null ? "constructor": "factory method " + methodName;
+        List<AccessibleObject> candidates = new ArrayList<>();
+        if (methodName == null) {
+            for(Constructor<?> constructor: dtoClass.getDeclaredConstructors()) {
+                if (isInvokableWith(constructor.getParameterTypes(), argumentClasses)) {
+                    candidates.add(constructor);
+                }
+            }
+        } else {
+            for(Method method: dtoClass.getDeclaredMethods()) {
+                if (method.getName().equals(methodName) && Modifier.isStatic(method.getModifiers())
+                        && !void.class.equals(method.getReturnType())
+                        && isInvokableWith(method.getParameterTypes(), argumentClasses)) {
+                    candidates.add(method);
+                }
+            }
+        }
+        if (candidates.size() != 1) {
+            throw new IllegalArgumentException(String.format("Expected exactly one %s of [%s] accepting %s, found %s.", 
+                    description, dtoClass.getName(), Arrays.toString(argumentClasses), candidates));
+        }
+        AccessibleObject candidate = candidates.get(0);
+        candidate.setAccessible(true);
+        MethodHandle invoker;
+        try {
+            if (candidate instanceof Constructor) {
+                invoker = MethodHandles.lookup().unreflectConstructor((Constructor<?>) candidate);
+            } else {
+                invoker = MethodHandles.lookup().unreflect((Method) candidate);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(String.format("The %s of [%s] can't be invoked.", 
+                    description, dtoClass.getName()), e);
+        }
+        for(int i=0; i < argumentClasses.length; i++) {
+            Class<?> parameterType = invoker.type().parameterType(i);
+            if (parameterType.isPrimitive()) {
+                invoker = MethodHandles.filterArguments(invoker, i, UNBOXERS.get(parameterType));
+            }
+        }
+        return invoker.asType(MethodType.genericMethodType(argumentClasses.length))
+                .asSpreader(Object[].class, argumentClasses.length);
+    }
+
+    /**
+     * Checks the parameter types against the argument classes, primitives match their wrapper.
+     */
+    private static boolean isInvokableWith(Class<?>[] parameterTypes, Class<?>[] argumentClasses) {
+        if (parameterTypes.length != argumentClasses.length) {
+            return false;
+        }
+        for(int i=0; i < parameterTypes.length; i++) {
+            if (argumentClasses[i] != null && !methodType(parameterTypes[i]).wrap().returnType().isAssignableFrom(
+                    methodType(argumentClasses[i]).wrap().returnType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MethodHandle lookupConstructor() {
+        try {
+            Constructor<?> constructor = dtoClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(String.format("The selection dto [%s] "
+                    + "doesn't have an accessible no-args constructor.", dtoClass.getName()), e);
+        }
+    }
+
+    /*
+     * Unboxing with the widening conversions allowed by Field#set,
+     * the exact wrapper type is checked first because it is the common case.
+     */
+
+    static boolean unboxBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw unboxException(value, boolean.class);
+    }
+
+    static byte unboxByte(Object value) {
+        if (value instanceof Byte) {
+            return (Byte) value;
+        }
+        throw unboxException(value, byte.class);
+    }
+
+    static char unboxChar(Object value) {
+        if (value instanceof Character) {
+            return (Character) value;
+        }
+        throw unboxException(value, char.class);
+    }
+
+    static short unboxShort(Object value) {
+        if (value instanceof Short) {
+            return (Short) value;
+        } else if (value instanceof Byte) {
+            return (Byte) value;
+        }
+        throw unboxException(value, short.class);
+    }
+
+    static int unboxInt(Object value) {
+        if (value instanceof Integer) {
+            return (Integer) value;
+        } else if (value instanceof Short || value instanceof Byte) {
+            return ((Number) value).intValue();
+        } else if (value instanceof Character) {
+            return (Character) value;
+        }
+        throw unboxException(value, int.class);
+    }
+
+    static long unboxLong(Object value) {
+        if (value instanceof Long) {
+            return (Long) value;
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Character) {
+            return (Character) value;
+        }
+        throw unboxException(value, long.class);
+    }
+
+    static float unboxFloat(Object value) {
+        if (value instanceof Float) {
+            return (Float) value;
+        } else if (value instanceof Long || value instanceof Integer 
+                || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).floatValue();
+        } else if (value instanceof Character) {
+            return (Character) value;
+        }
+        throw unboxException(value, float.class);
+    }
+
+    static double unboxDouble(Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        } else if (value instanceof Float || value instanceof Long || value instanceof Integer 
+                || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Character) {
+            return (Character) value;
+        }
+        throw unboxException(value, double.class);
+    }
+
+    private static IllegalArgumentException unboxException(Object value, Class<?> primitive) {
+        return new IllegalArgumentException(String.format("Can't set [%s] on a field of type [%s].", 
+                value == null ? null: value.getClass().getName(), primitive));
+    }
+
+    /**
+     * Handles are invoked with invokeExact, which declares Throwable.
+     * Runtime exceptions and errors are rethrown as they are.
+     */
+    static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new RuntimeException(e);
+    }
+
+}
@@ -15,30 +15,42 @@
  */
 package be.shad.tsqb.selection;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
+import java.util.Collection;
 import java.util.LinkedHashMap;
-import java.util.Map.Entry;
 
 /**
- * Tree of values created once per query.
+ * Tree of the selected dto types, created once per query.
  * <p>
- * Call populate per tuple to create the values, so they are available without further 
- * if-logic for performance when selecting many rows.
- * <p>
- * Works together with TypeSafeQueryResultTransformer in order to select nested values fast.
+ * Works together with TypeSafeQueryResultTransformer in order to select nested values fast,
+ * the transformer flattens the tree so each tuple is transformed in a single pass.
+ * The dtos are created and their fields are accessed using the method handles
+ * of the {@link SelectionDtoAccessor}.
  */
 public class SelectionTree {
     private final LinkedHashMap<Field, SelectionTree> subtrees = new LinkedHashMap<>();
     private final Class<?> resultType;
-    private Object value;
+    private final SelectionDtoAccessor accessor;
+    // handles to get and set the value of this tree on the parent value:
+    private MethodHandle getter;
+    private MethodHandle setter;
 
     public SelectionTree(Class<?> resultType) {
         this.resultType = resultType;
+        this.accessor = SelectionDtoAccessor.forClass(resultType);
     }
     
     public Class<?> getResultType() {
         return resultType;
     }
+
+    /**
+     * @return the accessor of the result type.
+     */
+    public SelectionDtoAccessor getAccessor() {
+        return accessor;
+    }
     
     /**
      * Add a property path to the tree, if it wasn't added before.
@@ -48,34 +60,35 @@ public class SelectionTree {
         Field field = getField(resultType, property);
         SelectionTree subtree = subtrees.get(field);
         if( subtree == null ) {
-            field.setAccessible(true);
             subtree = new SelectionTree(field.getType());
+            subtree.getter = accessor.getGetter(field);
+            subtree.setter = accessor.getSetter(field);
             subtrees.put(field, subtree);
         }
         return subtree;
     }
     
     /**
-     * Sets the value object to a new value and creates sets its subobjects if they were part of the projections.
+     * @return the subtrees, in the order in which they were added.
      */
-    public void populate(Object value) throws IllegalArgumentException, IllegalAccessException, InstantiationException {
-        this.value = value;
-        for(Entry<Field, SelectionTree> entry: subtrees.entrySet()) {
-            Field field = entry.getKey();
-            Object object = field.get(value);
-            if( object == null ) {
-                object = field.getType().newInstance();
-                field.set(value, object);
-            }
-            entry.getValue().populate(object);
-        }
+    public Collection<SelectionTree> getSubtrees() {
+        return subtrees.values();
     }
-    
+
+    /**
+     * @return a handle of type (Object)Object to get the value of this tree 
+     *         from the parent value, null for the root of the tree.
+     */
+    public MethodHandle getGetter() {
+        return getter;
+    }
+
     /**
-     * The current object which can be populated/projected onto.
+     * @return a handle of type (Object, Object)void to set the value of this tree 
+     *         on the parent value, null for the root of the tree.
      */
-    public Object getValue() {
-        return value;
+    public MethodHandle getSetter() {
+        return setter;
     }
     
     /**
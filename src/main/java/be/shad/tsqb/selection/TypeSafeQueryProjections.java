@@ -15,6 +15,7 @@
  */
 package be.shad.tsqb.selection;
 
+import java.lang.invoke.MethodHandle;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.LinkedList;
@@ -45,6 +46,10 @@ public class TypeSafeQueryProjections implements HqlQueryBuilder {
     private final Deque<TypeSafeValueProjection> projections = new LinkedList<>();
     private SelectionValueTransformer<?, ?> transformerForNextProjection;
     private Class<?> resultClass;
+    private boolean lazyNestedDtoCreation;
+    private ResultGrouping resultGrouping = ResultGrouping.Consecutive;
+    private Class<?> resultInvokerClass;
+    private String resultFactoryMethodName;
 
     public TypeSafeQueryProjections(TypeSafeQueryInternal query) {
         this.query = query;
@@ -53,6 +58,10 @@ public class TypeSafeQueryProjections implements HqlQueryBuilder {
     public void replay(CopyContext context, TypeSafeQueryProjections original) {
         this.transformerForNextProjection = context.getOrOriginal(original.transformerForNextProjection);
         this.resultClass = original.resultClass;
+        this.lazyNestedDtoCreation = original.lazyNestedDtoCreation;
+        this.resultGrouping = original.resultGrouping;
+        this.resultInvokerClass = original.resultInvokerClass;
+        this.resultFactoryMethodName = original.resultFactoryMethodName;
         for(TypeSafeValueProjection projection: original.projections) {
             projections.add(context.get(projection));
         }
@@ -66,6 +75,46 @@ public class TypeSafeQueryProjections implements HqlQueryBuilder {
         return resultClass;
     }
     
+    /**
+     * Whether nested dtos are only created when a value which is not null is selected into them,
+     * see {@link TypeSafeQueryResultTransformer#transformTuple(Object[], String[])}.
+     */
+    public void setLazyNestedDtoCreation(boolean lazyNestedDtoCreation) {
+        this.lazyNestedDtoCreation = lazyNestedDtoCreation;
+    }
+
+    public boolean isLazyNestedDtoCreation() {
+        return lazyNestedDtoCreation;
+    }
+    
+    /**
+     * How rows are grouped when collection values are selected, see {@link ResultGrouping}.
+     */
+    public void setResultGrouping(ResultGrouping resultGrouping) {
+        this.resultGrouping = resultGrouping;
+    }
+
+    public ResultGrouping getResultGrouping() {
+        return resultGrouping;
+    }
+    
+    /**
+     * Creates the results by invoking a constructor of the class, or its static factory method
+     * if a method name is given, with the selected values, see {@link ConstructorQueryResultTransformer}.
+     */
+    public void setResultInvoker(Class<?> resultInvokerClass, String resultFactoryMethodName) {
+        this.resultInvokerClass = resultInvokerClass;
+        this.resultFactoryMethodName = resultFactoryMethodName;
+    }
+
+    public Class<?> getResultInvokerClass() {
+        return resultInvokerClass;
+    }
+
+    public String getResultFactoryMethodName() {
+        return resultFactoryMethodName;
+    }
+    
     public Deque<TypeSafeValueProjection> getProjections() {
         return projections;
     }
@@ -184,11 +233,39 @@ public class TypeSafeQueryProjections implements HqlQueryBuilder {
             query.appendSelect(val.getHql() + alias);
             query.addParams(val.getParams());
         }
-        if( !selectionDatas.isEmpty() ) {
-            query.setResultTransformer(new TypeSafeQueryResultTransformer(selectionDatas, transformers));
+        if( resultInvokerClass != null ) {
+            if( !selectionDatas.isEmpty() ) {
+                throw new IllegalStateException(String.format("The results are created by invoking [%s], "
+                        + "values can't be selected into a selection dto as well.", resultInvokerClass.getName()));
+            }
+            query.setResultTransformer(new ConstructorQueryResultTransformer(
+                    getResultInvoker(), transformers));
+        } else if( !selectionDatas.isEmpty() ) {
+            query.setResultTransformer(new TypeSafeQueryResultTransformer(
+                    selectionDatas, transformers, lazyNestedDtoCreation, resultGrouping));
         } else if( hasTransformer ) {
             query.setResultTransformer(new WithoutAliasesQueryResultTransformer(transformers));
         }
     }
 
+    /**
+     * Looks up the constructor or factory method using the classes of the selected values,
+     * the class of a transformed value is not known and matches any parameter type.
+     */
+    private MethodHandle getResultInvoker() {
+        Class<?>[] argumentClasses = new Class<?>[projections.size()];
+        int i = 0;
+        for(TypeSafeValueProjection projection: projections) {
+            if (projection.getTransformer() == null) {
+                argumentClasses[i] = projection.getValue().getValueClass();
+            }
+            i++;
+        }
+        SelectionDtoAccessor accessor = SelectionDtoAccessor.forClass(resultInvokerClass);
+        if (resultFactoryMethodName == null) {
+            return accessor.getConstructorInvoker(argumentClasses);
+        }
+        return accessor.getFactoryInvoker(resultFactoryMethodName, argumentClasses);
+    }
+
 }
@@ -17,12 +17,21 @@ package be.shad.tsqb.selection;
 
 import static be.shad.tsqb.selection.SelectionTree.getField;
 
-import java.lang.reflect.AccessibleObject;
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.hibernate.transform.BasicTransformerAdapter;
+import org.hibernate.transform.ResultTransformer;
 
 import be.shad.tsqb.data.TypeSafeQuerySelectionProxyData;
 import be.shad.tsqb.selection.group.SelectionTreeGroup;
@@ -32,18 +41,48 @@ import be.shad.tsqb.selection.parallel.SelectionMerger;
 /**
  * Implementation to set values on nested select dtos.
  * Seems to be faster than the alias to bean result transformer too.
+ * <p>
+ * The dtos are created and populated using method handles instead of reflection,
+ * see {@link SelectionDtoAccessor}.
+ * <p>
+ * The transformer is thread safe: the state of the row being transformed is kept in
+ * a context per thread, which is reused for all rows of an execution. The context is reset
+ * by {@link #beginExecution()} and released by {@link #endExecution()}, together with the caches
+ * of the memoizing value transformers. The dao calls these around each execution, so an execution
+ * which failed halfway doesn't leave results behind for the next one.
+ * A transformer can be shared by concurrent executions.
+ * <p>
+ * When collection values are selected, rows with the same values for the result group
+ * are grouped into one result: the transformation of such a row returns the existing result,
+ * after merging the collection element into it, and the duplicates are removed from the list.
  */
-public class TypeSafeQueryResultTransformer extends BasicTransformerAdapter {
+public class TypeSafeQueryResultTransformer extends BasicTransformerAdapter implements ExecutionScopedResultTransformer {
     private static final long serialVersionUID = 4686800769621139636L;
     
-    private final Field[] setters;
-    private final SelectionTree[] values;
     private final SelectionTreeGroup[] groups;
+    private final boolean lazyNestedDtoCreation;
+    private final ResultGrouping resultGrouping;
+    // whether the rows are grouped, and per group whether it is a collection group:
+    private final boolean grouped;
+    private final boolean[] collectionGroups;
+
+    // the selection trees flattened, parents before their subtrees:
+    private final SelectionTree[] nodes;
+    private final int[] parents;
+    private final int[] groupNodes;
+    private final int[] nodeGroups;
+
+    // per column, the node to set the value on and the setter to use:
+    private final int[] columnNodes;
+    private final int[] columnGroups;
+    private final MethodHandle[] setters;
+    // the columns which aren't collection values, their values identify a grouped result:
+    private final int[] keyColumns;
     
-    // reusing a result array to reduce object creation during transformation
+    // reusing a context per thread to reduce object creation during transformation
     // the tuple transformation may be called thousands of times or more in
     // queries with big result sets
-    private final Object[] resultArray; 
+    private transient ThreadLocal<TransformationContext> contexts = createContexts();
     
     @SuppressWarnings("rawtypes")
     private final SelectionValueTransformer[] transformers;
@@ -51,11 +90,25 @@ public class TypeSafeQueryResultTransformer extends BasicTransformerAdapter {
     public TypeSafeQueryResultTransformer(
             List<TypeSafeQuerySelectionProxyData> selectionDatas, 
             List<SelectionValueTransformer<?, ?>> transformers) {
+        this(selectionDatas, transformers, false, ResultGrouping.Consecutive);
+    }
+
+    /**
+     * @param lazyNestedDtoCreation whether nested dtos are only created when 
+     *        a value which is not null is selected into them.
+     * @param resultGrouping how the rows are grouped when collection values are selected.
+     */
+    public TypeSafeQueryResultTransformer(
+            List<TypeSafeQuerySelectionProxyData> selectionDatas, 
+            List<SelectionValueTransformer<?, ?>> transformers,
+            boolean lazyNestedDtoCreation, ResultGrouping resultGrouping) {
+        this.lazyNestedDtoCreation = lazyNestedDtoCreation;
+        this.resultGrouping = resultGrouping;
+        this.transformers = transformers.toArray(new SelectionValueTransformer[transformers.size()]);
+        this.setters = new MethodHandle[selectionDatas.size()];
+        SelectionTree[] columnTrees = new SelectionTree[selectionDatas.size()];
+        LinkedHashMap<TypeSafeQuerySelectionGroup, SelectionTreeGroup> groups = new LinkedHashMap<>();
         try {
-            this.transformers = transformers.toArray(new SelectionValueTransformer[transformers.size()]);
-            this.setters = new Field[selectionDatas.size()];
-            this.values = new SelectionTree[selectionDatas.size()];
-            LinkedHashMap<TypeSafeQuerySelectionGroup, SelectionTreeGroup> groups = new LinkedHashMap<>();
             int a = 0;
             for(TypeSafeQuerySelectionProxyData selectionData: selectionDatas) {
                 String propertyPath = selectionData.getEffectivePropertyPath();
@@ -70,64 +123,330 @@ public class TypeSafeQueryResultTransformer extends BasicTransformerAdapter {
                 for(int i=0; i < alias.length-1; i++) {
                     subtree = subtree.getSubtree(alias[i]);
                 }
-                values[a] = subtree;
-                setters[a++] = getField(subtree.getResultType(), alias[alias.length-1]);
+                columnTrees[a] = subtree;
+                setters[a++] = subtree.getAccessor().getSetter(
+                        getField(subtree.getResultType(), alias[alias.length-1]));
             }
-            
-            // Create groups array, having the result group as first group:
-            a = 1;
-            this.groups = new SelectionTreeGroup[groups.size()];
-            for(SelectionTreeGroup group: groups.values()) {
-                if (group.getGroup().isResultGroup()) {
-                    this.groups[0] = group;
-                } else {
-                    this.groups[a++] = group;
-                }
-            }
-            this.resultArray = new Object[this.groups.length];
-            AccessibleObject.setAccessible(setters, true);
         } catch (NoSuchFieldException | SecurityException e) {
             throw new RuntimeException(e);
         }
+            
+        // Create groups array, having the result group as first group:
+        int a = 1;
+        this.groups = new SelectionTreeGroup[groups.size()];
+        for(SelectionTreeGroup group: groups.values()) {
+            if (group.getGroup().isResultGroup()) {
+                this.groups[0] = group;
+            } else if (a == this.groups.length) {
+                // the values of the result group identify a grouped result, an empty key would group all rows:
+                throw new IllegalArgumentException("No values are selected into the result dto, "
+                        + "select a value which identifies the result, its id for example.");
+            } else {
+                this.groups[a++] = group;
+            }
+        }
+        boolean grouped = false;
+        this.collectionGroups = new boolean[this.groups.length];
+        for(int i=1; i < this.groups.length; i++) {
+            collectionGroups[i] = this.groups[i].getGroup().isCollectionGroup();
+            grouped = grouped || collectionGroups[i];
+        }
+        this.grouped = grouped;
+
+        // Flatten the trees, so the nodes can be referenced by index:
+        List<SelectionTree> nodes = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        this.groupNodes = new int[this.groups.length];
+        for(int i=0; i < this.groups.length; i++) {
+            groupNodes[i] = nodes.size();
+            addNodes(nodes, parents, this.groups[i], -1);
+        }
+        this.nodes = nodes.toArray(new SelectionTree[nodes.size()]);
+        this.parents = new int[parents.size()];
+        for(int i=0; i < this.parents.length; i++) {
+            this.parents[i] = parents.get(i);
+        }
+        this.nodeGroups = new int[this.nodes.length];
+        for(int i=0; i < this.groups.length; i++) {
+            int end = i + 1 < this.groups.length ? groupNodes[i + 1]: this.nodes.length;
+            Arrays.fill(nodeGroups, groupNodes[i], end, i);
+        }
+        this.columnNodes = new int[columnTrees.length];
+        this.columnGroups = new int[columnTrees.length];
+        List<Integer> keyColumns = new ArrayList<>();
+        for(int i=0; i < columnTrees.length; i++) {
+            columnNodes[i] = nodes.indexOf(columnTrees[i]);
+            columnGroups[i] = nodeGroups[columnNodes[i]];
+            if (!collectionGroups[columnGroups[i]]) {
+                keyColumns.add(i);
+            }
+        }
+        this.keyColumns = new int[keyColumns.size()];
+        for(int i=0; i < this.keyColumns.length; i++) {
+            this.keyColumns[i] = keyColumns.get(i);
+        }
+    }
+
+    private ThreadLocal<TransformationContext> createContexts() {
+        return new ThreadLocal<TransformationContext>() {
+            @Override
+            protected TransformationContext initialValue() {
+                return new TransformationContext(nodes.length);
+            }
+        };
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        contexts = createContexts();
+    }
+
+    /**
+     * Adds the tree and its subtrees depth first.
+     */
+    private static void addNodes(List<SelectionTree> nodes, List<Integer> parents, SelectionTree tree, int parent) {
+        int index = nodes.size();
+        nodes.add(tree);
+        parents.add(parent);
+        for(SelectionTree subtree: tree.getSubtrees()) {
+            addNodes(nodes, parents, subtree, index);
+        }
+    }
+
+    /**
+     * Whether rows are grouped into the same result because collection values are selected,
+     * the tuples must be transformed sequentially by the same thread in that case.
+     */
+    public boolean isGroupingRows() {
+        return grouped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beginExecution() {
+        endExecution();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Called by {@link #transformList(List)} as well.
+     */
+    @Override
+    public void endExecution() {
+        contexts.remove();
+        MemoizingSelectionValueTransformer.clearCaches(transformers);
+    }
+
+    /**
+     * Calls {@link ExecutionScopedResultTransformer#beginExecution()} if the transformer is execution scoped.
+     */
+    public static void beginExecution(ResultTransformer transformer) {
+        if (transformer instanceof ExecutionScopedResultTransformer) {
+            ((ExecutionScopedResultTransformer) transformer).beginExecution();
+        }
     }
 
+    /**
+     * Calls {@link ExecutionScopedResultTransformer#endExecution()} if the transformer is execution scoped.
+     */
+    public static void endExecution(ResultTransformer transformer) {
+        if (transformer instanceof ExecutionScopedResultTransformer) {
+            ((ExecutionScopedResultTransformer) transformer).endExecution();
+        }
+    }
+
+    /**
+     * Creates the result dtos and sets the tuple values on them. 
+     * <p>
+     * Nested dtos are created upfront, unless lazyNestedDtoCreation is enabled. In that case they
+     * are created when the first value which is not null is set on them, so they remain null
+     * when only null values are selected into them (after an outer join for example).
+     * <p>
+     * When the row belongs to a result which was already created, only the collection
+     * elements are created and merged into the existing result.
+     */
     @Override
     @SuppressWarnings("unchecked")
     public Object transformTuple(Object[] tuple, String[] aliases) {
+        TransformationContext context = contexts.get();
+        Object[] nodeValues = context.nodeValues;
+        Object existingResult = grouped ? context.findResult(tuple): null;
+        boolean newResult = existingResult == null;
         try {
-            int i=0;
-            for(SelectionTree group: groups) {
-                resultArray[i] = group.getResultType().newInstance();
-                group.populate(resultArray[i++]);
+            for(int node=0; node < nodes.length; node++) {
+                if (!newResult && !collectionGroups[nodeGroups[node]]) {
+                    continue;
+                }
+                if (lazyNestedDtoCreation && parents[node] >= 0) {
+                    nodeValues[node] = null;
+                } else {
+                    createNodeValue(nodeValues, node);
+                }
             }
-            for(i=0; i < aliases.length; i++) {
+            for(int i=0; i < aliases.length; i++) {
+                if (!newResult && !collectionGroups[columnGroups[i]]) {
+                    continue;
+                }
                 Object value = tuple[i];
                 if (transformers[i] != null) {
                     value = transformers[i].convert(value);
                 }
-                setters[i].set(values[i].getValue(), value);
-            }
-            
-            for(i=1; i < groups.length; i++) {
-                @SuppressWarnings("rawtypes")
-                SelectionMerger merger = groups[i].getGroup().getParallelSelectionMerger();
-                if (merger != null) {
-                    merger.mergeIntoResult(resultArray[0], resultArray[i]);
+                int node = columnNodes[i];
+                Object target = nodeValues[node];
+                if (target == null) {
+                    if (value == null) {
+                        continue;
+                    }
+                    target = createNodeValue(nodeValues, node);
                 }
+                setters[i].invokeExact(target, value);
+            }
+        } catch (Throwable e) {
+            throw SelectionDtoAccessor.rethrow(e);
+        }
+        
+        Object result = newResult ? nodeValues[groupNodes[0]]: existingResult;
+        for(int i=1; i < groups.length; i++) {
+            if (collectionGroups[i] ? !hasValues(tuple, i): !newResult) {
+                continue;
+            }
+            @SuppressWarnings("rawtypes")
+            SelectionMerger merger = groups[i].getGroup().getParallelSelectionMerger();
+            if (merger != null) {
+                merger.mergeIntoResult(result, nodeValues[groupNodes[i]]);
+            }
+        }
+        if (grouped && newResult) {
+            context.addResult(tuple, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return whether any of the values selected into the group is not null.
+     */
+    private boolean hasValues(Object[] tuple, int group) {
+        for(int i=0; i < tuple.length; i++) {
+            if (columnGroups[i] == group && tuple[i] != null) {
+                return true;
             }
-            return resultArray[0];
-        } catch (InstantiationException | IllegalAccessException e) {
-            throw new RuntimeException(e);
         }
+        return false;
+    }
+
+    /**
+     * Creates the value of a node, creating its parents first if necessary.
+     * An existing value is reused if the parent dto already created it.
+     */
+    private Object createNodeValue(Object[] nodeValues, int node) throws Throwable {
+        SelectionTree tree = nodes[node];
+        int parent = parents[node];
+        Object value;
+        if (parent < 0) {
+            value = tree.getAccessor().newInstance();
+        } else {
+            Object parentValue = nodeValues[parent];
+            if (parentValue == null) {
+                parentValue = createNodeValue(nodeValues, parent);
+            }
+            value = (Object) tree.getGetter().invokeExact(parentValue);
+            if (value == null) {
+                value = tree.getAccessor().newInstance();
+                tree.getSetter().invokeExact(parentValue, value);
+            }
+        }
+        nodeValues[node] = value;
+        return value;
     }
     
     @Override
     @SuppressWarnings("rawtypes")
     public List transformList(List list) {
-        for(int i=0; i < groups.length; i++) {
-            resultArray[i] = null;
+        endExecution();
+        if (!grouped) {
+            return list;
+        }
+        // remove the rows which were grouped into an earlier result:
+        List<Object> results = new ArrayList<>();
+        if (resultGrouping == ResultGrouping.Consecutive) {
+            Object previous = null;
+            for(Object result: list) {
+                if (result != previous) {
+                    results.add(result);
+                }
+                previous = result;
+            }
+        } else {
+            Set<Object> added = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+            for(Object result: list) {
+                if (added.add(result)) {
+                    results.add(result);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The state of the transformation of the rows of an execution.
+     */
+    private class TransformationContext {
+        private final Object[] nodeValues;
+        // consecutive grouping: the key values and result of the previous row
+        private Object[] previousKey;
+        private Object previousResult;
+        // hashed grouping: the results by key
+        private Map<List<Object>, Object> results;
+
+        TransformationContext(int nodeCount) {
+            this.nodeValues = new Object[nodeCount];
+        }
+
+        /**
+         * @return the result which was created for the key values of the tuple, or null.
+         */
+        Object findResult(Object[] tuple) {
+            if (resultGrouping == ResultGrouping.Hashed) {
+                return results == null ? null: results.get(toKey(tuple));
+            }
+            if (previousKey == null) {
+                return null;
+            }
+            for(int i=0; i < keyColumns.length; i++) {
+                Object value = tuple[keyColumns[i]];
+                if (value == null ? previousKey[i] != null: !value.equals(previousKey[i])) {
+                    return null;
+                }
+            }
+            return previousResult;
+        }
+
+        void addResult(Object[] tuple, Object result) {
+            if (resultGrouping == ResultGrouping.Hashed) {
+                if (results == null) {
+                    results = new HashMap<>();
+                }
+                results.put(toKey(tuple), result);
+            } else {
+                previousKey = toKeyValues(tuple);
+                previousResult = result;
+            }
+        }
+
+        private List<Object> toKey(Object[] tuple) {
+            return Arrays.asList(toKeyValues(tuple));
+        }
+
+        private Object[] toKeyValues(Object[] tuple) {
+            Object[] key = new Object[keyColumns.length];
+            for(int i=0; i < keyColumns.length; i++) {
+                key[i] = tuple[keyColumns[i]];
+            }
+            return key;
         }
-        return list;
     }
 
 }
@@ -23,7 +23,7 @@ import org.hibernate.transform.BasicTransformerAdapter;
  * Support value converter when working without a selection dto.
  */
 @SuppressWarnings({ "unchecked", "rawtypes" })
-public class WithoutAliasesQueryResultTransformer extends BasicTransformerAdapter {
+public class WithoutAliasesQueryResultTransformer extends BasicTransformerAdapter implements ExecutionScopedResultTransformer {
     private static final long serialVersionUID = 942223288493516089L;
     
     private final SelectionValueTransformer[] transformers;
@@ -42,4 +42,26 @@ public class WithoutAliasesQueryResultTransformer extends BasicTransformerAdapte
         return tuple.length == 1 ? tuple[0]: tuple;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beginExecution() {
+        endExecution();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void endExecution() {
+        MemoizingSelectionValueTransformer.clearCaches(transformers);
+    }
+
+    @Override
+    public List transformList(List list) {
+        endExecution();
+        return list;
+    }
+
 }
@@ -44,5 +44,11 @@ public interface TypeSafeQuerySelectionGroup {
      *         merge the result value of this group into the resultDto.
      */
     SelectionMerger<?, ?> getParallelSelectionMerger();
+
+    /**
+     * @return whether the group selects the elements of a collection of the result dto,
+     *         in which case the rows with the same result dto values are grouped.
+     */
+    boolean isCollectionGroup();
     
 }
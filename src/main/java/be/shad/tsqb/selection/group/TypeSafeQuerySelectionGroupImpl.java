@@ -17,6 +17,7 @@ package be.shad.tsqb.selection.group;
 
 import be.shad.tsqb.query.copy.CopyContext;
 import be.shad.tsqb.query.copy.Copyable;
+import be.shad.tsqb.selection.parallel.CollectionSelectionMerger;
 import be.shad.tsqb.selection.parallel.SelectionMerger;
 
 public class TypeSafeQuerySelectionGroupImpl implements TypeSafeQuerySelectionGroup, Copyable {
@@ -64,6 +65,11 @@ public class TypeSafeQuerySelectionGroupImpl implements TypeSafeQuerySelectionGr
         return subselectValueMerger;
     }
 
+    @Override
+    public boolean isCollectionGroup() {
+        return subselectValueMerger instanceof CollectionSelectionMerger;
+    }
+
     @Override
     public Copyable copy(CopyContext context) {
         return new TypeSafeQuerySelectionGroupImpl(context, this);
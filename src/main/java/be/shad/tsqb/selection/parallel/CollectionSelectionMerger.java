@@ -0,0 +1,40 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.selection.parallel;
+
+import java.util.Collection;
+
+/**
+ * Merges a selected element into a collection of the result dto,
+ * see {@link be.shad.tsqb.query.TypeSafeRootQuery#selectCollectionValues}.
+ */
+public abstract class CollectionSelectionMerger<RESULT, ELEMENT> implements SelectionMerger<RESULT, ELEMENT> {
+
+    /**
+     * Adds the element to the collection of the result.
+     */
+    @Override
+    public final void mergeIntoResult(RESULT partialResult, ELEMENT element) {
+        getCollection(partialResult).add(element);
+    }
+
+    /**
+     * @return the collection of the result to add the elements to,
+     *         it should be created and set on the result when it is null.
+     */
+    public abstract Collection<ELEMENT> getCollection(RESULT result);
+
+}
@@ -15,6 +15,8 @@
  */
 package be.shad.tsqb.values;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -74,18 +76,36 @@ public class CaseTypeSafeValue<T> extends TypeSafeValueImpl<T> implements OnGoin
         return is(query.toValue(value));
     }
 
+    /**
+     * The cases, in the order in which they were added.
+     */
+    public List<OnGoingCaseImpl<T>> getCases() {
+        return Collections.unmodifiableList(cases);
+    }
+
+    /**
+     * Cases of which the restrictions are always false are left out, the first case
+     * of which the restrictions are always true becomes the else case. When only 
+     * the else case remains, its value is used instead of the case.
+     */
     @Override
     public HqlQueryValue toHqlQueryValue(HqlQueryBuilderParams params) {
+        List<OnGoingCaseImpl<T>> cases = getFoldedCases();
+        boolean previous = params.setRequiresLiterals(true);
+        if (cases.size() == 1 && isElseCase(cases.get(0))) {
+            HqlQueryValue value = cases.get(0).getValue().toHqlQueryValue(params);
+            params.setRequiresLiterals(previous);
+            return value;
+        }
         HqlQueryValueImpl value = new HqlQueryValueImpl();
         if (!cases.isEmpty()) {
             value.appendHql("(");
         }
-        boolean previous = params.setRequiresLiterals(true);
         for(int i=0; i < cases.size(); i++) {
             OnGoingCaseImpl<T> ongoingCase = cases.get(i);
             RestrictionsGroupInternal restrictions = ongoingCase.getRestrictionsGroup();
             HqlQueryValue then = ongoingCase.getValue().toHqlQueryValue(params);
-            if (restrictions.isEmpty()) {
+            if (isElseCase(ongoingCase)) {
                 value.appendHql(" else ");
             } else {
                 if( i == 0 ){
@@ -108,6 +128,37 @@ public class CaseTypeSafeValue<T> extends TypeSafeValueImpl<T> implements OnGoin
         params.setRequiresLiterals(previous);
         return value;
     }
+
+    /**
+     * The case is used as else case if it has no restrictions or 
+     * if its restrictions are always true.
+     */
+    private boolean isElseCase(OnGoingCaseImpl<T> ongoingCase) {
+        RestrictionsGroupInternal restrictions = ongoingCase.getRestrictionsGroup();
+        return restrictions.isEmpty() || Boolean.TRUE.equals(restrictions.getConstantValue());
+    }
+
+    /**
+     * @return the cases up to the first else case, without the cases which are never true.
+     *         All cases are returned if none of the cases can be true.
+     */
+    private List<OnGoingCaseImpl<T>> getFoldedCases() {
+        List<OnGoingCaseImpl<T>> folded = new ArrayList<>(cases.size());
+        for(OnGoingCaseImpl<T> ongoingCase: cases) {
+            RestrictionsGroupInternal restrictions = ongoingCase.getRestrictionsGroup();
+            if (!restrictions.isEmpty() && Boolean.FALSE.equals(restrictions.getConstantValue())) {
+                continue;
+            }
+            folded.add(ongoingCase);
+            if (isElseCase(ongoingCase)) {
+                break;
+            }
+        }
+        if (folded.isEmpty()) {
+            return cases;
+        }
+        return folded;
+    }
     
     @Override
     public void validateContainedInScope(TypeSafeQueryScopeValidator validator) {
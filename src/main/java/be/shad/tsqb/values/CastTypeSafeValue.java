@@ -16,10 +16,11 @@
 package be.shad.tsqb.values;
 
 import be.shad.tsqb.query.TypeSafeQuery;
+import be.shad.tsqb.query.TypeSafeQueryScopeValidator;
 import be.shad.tsqb.query.copy.CopyContext;
 import be.shad.tsqb.query.copy.Copyable;
 
-public class CastTypeSafeValue<T> extends TypeSafeValueImpl<T> {
+public class CastTypeSafeValue<T> extends TypeSafeValueImpl<T> implements TypeSafeValueContainer {
     
     private TypeSafeValue<?> value;
 
@@ -44,6 +45,11 @@ public class CastTypeSafeValue<T> extends TypeSafeValueImpl<T> {
                 query.getHelper().getResolvedTypeName(getValueClass())), 
                 value.getParams());
     }
+
+    @Override
+    public void validateContainedInScope(TypeSafeQueryScopeValidator validator) {
+        validator.validateInScope(value);
+    }
     
     @Override
     public Copyable copy(CopyContext context) {
@@ -15,6 +15,7 @@
  */
 package be.shad.tsqb.values;
 
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -53,6 +54,13 @@ public class CoalesceTypeSafeValue<T> extends TypeSafeValueImpl<T> implements Ty
         return this;
     }
 
+    /**
+     * The values of which the first value which is not null is used, in order.
+     */
+    public List<TypeSafeValue<T>> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
     @Override
     public HqlQueryValue toHqlQueryValue(HqlQueryBuilderParams parameters) {
         StringBuilder coalesce = new StringBuilder();
@@ -19,6 +19,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import be.shad.tsqb.NamedParameter;
 import be.shad.tsqb.query.TypeSafeQuery;
@@ -31,6 +33,7 @@ import be.shad.tsqb.restrictions.RestrictionOperator;
  * These values are added to the query as params.
  */
 public class CollectionTypeSafeValue<T> extends TypeSafeValueImpl<T> implements NamedValueEnabled, OperatorAwareValue, DirectTypeSafeValueWrapper<Collection<T>> {
+    private static final Logger LOGGER = Logger.getLogger(CollectionTypeSafeValue.class.getName());
     private Collection<T> values;
 
     /**
@@ -83,12 +86,15 @@ public class CollectionTypeSafeValue<T> extends TypeSafeValueImpl<T> implements
             throw new IllegalArgumentException("Collection is empty when transforming to query");
         }
         if (params.isRequiresLiterals()) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(String.format("Adding %s as literals, the hql differs for each collection.", values));
+            }
             StringBuilder sb = new StringBuilder("(");
             for(Object val: values) {
                 if( sb.length() > 1 ) {
                     sb.append(", ");
                 }
-                sb.append(query.getHelper().toLiteral(val));
+                query.getHelper().appendLiteral(sb, val);
             }
             sb.append(")");
             return new HqlQueryValueImpl(sb.toString());
@@ -41,6 +41,10 @@ public class CountTypeSafeValue extends TypeSafeValueImpl<Long> implements IsMay
         this.value = value;
     }
 
+    public TypeSafeValue<?> getValue() {
+        return value;
+    }
+
     @Override
     public HqlQueryValue toHqlQueryValue(HqlQueryBuilderParams params) {
         HqlQueryValue value = this.value.toHqlQueryValue(params);
@@ -15,6 +15,9 @@
  */
 package be.shad.tsqb.values;
 
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import be.shad.tsqb.NamedParameter;
 import be.shad.tsqb.query.TypeSafeQuery;
 import be.shad.tsqb.query.copy.CopyContext;
@@ -25,6 +28,7 @@ import be.shad.tsqb.query.copy.Copyable;
  * This value is added as param to the query.
  */
 public class DirectTypeSafeValue<T> extends TypeSafeValueImpl<T> implements NamedValueEnabled, DirectTypeSafeValueWrapper<T> {
+    private static final Logger LOGGER = Logger.getLogger(DirectTypeSafeValue.class.getName());
     private T value;
 
     @SuppressWarnings("unchecked")
@@ -64,6 +68,9 @@ public class DirectTypeSafeValue<T> extends TypeSafeValueImpl<T> implements Name
             throw new IllegalStateException("Value is null when transforming to query");
         }
         if (params.isRequiresLiterals()) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(String.format("Adding [%s] as literal, the hql differs for each value.", getValue()));
+            }
             return new HqlQueryValueImpl(query.getHelper().toLiteral(getValue()));
         } else {
             String name = params.createNamedParameter();
@@ -29,6 +29,10 @@ public class DistinctTypeSafeValue<VAL> extends TypeSafeValueImpl<VAL> implement
         this.value = context.get(original.value);
     }
 
+    public TypeSafeValue<VAL> getValue() {
+        return value;
+    }
+
     @Override
     public HqlQueryValue toHqlQueryValue(HqlQueryBuilderParams params) {
         HqlQueryValue value = this.value.toHqlQueryValue(params);
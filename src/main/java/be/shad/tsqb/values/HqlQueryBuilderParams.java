@@ -15,6 +15,12 @@
  */
 package be.shad.tsqb.values;
 
+import java.util.Collection;
+import java.util.List;
+
+import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.query.TypeSafeSubQuery;
+
 public interface HqlQueryBuilderParams {
     
     String createNamedParameter();
@@ -28,5 +34,36 @@ public interface HqlQueryBuilderParams {
      * Returns the previous value.
      */
     boolean setRequiresLiterals(boolean requiresLiterals);
+
+    /**
+     * When set, the join is not used by the query and is left out of the hql.
+     */
+    boolean isPrunedJoin(TypeSafeQueryProxyData join);
+
+    /**
+     * When set, the subquery can be rewritten to an additional from with restrictions.
+     */
+    boolean isJoinableSubquery(TypeSafeSubQuery<?> subquery);
+
+    /**
+     * Registers a joinable subquery of which the restrictions were added,
+     * its from is appended to the parent query.
+     */
+    void addJoinedSubquery(TypeSafeSubQuery<?> subquery);
+
+    /**
+     * The subqueries which were rewritten, in the order they were added.
+     */
+    Collection<TypeSafeSubQuery<?>> getJoinedSubqueries();
+
+    /**
+     * Returns the hql of an identical subquery which was added before, so the subquery
+     * is added with the same named parameters. Registers and returns the given hql otherwise.
+     * <p>
+     * Subqueries are identical when their hql is the same, apart from the aliases
+     * of their own froms and joins and the names of their named parameters,
+     * and they have the same parameter values.
+     */
+    HqlQueryValue shareSubqueryValue(HqlQueryValue value, List<String> aliases);
     
 }
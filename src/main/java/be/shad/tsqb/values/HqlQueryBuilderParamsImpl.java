@@ -15,9 +15,29 @@
  */
 package be.shad.tsqb.values;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import be.shad.tsqb.NamedParameter;
+import be.shad.tsqb.data.TypeSafeQueryProxyData;
+import be.shad.tsqb.query.TypeSafeSubQuery;
+
 public class HqlQueryBuilderParamsImpl implements HqlQueryBuilderParams {
     private int namedParamCount = 1;
     private boolean requiresLiterals;
+    private Set<TypeSafeQueryProxyData> prunedJoins = Collections.emptySet();
+    private Set<TypeSafeSubQuery<?>> joinableSubqueries = Collections.emptySet();
+    private final Set<TypeSafeSubQuery<?>> joinedSubqueries = new LinkedHashSet<>();
+    private final Map<List<Object>, HqlQueryValue> subqueryValues = new HashMap<>();
     
     @Override
     public boolean isRequiresLiterals() {
@@ -35,4 +55,69 @@ public class HqlQueryBuilderParamsImpl implements HqlQueryBuilderParams {
         return "np" + namedParamCount++;
     }
 
+    @Override
+    public boolean isPrunedJoin(TypeSafeQueryProxyData join) {
+        return prunedJoins.contains(join);
+    }
+
+    public void setPrunedJoins(Set<TypeSafeQueryProxyData> prunedJoins) {
+        this.prunedJoins = prunedJoins;
+    }
+
+    @Override
+    public boolean isJoinableSubquery(TypeSafeSubQuery<?> subquery) {
+        return joinableSubqueries.contains(subquery);
+    }
+
+    public void setJoinableSubqueries(Set<TypeSafeSubQuery<?>> joinableSubqueries) {
+        this.joinableSubqueries = joinableSubqueries;
+    }
+
+    @Override
+    public void addJoinedSubquery(TypeSafeSubQuery<?> subquery) {
+        joinedSubqueries.add(subquery);
+    }
+
+    @Override
+    public Collection<TypeSafeSubQuery<?>> getJoinedSubqueries() {
+        return joinedSubqueries;
+    }
+
+    @Override
+    public HqlQueryValue shareSubqueryValue(HqlQueryValue value, List<String> aliases) {
+        List<Object> fingerprint = getFingerprint(value, aliases);
+        HqlQueryValue shared = subqueryValues.get(fingerprint);
+        if (shared != null) {
+            return shared;
+        }
+        subqueryValues.put(fingerprint, value);
+        return value;
+    }
+
+    /**
+     * The hql with numbered placeholders instead of the aliases and
+     * named parameter names, followed by the parameter values.
+     */
+    private static List<Object> getFingerprint(HqlQueryValue value, List<String> aliases) {
+        String hql = value.getHql();
+        for(int i=0; i < aliases.size(); i++) {
+            hql = replace(hql, "\\b" + Pattern.quote(aliases.get(i)) + "\\b", "#a" + i);
+        }
+        List<Object> paramValues = new ArrayList<>(value.getParams().size());
+        for(Object param: value.getParams()) {
+            if (param instanceof NamedParameter) {
+                NamedParameter named = (NamedParameter) param;
+                hql = replace(hql, ":" + Pattern.quote(named.getName()) + "\\b", ":#p" + paramValues.size());
+                paramValues.add(named.getValue());
+            } else {
+                paramValues.add(param);
+            }
+        }
+        return Arrays.<Object>asList(hql, paramValues);
+    }
+
+    private static String replace(String hql, String regex, String replacement) {
+        return Pattern.compile(regex).matcher(hql).replaceAll(Matcher.quoteReplacement(replacement));
+    }
+
 }
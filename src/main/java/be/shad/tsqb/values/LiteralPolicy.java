@@ -0,0 +1,38 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.values;
+
+/**
+ * Decides whether direct values are added to the hql as literals or as named parameters.
+ * <p>
+ * Every distinct literal results in a distinct hql string, and so in a distinct query plan
+ * and statement. Named parameters keep the hql the same when only the values change.
+ * Literals are still used where hibernate would reject a parameter: in projections,
+ * case values, arithmetics and order bys, and when casted values are compared.
+ *
+ * @see be.shad.tsqb.helper.TypeSafeQueryHelper#getLiteralPolicy()
+ */
+public enum LiteralPolicy {
+    /**
+     * Numbers compared with a value of another number type are added as literals.
+     */
+    LITERALS_WHEN_TYPES_DIFFER,
+    /**
+     * Numbers compared with a value of another number type are converted to that
+     * type and added as named parameters, unless the conversion would change the number.
+     */
+    PARAMETERS_WHEN_POSSIBLE;
+}
@@ -15,6 +15,7 @@
  */
 package be.shad.tsqb.values;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -65,6 +66,20 @@ public class OperationTypeSafeValue<T> extends TypeSafeValueImpl<T> implements T
         operations.add(operation);
     }
     
+    /**
+     * The combined values, in order.
+     */
+    public List<TypeSafeValue<? extends T>> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * The operations between the values, one less than the amount of values.
+     */
+    public List<String> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+    
     @Override
     public void validateContainedInScope(TypeSafeQueryScopeValidator validator) {
         for(TypeSafeValue<? extends T> value: values) {
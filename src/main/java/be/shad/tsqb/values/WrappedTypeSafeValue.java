@@ -35,6 +35,7 @@ public class WrappedTypeSafeValue<T> extends TypeSafeValueImpl<T> implements Typ
     protected WrappedTypeSafeValue(CopyContext context, WrappedTypeSafeValue<T> original) {
         super(context, original);
         this.value = context.get(original.value);
+        this.function = original.function;
     }
     
     public WrappedTypeSafeValue(TypeSafeQuery query, String function, TypeSafeValue<T> value) {
@@ -43,6 +44,14 @@ public class WrappedTypeSafeValue<T> extends TypeSafeValueImpl<T> implements Typ
         this.value = value;
     }
     
+    public String getFunction() {
+        return function;
+    }
+
+    public TypeSafeValue<T> getValue() {
+        return value;
+    }
+
     @Override
     public HqlQueryValue toHqlQueryValue(HqlQueryBuilderParams params) {
         HqlQueryValue value = this.value.toHqlQueryValue(params);
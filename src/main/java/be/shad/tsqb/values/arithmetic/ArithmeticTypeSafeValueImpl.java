@@ -15,10 +15,15 @@
  */
 package be.shad.tsqb.values.arithmetic;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
 import be.shad.tsqb.query.TypeSafeQuery;
 import be.shad.tsqb.query.TypeSafeQueryScopeValidator;
 import be.shad.tsqb.query.copy.CopyContext;
 import be.shad.tsqb.query.copy.Copyable;
+import be.shad.tsqb.values.DirectTypeSafeValue;
 import be.shad.tsqb.values.HqlQueryBuilderParams;
 import be.shad.tsqb.values.HqlQueryValue;
 import be.shad.tsqb.values.OperationTypeSafeValue;
@@ -88,16 +93,158 @@ public class ArithmeticTypeSafeValueImpl extends TypeSafeValueImpl<Number> imple
         return this;
     }
 
+    /**
+     * The values and operations of the calculation, as they were added.
+     */
+    public OperationTypeSafeValue<Number> getCombinedValue() {
+        return combinedValue;
+    }
+
     @Override
     public HqlQueryValue toHqlQueryValue(HqlQueryBuilderParams params) {
         // when calculating a value, hibernate checks if all number types are exactly the same,
         // this problem is avoided by replacing the values with literals 
         boolean previous = params.setRequiresLiterals(true);
-        HqlQueryValue hqlQueryValue = combinedValue.toHqlQueryValue(params);
+        HqlQueryValue hqlQueryValue = fold().toHqlQueryValue(params);
         params.setRequiresLiterals(previous);
         return hqlQueryValue;
     }
 
+    /**
+     * @return the value of the calculation if all of its operands are direct values, null otherwise.
+     */
+    public Number getConstantValue() {
+        OperationTypeSafeValue<Number> folded = fold();
+        if (folded.getValues().size() == 1) {
+            return getConstantValue(folded.getValues().get(0));
+        }
+        return null;
+    }
+
+    private static Number getConstantValue(TypeSafeValue<? extends Number> value) {
+        if (value instanceof DirectTypeSafeValue<?>) {
+            return ((DirectTypeSafeValue<? extends Number>) value).getValue();
+        } else if (value instanceof ArithmeticTypeSafeValueImpl) {
+            return ((ArithmeticTypeSafeValueImpl) value).getConstantValue();
+        }
+        return null;
+    }
+
+    /**
+     * Calculates the constant parts of the calculation, respecting the operator precedence:
+     * the leading constant factors of each term are multiplied or divided and then the
+     * leading constant terms are added or subtracted. The terms after a value which is not
+     * constant are left as they are, the hql is evaluated from left to right.
+     * <p>
+     * Only calculations which give the same result in the database are folded: integral
+     * calculations without overflow, an integer division only when there is no remainder.
+     * 
+     * @return the calculation with the constant parts replaced by their value.
+     */
+    private OperationTypeSafeValue<Number> fold() {
+        List<TypeSafeValue<? extends Number>> values = combinedValue.getValues();
+        List<String> operations = combinedValue.getOperations();
+        List<TypeSafeValue<? extends Number>> foldedValues = new ArrayList<>(values.size());
+        List<String> foldedOperations = new ArrayList<>(operations.size());
+
+        // fold the leading constant factors of each term:
+        int i = 0;
+        while (i < values.size()) {
+            if (i > 0) {
+                foldedOperations.add(operations.get(i - 1));
+            }
+            // only a factor at the start of a term can be folded with the factors after it
+            boolean termStart = i == 0 || !isFactorOperation(operations.get(i - 1));
+            Number constant = termStart ? getConstantValue(values.get(i)): null;
+            int next = i + 1;
+            while (constant != null && next < values.size() && isFactorOperation(operations.get(next - 1))) {
+                Number factor = getConstantValue(values.get(next));
+                Number product = factor == null ? null: calculate(constant, operations.get(next - 1), factor);
+                if (product == null) {
+                    break;
+                }
+                constant = product;
+                next++;
+            }
+            foldedValues.add(next > i + 1 ? new DirectTypeSafeValue<>(query, constant): values.get(i));
+            i = next;
+        }
+
+        // fold the leading constant terms:
+        int termEnd = 1;
+        Number constant = getConstantValue(foldedValues.get(0));
+        while (constant != null && termEnd < foldedValues.size()
+                && !isFactorOperation(foldedOperations.get(termEnd - 1))) {
+            boolean termConstant = termEnd + 1 >= foldedValues.size() 
+                    || !isFactorOperation(foldedOperations.get(termEnd));
+            Number term = termConstant ? getConstantValue(foldedValues.get(termEnd)): null;
+            Number sum = term == null ? null: calculate(constant, foldedOperations.get(termEnd - 1), term);
+            if (sum == null) {
+                break;
+            }
+            constant = sum;
+            termEnd++;
+        }
+        if (termEnd == 1 && foldedValues.size() == values.size()) {
+            return combinedValue;
+        }
+        TypeSafeValue<Number> first = termEnd > 1 ? new DirectTypeSafeValue<>(query, constant)
+                : getNumberValue(foldedValues.get(0));
+        OperationTypeSafeValue<Number> folded = new OperationTypeSafeValue<>(query, first, 
+                OperationTypeSafeValueBracketsPolicy.WhenMoreThanOne);
+        for(int j=termEnd; j < foldedValues.size(); j++) {
+            folded.add(foldedOperations.get(j - 1), foldedValues.get(j));
+        }
+        return folded;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TypeSafeValue<Number> getNumberValue(TypeSafeValue<? extends Number> value) {
+        return (TypeSafeValue<Number>) value;
+    }
+
+    private static boolean isFactorOperation(String operation) {
+        return "*".equals(operation) || "/".equals(operation);
+    }
+
+    /**
+     * Calculates the result of the operation for integral numbers. Floating point numbers
+     * are not folded, the java result may differ from the database result because
+     * the database may calculate exactly with the decimal literals (0.1 + 0.2 for example).
+     * 
+     * @return the result, or null if the operation is not folded:
+     *         other number types, overflows, divisions by zero and integer divisions with a remainder.
+     */
+    static Number calculate(Number left, String operation, Number right) {
+        if (!isIntegral(left) || !isIntegral(right)) {
+            return null;
+        }
+        BigInteger a = BigInteger.valueOf(left.longValue());
+        BigInteger b = BigInteger.valueOf(right.longValue());
+        BigInteger result;
+        switch (operation) {
+            case "+": result = a.add(b); break;
+            case "-": result = a.subtract(b); break;
+            case "*": result = a.multiply(b); break;
+            case "/":
+                if (b.signum() == 0 || a.mod(b.abs()).signum() != 0) {
+                    return null;
+                }
+                result = a.divide(b);
+                break;
+            default: return null;
+        }
+        if (left instanceof Long || right instanceof Long) {
+            return result.bitLength() < Long.SIZE ? (Number) result.longValue(): null;
+        }
+        return result.bitLength() < Integer.SIZE ? (Number) result.intValue(): null;
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long 
+                || number instanceof Short || number instanceof Byte;
+    }
+
     @Override
     public void validateContainedInScope(TypeSafeQueryScopeValidator validator) {
         validator.validateInScope(combinedValue);
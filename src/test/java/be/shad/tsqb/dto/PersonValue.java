@@ -0,0 +1,46 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.dto;
+
+/**
+ * Immutable dto, created by its constructor or factory method.
+ */
+public final class PersonValue {
+    private final String name;
+    private final int age;
+
+    public PersonValue(String name, int age) {
+        this.name = name;
+        this.age = age;
+    }
+
+    public PersonValue(String name, String nickName) {
+        this(name + " (" + nickName + ")", -1);
+    }
+
+    public static PersonValue of(String name, int age) {
+        return new PersonValue(name.toUpperCase(), age);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+}
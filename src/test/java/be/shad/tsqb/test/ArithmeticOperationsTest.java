@@ -154,4 +154,58 @@ public class ArithmeticOperationsTest extends TypeSafeQueryTest {
         validate("select (hobj1.id + (1.0 / (" + expectedSQHql + " - hobj1.age)) + hobj1.id) from Person hobj1");
         
     }
+
+    @Test
+    public void testConstantCalculationIsFolded() {
+        Person person = query.from(Person.class);
+        int rate = 3;
+        query.select(arithmetics.value(person.getId()).add(
+                arithmetics.value(1).add(arithmetics.value(2).multiply(rate))));
+        validate("select (hobj1.id + 7) from Person hobj1");
+    }
+
+    @Test
+    public void testLeadingConstantsAreFolded() {
+        Person person = query.from(Person.class);
+        query.select(arithmetics.value(2).multiply(3).add(10).subtract(person.getAge()).add(2));
+        validate("select (16 - hobj1.age + 2) from Person hobj1");
+    }
+
+    /**
+     * 0.1 + 0.2 is not 0.3 in java double arithmetic.
+     */
+    @Test
+    public void testFloatingPointConstantsAreNotFolded() {
+        Person person = query.from(Person.class);
+        query.select(arithmetics.value(0.1d).add(0.2d).add(person.getAge()));
+        validate("select (0.1 + 0.2 + hobj1.age) from Person hobj1");
+    }
+
+    @Test
+    public void testConstantsAfterValueAreNotFolded() {
+        Person person = query.from(Person.class);
+        query.select(arithmetics.value(person.getAge()).divide(10).divide(2));
+        validate("select (hobj1.age / 10 / 2) from Person hobj1");
+    }
+
+    @Test
+    public void testLeadingConstantFactorsOfTermAreFolded() {
+        Person person = query.from(Person.class);
+        query.select(arithmetics.value(person.getAge()).add(2).multiply(3).multiply(person.getAge()));
+        validate("select (hobj1.age + 6 * hobj1.age) from Person hobj1");
+    }
+
+    @Test
+    public void testIntegerDivisionWithRemainderIsNotFolded() {
+        Person person = query.from(Person.class);
+        query.select(arithmetics.value(7).divide(2).add(person.getAge()));
+        validate("select (7 / 2 + hobj1.age) from Person hobj1");
+    }
+
+    @Test
+    public void testIntegerOverflowIsNotFolded() {
+        Person person = query.from(Person.class);
+        query.select(arithmetics.value(Integer.MAX_VALUE).add(1).add(person.getAge()));
+        validate("select (" + Integer.MAX_VALUE + " + 1 + hobj1.age) from Person hobj1");
+    }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.dao.TypeSafeQueryDaoImpl;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.domain.people.Relation;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.selection.parallel.CollectionSelectionMerger;
+
+public class BatchedQueryTest extends TypeSafeQueryTest {
+    private Town town1;
+    private Town town2;
+
+    @Before
+    public void createTestData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        town1 = creator.createTestTown();
+        creator.createTestPerson(town1, "Josh");
+        town2 = creator.createTestTown();
+        creator.createTestPerson(town2, "Emma");
+        creator.createTestPerson(town2, "Jane");
+    }
+
+    @Test
+    public void testBatchedEntityQuery() {
+        Person person = query.from(Person.class);
+        query.where(person.getTown().getId()).eq().named("townId");
+
+        Map<Long, List<Person>> results = getTypeSafeQueryDao().doBatchedQuery(
+                query, "townId", Arrays.asList(town1.getId(), town2.getId(), 99L));
+        assertEquals(Arrays.asList(town1.getId(), town2.getId(), 99L), 
+                Arrays.asList(results.keySet().toArray()));
+        assertEquals(1, results.get(town1.getId()).size());
+        assertEquals("Josh", results.get(town1.getId()).get(0).getName());
+        assertEquals(2, results.get(town2.getId()).size());
+        assertTrue(results.get(99L).isEmpty());
+
+        // the original query is not modified:
+        query.named().setValue("townId", town1.getId());
+        validate(" from Person hobj1 where hobj1.town.id = :np1", town1.getId());
+    }
+
+    /**
+     * Uses a small in list size to execute a query per value.
+     */
+    @Test
+    public void testBatchedDtoQueryInChunks() {
+        ((TypeSafeQueryDaoImpl) getTypeSafeQueryDao()).setMaxInListSize(1);
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setThePersonsName(person.getName());
+        query.where(person.getTown().getId()).in().named("townIds").
+                and(person.getName()).notEq("Jane");
+
+        Map<Long, List<PersonDto>> results = getTypeSafeQueryDao().doBatchedQuery(
+                query, "townIds", Arrays.asList(town1.getId(), town2.getId()));
+        assertEquals(1, results.get(town1.getId()).size());
+        assertEquals("Josh", results.get(town1.getId()).get(0).getThePersonsName());
+        assertEquals(1, results.get(town2.getId()).size());
+        assertEquals("Emma", results.get(town2.getId()).get(0).getThePersonsName());
+    }
+
+    /**
+     * The key restriction would not restrict all results when it is part of an 'or'.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchedQueryInOrIsNotAllowed() {
+        Person person = query.from(Person.class);
+        query.where(person.getTown().getId()).eq().named("townId").
+                or(person.getName()).eq("Jane");
+        getTypeSafeQueryDao().doBatchedQuery(query, "townId", Arrays.asList(town1.getId()));
+    }
+
+    /**
+     * The selected keys are looked up in the results by value,
+     * the values must have the type of the restricted value.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchedQueryKeysMustHaveRestrictedValueType() {
+        Person person = query.from(Person.class);
+        query.where(person.getTown().getId()).eq().named("townId");
+        getTypeSafeQueryDao().doBatchedQuery(query, "townId", Arrays.asList(town1.getId().intValue()));
+    }
+
+    /**
+     * The rows of a person with multiple children are grouped into one result per town.
+     */
+    @Test
+    public void testBatchedQueryWithCollectionSelection() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Person parent = creator.createTestPerson(town1, "Parent");
+        creator.addChildRelation(parent, creator.createTestPerson(town1, "Anna"));
+        creator.addChildRelation(parent, creator.createTestPerson(town1, "Zed"));
+
+        Person person = query.from(Person.class);
+        Relation relation = query.join(person.getChildRelations());
+        Person child = query.join(relation.getChild());
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        dto.setThePersonsName(person.getName());
+        PersonDto childDto = query.selectCollectionValues(dto, PersonDto.class, 
+                new CollectionSelectionMerger<PersonDto, PersonDto>() {
+            @Override
+            public Collection<PersonDto> getCollection(PersonDto result) {
+                if (result.getChildren() == null) {
+                    result.setChildren(new ArrayList<PersonDto>());
+                }
+                return result.getChildren();
+            }
+        });
+        childDto.setThePersonsName(child.getName());
+        query.where(person.getTown().getId()).eq().named("townId");
+        query.orderBy().asc(person.getName()).asc(child.getName());
+
+        Map<Long, List<PersonDto>> results = getTypeSafeQueryDao().doBatchedQuery(
+                query, "townId", Arrays.asList(town1.getId(), town2.getId()));
+        assertEquals(1, results.get(town1.getId()).size());
+        assertEquals(2, results.get(town1.getId()).get(0).getChildren().size());
+        assertTrue(results.get(town2.getId()).isEmpty());
+    }
+
+}
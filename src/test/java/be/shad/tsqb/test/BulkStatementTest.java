@@ -0,0 +1,168 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static be.shad.tsqb.values.HqlQueryValueImpl.hql;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.NamedParameter;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.query.TypeSafeBulkQuery;
+import be.shad.tsqb.query.TypeSafeDeleteQuery;
+import be.shad.tsqb.query.TypeSafeQuery;
+import be.shad.tsqb.query.TypeSafeSubQuery;
+import be.shad.tsqb.query.TypeSafeUpdateQuery;
+import be.shad.tsqb.values.HqlQueryValue;
+
+public class BulkStatementTest extends TypeSafeQueryTest {
+    private Town town;
+
+    @Before
+    public void createTestData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh");
+        creator.createTestPerson(town, "Emma");
+        creator.createTestPerson(town, "Jane");
+    }
+
+    @Test
+    public void testUpdateWithDirectValues() {
+        TypeSafeUpdateQuery update = createUpdateQuery();
+        Person person = update.update(Person.class);
+        update.set(person.getName()).to("Joshua");
+        update.set(person.isMarried()).to(true);
+        update.where(person.getName()).eq("Josh");
+
+        validateBulk(update, 1, hql("update Person hobj1 set hobj1.name = :np1, hobj1.married = :np2 "
+                + "where hobj1.name = :np3", "Joshua", Boolean.TRUE, "Josh"));
+        assertEquals(Arrays.asList("Emma", "Jane", "Joshua"), selectNames());
+    }
+
+    @Test
+    public void testUpdateWithArithmeticValue() {
+        TypeSafeUpdateQuery update = createUpdateQuery();
+        Person person = update.update(Person.class);
+        update.set(person.getAge()).to(update.getArithmeticsBuilder().value(person.getAge()).add(1));
+
+        validateBulk(update, 3, hql("update Person hobj1 set hobj1.age = (hobj1.age + 1)"));
+    }
+
+    @Test
+    public void testUpdateRelationToNull() {
+        TypeSafeUpdateQuery update = createUpdateQuery();
+        Person person = update.update(Person.class);
+        update.set(person.getSpouse()).toNull();
+        update.where(person.getTown().getId()).eq(town.getId());
+
+        validateBulk(update, 3, hql("update Person hobj1 set hobj1.spouse = null "
+                + "where hobj1.town.id = :np1", town.getId()));
+    }
+
+    @Test
+    public void testUpdateWithNamedParameter() {
+        TypeSafeUpdateQuery update = createUpdateQuery();
+        Person person = update.update(Person.class);
+        update.set(person.getName()).to("Emily");
+        update.where(person.getName()).eq().named("name");
+        update.named().setValue("name", "Emma");
+
+        validateBulk(update, 1, hql("update Person hobj1 set hobj1.name = :np1 "
+                + "where hobj1.name = :np2", "Emily", "Emma"));
+    }
+
+    @Test
+    public void testDelete() {
+        TypeSafeDeleteQuery delete = createDeleteQuery();
+        Person person = delete.delete(Person.class);
+        delete.where(person.getName()).in(Arrays.asList("Josh", "Jane"));
+
+        validateBulk(delete, 2, hql("delete from Person hobj1 where hobj1.name in (:np1)", 
+                Arrays.asList("Josh", "Jane")));
+        assertEquals(Arrays.asList("Emma"), selectNames());
+    }
+
+    @Test
+    public void testDeleteWithSubquery() {
+        TypeSafeDeleteQuery delete = createDeleteQuery();
+        Person person = delete.delete(Person.class);
+
+        TypeSafeSubQuery<Long> townSQ = delete.subquery(Long.class);
+        Town subTown = townSQ.from(Town.class);
+        townSQ.where(subTown.getName()).eq("TestTown");
+        townSQ.select(subTown.getId());
+        delete.where(person.getTown().getId()).in(townSQ);
+
+        validateBulk(delete, 3, hql("delete from Person hobj1 where hobj1.town.id in "
+                + "(select hobj2.id from Town hobj2 where hobj2.name = :np1)", "TestTown"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testJoinsAreNotAllowed() {
+        TypeSafeDeleteQuery delete = createDeleteQuery();
+        Person person = delete.delete(Person.class);
+        delete.where(person.getTown().getName()).eq("TestTown");
+        delete.toHqlQueryValue();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetPropertyOfOtherEntityIsNotAllowed() {
+        TypeSafeUpdateQuery update = createUpdateQuery();
+        Person person = update.update(Person.class);
+        update.set(person.getTown().getName()).to("Other");
+    }
+
+    /**
+     * A statement can't be selected from or listed by the dao.
+     */
+    @Test
+    public void testStatementsAreNotQueries() {
+        assertFalse(createUpdateQuery() instanceof TypeSafeQuery);
+        assertFalse(createDeleteQuery() instanceof TypeSafeQuery);
+    }
+
+    private List<String> selectNames() {
+        query = createQuery();
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.orderBy().asc(person.getName());
+        return getTypeSafeQueryDao().doQuery(query);
+    }
+
+    /**
+     * Checks the hql and params and executes the statement.
+     */
+    private void validateBulk(TypeSafeBulkQuery bulkQuery, int expectedCount, HqlQueryValue expected) {
+        HqlQueryValue actual = bulkQuery.toHqlQueryValue();
+        List<Object> actualParams = new LinkedList<>();
+        for(Object param: actual.getParams()) {
+            actualParams.add(param instanceof NamedParameter ? ((NamedParameter) param).getValue(): param);
+        }
+        assertEquals(expected.getHql(), actual.getHql());
+        assertEquals(expected.getParams(), actualParams);
+        assertEquals(expectedCount, getTypeSafeQueryDao().executeUpdate(bulkQuery));
+    }
+
+}
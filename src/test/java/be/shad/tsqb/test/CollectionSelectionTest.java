@@ -0,0 +1,246 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.hibernate.NonUniqueResultException;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.domain.people.Relation;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.selection.ResultGrouping;
+import be.shad.tsqb.selection.TypeSafeQueryResultTransformer;
+import be.shad.tsqb.selection.parallel.CollectionSelectionMerger;
+import be.shad.tsqb.selection.parallel.SelectionMerger1;
+
+public class CollectionSelectionTest extends TypeSafeQueryTest {
+    private Person person;
+    private Person child;
+
+    @Before
+    public void createTestData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        Person josh = creator.createTestPerson(town, "Josh");
+        Person mike = creator.createTestPerson(town, "Mike");
+        creator.createTestPerson(town, "Emily");
+        creator.addChildRelation(josh, creator.createTestPerson(town, "Anna"));
+        creator.addChildRelation(josh, creator.createTestPerson(town, "Zed"));
+        creator.addChildRelation(mike, creator.createTestPerson(town, "Kid"));
+    }
+
+    /**
+     * Selects the persons with the names of their children, without an order by.
+     */
+    private void selectPersonsWithChildren(String... names) {
+        person = query.from(Person.class);
+        Relation relation = query.join(person.getChildRelations(), JoinType.Left);
+        child = query.join(relation.getChild(), JoinType.Left);
+
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        dto.setThePersonsName(person.getName());
+        PersonDto childDto = query.selectCollectionValues(dto, PersonDto.class, 
+                new CollectionSelectionMerger<PersonDto, PersonDto>() {
+            @Override
+            public Collection<PersonDto> getCollection(PersonDto result) {
+                if (result.getChildren() == null) {
+                    result.setChildren(new ArrayList<PersonDto>());
+                }
+                return result.getChildren();
+            }
+        });
+        childDto.setThePersonsName(child.getName());
+        query.where(person.getName()).in(Arrays.asList(names));
+    }
+
+    @Test
+    public void testConsecutiveRowsAreGrouped() {
+        selectPersonsWithChildren("Josh", "Mike", "Emily");
+        query.orderBy().asc(person.getName()).asc(child.getName());
+
+        List<PersonDto> results = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(3, results.size());
+        assertEquals("Emily", results.get(0).getThePersonsName());
+        assertNull(results.get(0).getChildren());
+        assertEquals("Josh", results.get(1).getThePersonsName());
+        assertEquals("[Anna, Zed]", childNames(results.get(1)));
+        assertEquals("Mike", results.get(2).getThePersonsName());
+        assertEquals("[Kid]", childNames(results.get(2)));
+    }
+
+    @Test
+    public void testUnorderedRowsAreGroupedWhenHashed() {
+        selectPersonsWithChildren("Josh", "Mike");
+        query.orderBy().asc(child.getName());
+        query.setResultGrouping(ResultGrouping.Hashed);
+
+        List<PersonDto> results = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(2, results.size());
+        assertEquals("Josh", results.get(0).getThePersonsName());
+        assertEquals("[Anna, Zed]", childNames(results.get(0)));
+        assertEquals("Mike", results.get(1).getThePersonsName());
+        assertEquals("[Kid]", childNames(results.get(1)));
+    }
+
+    @Test
+    public void testUnorderedRowsAreOnlyGroupedWhenConsecutive() {
+        selectPersonsWithChildren("Josh", "Mike");
+        query.orderBy().asc(child.getName());
+
+        List<PersonDto> results = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(3, results.size());
+        assertEquals("[Anna]", childNames(results.get(0)));
+        assertEquals("[Kid]", childNames(results.get(1)));
+        assertEquals("[Zed]", childNames(results.get(2)));
+    }
+
+    @Test
+    public void testFirstResultKeepsAllCollectionValues() {
+        selectPersonsWithChildren("Josh", "Mike");
+        query.orderBy().asc(person.getName()).asc(child.getName());
+
+        PersonDto result = getTypeSafeQueryDao().first(query);
+        assertEquals("Josh", result.getThePersonsName());
+        assertEquals("[Anna, Zed]", childNames(result));
+    }
+
+    @Test
+    public void testUniqueResultKeepsAllCollectionValues() {
+        selectPersonsWithChildren("Josh");
+
+        PersonDto result = getTypeSafeQueryDao().unique(query);
+        assertEquals("Josh", result.getThePersonsName());
+        assertEquals("[Anna, Zed]", childNames(result));
+    }
+
+    @Test(expected = NonUniqueResultException.class)
+    public void testUniqueResultFailsForMultipleGroupedResults() {
+        selectPersonsWithChildren("Josh", "Mike");
+        query.orderBy().asc(person.getName());
+
+        getTypeSafeQueryDao().unique(query);
+    }
+
+    /**
+     * The values merged into the result dto are part of the values which identify
+     * a grouped result, persons with the same name aren't grouped together.
+     */
+    @Test
+    public void testMergedValuesIdentifyGroupedResult() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.addChildRelation(creator.createTestPerson(town, "Josh"), 
+                creator.createTestPerson(town, "Ben"));
+
+        person = query.from(Person.class);
+        Relation relation = query.join(person.getChildRelations(), JoinType.Left);
+        child = query.join(relation.getChild(), JoinType.Left);
+
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setThePersonsName(person.getName());
+        query.selectMergeValues(dto, new SelectionMerger1<PersonDto, Long>() {
+            @Override
+            public void mergeValueIntoResult(PersonDto partialResult, Long id) {
+                partialResult.setId(id);
+            }
+        }).setValue(person.getId());
+        PersonDto childDto = query.selectCollectionValues(dto, PersonDto.class, 
+                new CollectionSelectionMerger<PersonDto, PersonDto>() {
+            @Override
+            public Collection<PersonDto> getCollection(PersonDto result) {
+                if (result.getChildren() == null) {
+                    result.setChildren(new ArrayList<PersonDto>());
+                }
+                return result.getChildren();
+            }
+        });
+        childDto.setThePersonsName(child.getName());
+        query.where(person.getName()).eq("Josh");
+        query.orderBy().asc(person.getId()).asc(child.getName());
+
+        List<PersonDto> results = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(2, results.size());
+        assertNotEquals(results.get(0).getId(), results.get(1).getId());
+        assertEquals("[Anna, Zed]", childNames(results.get(0)));
+        assertEquals("[Ben]", childNames(results.get(1)));
+    }
+
+    /**
+     * Without values selected into the result dto, all rows would be grouped into one result.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testGroupingWithoutResultValuesIsRejected() {
+        person = query.from(Person.class);
+        Relation relation = query.join(person.getChildRelations());
+
+        PersonDto dto = query.select(PersonDto.class);
+        PersonDto childDto = query.selectCollectionValues(dto, PersonDto.class, 
+                new CollectionSelectionMerger<PersonDto, PersonDto>() {
+            @Override
+            public Collection<PersonDto> getCollection(PersonDto result) {
+                return result.getChildren();
+            }
+        });
+        childDto.setThePersonsName(relation.getChild().getName());
+
+        query.toHqlQuery();
+    }
+
+    /**
+     * An execution which failed before the list was transformed
+     * must not group the rows of the next execution into its results.
+     */
+    @Test
+    public void testIncompleteExecutionIsNotGroupedIntoNextExecution() {
+        selectPersonsWithChildren("Josh");
+        TypeSafeQueryResultTransformer transformer = (TypeSafeQueryResultTransformer) 
+                query.toHqlQuery().getResultTransformer();
+        Object[] tuple = { 1L, "Josh", "Anna" };
+        String[] aliases = new String[tuple.length];
+
+        transformer.beginExecution();
+        Object failedResult = transformer.transformTuple(tuple.clone(), aliases);
+
+        transformer.beginExecution();
+        Object result = transformer.transformTuple(tuple.clone(), aliases);
+        List<?> results = transformer.transformList(Arrays.asList(result));
+        assertNotSame(failedResult, result);
+        assertEquals("[Anna]", childNames((PersonDto) results.get(0)));
+    }
+
+    private String childNames(PersonDto dto) {
+        List<String> names = new ArrayList<>();
+        for(PersonDto child: dto.getChildren()) {
+            names.add(child.getThePersonsName());
+        }
+        return names.toString();
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.dao.columnar.ColumnarResult;
+import be.shad.tsqb.dao.columnar.DictionaryResultColumn;
+import be.shad.tsqb.dao.columnar.LongResultColumn;
+import be.shad.tsqb.domain.House;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+
+public class ColumnarQueryTest extends TypeSafeQueryTest {
+
+    @Before
+    public void createTestData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh").setAge(30);
+        creator.createTestPerson(town, "Emma").setAge(25);
+        creator.createTestPerson(town, "Jane").setAge(40);
+    }
+
+    @Test
+    public void testColumnarQuery() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.select(person.getAge());
+        query.select(person.getTown().getGeographicCoordinate().getLongitude());
+        query.select(person.getTown().getName());
+        query.orderBy().asc(person.getName());
+
+        ColumnarResult result = getTypeSafeQueryDao().doColumnarQuery(query);
+        assertEquals(3, result.getRowCount());
+        assertEquals(Arrays.asList("Emma", "Jane", "Josh"), result.getDictionaryColumn(0).getDictionary());
+        assertArrayEquals(new long[] { 25, 40, 30 }, result.getLongColumn(1).getValues());
+        assertArrayEquals(new double[] { 1d, 1d, 1d }, result.getDoubleColumn(2).getValues(), 0d);
+
+        DictionaryResultColumn townNames = result.getDictionaryColumn(3);
+        assertEquals(Arrays.asList("TestTown"), townNames.getDictionary());
+        assertArrayEquals(new int[] { 0, 0, 0 }, townNames.getCodes());
+        assertFalse(townNames.isNull(0));
+    }
+
+    @Test
+    public void testColumnarQueryNamesColumnsByAlias() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setThePersonsName(person.getName());
+        dto.setPersonAge(person.getAge());
+        query.where(person.getName()).eq("Josh");
+
+        ColumnarResult result = getTypeSafeQueryDao().doColumnarQuery(query);
+        LongResultColumn ages = (LongResultColumn) result.getColumn("personAge");
+        assertEquals(30L, ages.getLong(0));
+        assertEquals("Josh", ((DictionaryResultColumn) result.getColumn("thePersonsName")).getString(0));
+    }
+
+    @Test
+    public void testColumnarQueryWithoutResults() {
+        Person person = query.from(Person.class);
+        query.select(person.getAge());
+        query.where(person.getName()).eq("Nobody");
+
+        ColumnarResult result = getTypeSafeQueryDao().doColumnarQuery(query);
+        assertEquals(0, result.getRowCount());
+        assertTrue(result.getLongColumn(0).getValues().length == 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEntitiesCantBeSelectedInColumns() {
+        Person person = query.from(Person.class);
+        query.select(person);
+        getTypeSafeQueryDao().doColumnarQuery(query);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBigDecimalsCantBeSelectedInColumns() {
+        House house = query.from(House.class);
+        query.select(house.getPrice());
+        getTypeSafeQueryDao().doColumnarQuery(query);
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import org.junit.Test;
+
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.query.TypeSafeSubQuery;
+
+public class CommonSubqueryTest extends TypeSafeQueryTest {
+
+    @Test
+    public void testSameSubqueryIsSharedInSelectAndWhere() {
+        Person person = query.from(Person.class);
+        TypeSafeSubQuery<Long> childrenSQ = query.subquery(Long.class);
+        Person child = childrenSQ.from(Person.class);
+        childrenSQ.select(childrenSQ.hqlFunction().count());
+        childrenSQ.where(child.getAge()).lt(18).and(child.getTown().getId()).eq(person.getTown().getId());
+
+        query.select(person.getName());
+        query.select(childrenSQ);
+        query.whereNumber(childrenSQ).gt(2L);
+
+        validate("select hobj1.name, (select count(*) from Person hobj2 where hobj2.age < :np1 and hobj2.town.id = hobj1.town.id) "
+                + "from Person hobj1 "
+                + "where (select count(*) from Person hobj2 where hobj2.age < :np1 and hobj2.town.id = hobj1.town.id) > :np3",
+                18, 18, 2L);
+    }
+
+    @Test
+    public void testIdenticalSubqueriesAreShared() {
+        Person person = query.from(Person.class);
+        query.where(person.getId()).in(createMarriedPersonsSubquery(30)).
+                or(person.getSpouse().getId()).in(createMarriedPersonsSubquery(30));
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1 "
+                + "where hobj1.id in (select hobj2.id from Person hobj2 where hobj2.married = :np1 and hobj2.age > :np2) "
+                + "or hobj1.spouse.id in (select hobj2.id from Person hobj2 where hobj2.married = :np1 and hobj2.age > :np2)",
+                true, 30, true, 30);
+    }
+
+    @Test
+    public void testSubqueriesWithOtherParameterValuesAreNotShared() {
+        Person person = query.from(Person.class);
+        query.where(person.getId()).in(createMarriedPersonsSubquery(30)).
+                or(person.getSpouse().getId()).in(createMarriedPersonsSubquery(40));
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1 "
+                + "where hobj1.id in (select hobj2.id from Person hobj2 where hobj2.married = :np1 and hobj2.age > :np2) "
+                + "or hobj1.spouse.id in (select hobj4.id from Person hobj4 where hobj4.married = :np3 and hobj4.age > :np4)",
+                true, 30, true, 40);
+    }
+
+    @Test
+    public void testSubqueriesCorrelatedToOtherValuesAreNotShared() {
+        Person person = query.from(Person.class);
+        query.whereNumber(createTownMatesSubquery(person)).gt(1L).
+                andNumber(createTownMatesSubquery(person.getSpouse())).gt(1L);
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1 join hobj1.spouse hobj5 "
+                + "where (select count(*) from Person hobj2 where hobj2.town.id = hobj1.town.id) > :np1 "
+                + "and (select count(*) from Person hobj6 where hobj6.town.id = hobj5.town.id) > :np2",
+                1L, 1L);
+    }
+
+    private TypeSafeSubQuery<Long> createMarriedPersonsSubquery(int minAge) {
+        TypeSafeSubQuery<Long> subquery = query.subquery(Long.class);
+        Person person = subquery.from(Person.class);
+        subquery.select(person.getId());
+        subquery.where(person.isMarried()).isTrue().and(person.getAge()).gt(minAge);
+        return subquery;
+    }
+
+    private TypeSafeSubQuery<Long> createTownMatesSubquery(Person mate) {
+        TypeSafeSubQuery<Long> subquery = query.subquery(Long.class);
+        Person person = subquery.from(Person.class);
+        subquery.select(subquery.hqlFunction().count());
+        subquery.where(person.getTown().getId()).eq(mate.getTown().getId());
+        return subquery;
+    }
+
+}
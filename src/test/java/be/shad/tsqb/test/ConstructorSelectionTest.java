@@ -0,0 +1,140 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.dto.PersonValue;
+import be.shad.tsqb.selection.SelectionValueTransformer;
+
+public class ConstructorSelectionTest extends TypeSafeQueryTest {
+
+    @Before
+    public void createTestData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh").setAge(30);
+        creator.createTestPerson(town, "Emma").setAge(25);
+    }
+
+    @Test
+    public void testSelectIntoConstructor() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.select(person.getAge());
+        query.setResultConstructor(PersonValue.class);
+        query.orderBy().asc(person.getName());
+
+        validate("select hobj1.name, hobj1.age from Person hobj1 order by hobj1.name");
+        List<PersonValue> results = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(2, results.size());
+        assertEquals("Emma", results.get(0).getName());
+        assertEquals(25, results.get(0).getAge());
+        assertEquals("Josh", results.get(1).getName());
+        assertEquals(30, results.get(1).getAge());
+    }
+
+    @Test
+    public void testSelectIntoFactoryMethod() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.select(person.getAge());
+        query.setResultFactory(PersonValue.class, "of");
+        query.where(person.getName()).eq("Josh");
+
+        validate("select hobj1.name, hobj1.age from Person hobj1 where hobj1.name = :np1", "Josh");
+        List<PersonValue> results = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(1, results.size());
+        assertEquals("JOSH", results.get(0).getName());
+        assertEquals(30, results.get(0).getAge());
+    }
+
+    /**
+     * The constructor is matched by the selected value classes.
+     */
+    @Test
+    public void testSelectIntoOverloadedConstructor() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.select(person.getTown().getName());
+        query.setResultConstructor(PersonValue.class);
+        query.where(person.getName()).eq("Josh");
+
+        validate("select hobj1.name, hobj2.name from Person hobj1 join hobj1.town hobj2 where hobj1.name = :np1", "Josh");
+        List<PersonValue> results = getTypeSafeQueryDao().doQuery(query);
+        assertEquals("Josh (TestTown)", results.get(0).getName());
+        assertEquals(-1, results.get(0).getAge());
+    }
+
+    @Test
+    public void testSelectTransformedValueIntoConstructor() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.select(query.select(Integer.class, person.getAge(), new SelectionValueTransformer<Integer, Integer>() {
+            @Override
+            public Integer convert(Integer a) {
+                return a + 1;
+            }
+        }));
+        // the class of a transformed value is unknown, the factory method is not overloaded:
+        query.setResultFactory(PersonValue.class, "of");
+        query.where(person.getName()).eq("Emma");
+
+        validate("select hobj1.name, hobj1.age from Person hobj1 where hobj1.name = :np1", "Emma");
+        List<PersonValue> results = getTypeSafeQueryDao().doQuery(query);
+        assertEquals("EMMA", results.get(0).getName());
+        assertEquals(26, results.get(0).getAge());
+    }
+
+    @Test
+    public void testCopiedQueryKeepsConstructor() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.select(person.getAge());
+        query.setResultConstructor(PersonValue.class);
+
+        List<PersonValue> results = getTypeSafeQueryDao().doQuery(query.copy());
+        assertEquals(2, results.size());
+        assertTrue(getTypeSafeQueryDao().exists(query));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoMatchingConstructor() {
+        Person person = query.from(Person.class);
+        query.select(person.getAge());
+        query.setResultConstructor(PersonValue.class);
+        query.toHqlQuery();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConstructorCantBeCombinedWithSelectionDto() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setThePersonsName(person.getName());
+        query.setResultConstructor(PersonValue.class);
+        query.toHqlQuery();
+    }
+
+}
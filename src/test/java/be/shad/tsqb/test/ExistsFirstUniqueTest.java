@@ -0,0 +1,155 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static be.shad.tsqb.values.HqlQueryValueImpl.hql;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.hibernate.NonUniqueResultException;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+
+public class ExistsFirstUniqueTest extends TypeSafeQueryTest {
+
+    /**
+     * Selects a dto and orders by name, used to check the rewritten copies.
+     */
+    private Person createPersonDtoQuery() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        dto.setThePersonsName(person.getName());
+        query.where(person.getAge()).gt(18);
+        query.orderBy().asc(person.getName());
+        return person;
+    }
+
+    @Test
+    public void testExistsQueryHql() {
+        createPersonDtoQuery();
+        TypeSafeRootQueryInternal internal = (TypeSafeRootQueryInternal) query;
+        validate(internal.copyForExists(), hql(
+                "select 1 from Person hobj1 where hobj1.age > :np1", 18));
+        assertEquals(1, internal.copyForExists().getMaxResults());
+
+        // the original query is not affected:
+        validate("select hobj1.id as id, hobj1.name as thePersonsName from Person hobj1 "
+                + "where hobj1.age > :np1 order by hobj1.name", 18);
+    }
+
+    @Test
+    public void testFirstQueryHql() {
+        createPersonDtoQuery();
+        TypeSafeRootQueryInternal internal = (TypeSafeRootQueryInternal) query;
+        validate(internal.copyForFirstResult(), hql(
+                "select hobj1.id as id, hobj1.name as thePersonsName from Person hobj1 "
+                + "where hobj1.age > :np1 order by hobj1.name", 18));
+        assertEquals(1, internal.copyForFirstResult().getMaxResults());
+    }
+
+    @Test
+    public void testUniqueQueryHql() {
+        createPersonDtoQuery();
+        TypeSafeRootQueryInternal internal = (TypeSafeRootQueryInternal) query;
+        validate(internal.copyForUniqueResult(), hql(
+                "select hobj1.id as id, hobj1.name as thePersonsName from Person hobj1 "
+                + "where hobj1.age > :np1", 18));
+        assertEquals(2, internal.copyForUniqueResult().getMaxResults());
+    }
+
+    @Test
+    public void testExists() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh");
+        creator.createTestPerson(town, "Emma");
+
+        Person person = query.from(Person.class);
+        query.where(person.getName()).eq("Josh");
+        assertTrue(getTypeSafeQueryDao().exists(query));
+
+        query = createQuery();
+        person = query.from(Person.class);
+        query.where(person.getName()).eq("Jane");
+        assertFalse(getTypeSafeQueryDao().exists(query));
+    }
+
+    @Test
+    public void testExistsWithFetchJoins() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh");
+
+        Person person = query.from(Person.class);
+        Town personTown = query.join(person.getTown(), JoinType.Fetch);
+        query.join(personTown.getInhabitants(), JoinType.LeftFetch);
+        query.where(personTown.getName()).eq(town.getName());
+        validate(((TypeSafeRootQueryInternal) query).copyForExists(), hql(
+                "select 1 from Person hobj1 join hobj1.town hobj2 left join hobj2.inhabitants hobj3 "
+                + "where hobj2.name = :np1", town.getName()));
+        assertTrue(getTypeSafeQueryDao().exists(query));
+    }
+
+    @Test
+    public void testFirst() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh");
+        creator.createTestPerson(town, "Emma");
+
+        Person person = query.from(Person.class);
+        query.orderBy().asc(person.getName());
+        Person first = getTypeSafeQueryDao().first(query);
+        assertEquals("Emma", first.getName());
+
+        query.where(person.getName()).eq("Jane");
+        assertNull(getTypeSafeQueryDao().first(query));
+    }
+
+    @Test
+    public void testUnique() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh");
+        creator.createTestPerson(town, "Emma");
+
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.where(person.getName()).eq("Josh");
+        assertEquals("Josh", getTypeSafeQueryDao().unique(query));
+    }
+
+    @Test(expected = NonUniqueResultException.class)
+    public void testUniqueNotUnique() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh");
+        creator.createTestPerson(town, "Emma");
+
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        getTypeSafeQueryDao().unique(query);
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.dao.memory.InMemoryQueryEvaluator;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.query.TypeSafeSubQuery;
+import be.shad.tsqb.values.CaseTypeSafeValue;
+import be.shad.tsqb.values.TypeSafeValue;
+import be.shad.tsqb.values.arithmetic.ArithmeticTypeSafeValueFactory;
+
+/**
+ * Evaluates the queries in memory and on the database, using the same entities.
+ */
+public class InMemoryQueryTest extends TypeSafeQueryTest {
+    private InMemoryQueryEvaluator evaluator;
+
+    @Before
+    public void createTestData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town testTown = creator.createTestTown();
+        Town otherTown = creator.createTestTown();
+        otherTown.setName("OtherTown");
+        testTown.setInhabitants(new HashSet<Person>());
+        otherTown.setInhabitants(new HashSet<Person>());
+        List<Person> persons = new ArrayList<>();
+        for(int i=0; i < 12; i++) {
+            Town town = i % 3 == 0 ? otherTown: testTown;
+            Person person = creator.createTestPerson(town, "Person" + i);
+            person.setAge(i * 7 % 10);
+            person.setMarried(i % 2 == 0);
+            town.getInhabitants().add(person);
+            persons.add(person);
+        }
+        evaluator = new InMemoryQueryEvaluator();
+        evaluator.addEntities(Town.class, Arrays.asList(testTown, otherTown));
+        evaluator.addEntities(Person.class, persons);
+    }
+
+    @Test
+    public void testRestrictionsOrderingAndPaging() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt(2).and(person.getName()).startsWith("Person1").
+                or(person.getTown().getName()).eq("OtherTown");
+        query.select(person.getName());
+        query.orderBy().desc(person.getAge()).asc(person.getName());
+        query.setFirstResult(1);
+        query.setMaxResults(3);
+
+        List<Object> results = evaluator.doQuery(query);
+        assertEquals(Arrays.asList("Person11", "Person9", "Person6"), results);
+        assertEquals(getTypeSafeQueryDao().doQuery(query), results);
+    }
+
+    @Test
+    public void testEntitySelection() {
+        Person person = query.from(Person.class);
+        query.where(person.isMarried()).isTrue().and(person.getAge()).in(Arrays.asList(0, 4, 8));
+        query.orderBy().asc(person.getName());
+
+        List<Person> results = evaluator.doQuery(query);
+        assertEquals(4, results.size());
+        assertEquals(getTypeSafeQueryDao().doQuery(query), results);
+    }
+
+    @Test
+    public void testSelectionDto() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        dto.setThePersonsName(person.getName());
+        dto.setPersonAge(person.getAge());
+        query.where(person.getTown().getName()).eq("TestTown");
+        query.orderBy().asc(person.getId());
+
+        List<PersonDto> results = evaluator.doQuery(query);
+        List<PersonDto> expected = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(8, results.size());
+        assertEquals(expected.size(), results.size());
+        for(int i=0; i < results.size(); i++) {
+            assertEquals(expected.get(i).getId(), results.get(i).getId());
+            assertEquals(expected.get(i).getThePersonsName(), results.get(i).getThePersonsName());
+            assertEquals(expected.get(i).getPersonAge(), results.get(i).getPersonAge());
+        }
+    }
+
+    @Test
+    public void testGroupByWithAggregates() {
+        Person person = query.from(Person.class);
+        TypeSafeValue<Long> count = query.hqlFunction().count();
+        query.select(person.getTown().getName());
+        query.select(count);
+        query.select(query.hqlFunction().sum(person.getAge()));
+        query.select(query.hqlFunction().max(person.getAge()));
+        query.groupBy(person.getTown().getName());
+        query.havingNumber(count).gt(1L);
+        query.orderBy().asc(person.getTown().getName());
+
+        List<Object[]> results = evaluator.doQuery(query);
+        assertEquals(Arrays.asList(
+                Arrays.<Object>asList("OtherTown", 4L, 6L, 3),
+                Arrays.<Object>asList("TestTown", 8L, 46L, 9)), toLists(results));
+        assertEquals(toLists(getTypeSafeQueryDao().<Object[]>doQuery(query)), toLists(results));
+    }
+
+    @Test
+    public void testAggregatesWithoutGroupBy() {
+        Person person = query.from(Person.class);
+        query.select(query.hqlFunction().count());
+        query.select(query.hqlFunction().avg(person.getAge()));
+        query.where(person.getAge()).gt(100);
+
+        List<Object[]> results = evaluator.doQuery(query);
+        assertEquals(1, results.size());
+        assertEquals(Arrays.<Object>asList(0L, null), Arrays.asList(results.get(0)));
+    }
+
+    @Test
+    public void testCollectionJoinWithCalculatedValues() {
+        Town town = query.from(Town.class);
+        Person person = query.join(town.getInhabitants(), JoinType.Left);
+        query.joinWith(person).where(person.isMarried()).isTrue();
+
+        ArithmeticTypeSafeValueFactory arithmetics = query.getArithmeticsBuilder();
+        // literals of the same length, the database pads the shorter ones:
+        CaseTypeSafeValue<String> ageGroup = query.hqlFunction().caseWhen(String.class);
+        ageGroup.is("older").when(person.getAge()).gt(5);
+        ageGroup.is("young");
+        query.select(town.getName());
+        query.select(person.getName());
+        query.select(arithmetics.value(person.getAge()).multiply(2).add(1));
+        query.select(ageGroup);
+        query.orderBy().asc(town.getName()).asc(person.getName());
+
+        List<Object[]> results = evaluator.doQuery(query);
+        assertEquals(6, results.size());
+        assertEquals(Arrays.<Object>asList("OtherTown", "Person0", 1, "young"), Arrays.asList(results.get(0)));
+        assertEquals(toLists(getTypeSafeQueryDao().<Object[]>doQuery(query)), toLists(results));
+    }
+
+    @Test
+    public void testDistinctSelection() {
+        Person person = query.from(Person.class);
+        query.select(query.hqlFunction().distinct(person.getTown().getName()));
+        query.orderBy().desc(person.getTown().getName());
+
+        List<Object> results = evaluator.doQuery(query);
+        assertEquals(Arrays.asList("TestTown", "OtherTown"), results);
+        assertEquals(getTypeSafeQueryDao().doQuery(query), results);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSubqueriesAreNotSupported() {
+        Person person = query.from(Person.class);
+        TypeSafeSubQuery<Long> subquery = query.subquery(Long.class);
+        Person subPerson = subquery.from(Person.class);
+        subquery.select(subPerson.getId());
+        subquery.where(subPerson.isMarried()).isTrue();
+        query.where(person.getId()).in(subquery);
+
+        evaluator.doQuery(query);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testStrictModeRejectsOrderingStrings() {
+        Person person = query.from(Person.class);
+        query.orderBy().asc(person.getName());
+        evaluator.setStrict(true);
+
+        evaluator.doQuery(query);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testStrictModeRejectsOverflow() {
+        Person person = query.from(Person.class);
+        query.select(query.getArithmeticsBuilder().value(person.getAge()).add(Integer.MAX_VALUE));
+        evaluator.setStrict(true);
+
+        evaluator.doQuery(query);
+    }
+
+    @Test
+    public void testEntitiesMustBeAdded() {
+        query.from(Person.class);
+        try {
+            new InMemoryQueryEvaluator().doQuery(query);
+        } catch (IllegalArgumentException e) {
+            assertFalse(e.getMessage().isEmpty());
+            return;
+        }
+        throw new AssertionError("Querying entities which were not added should fail.");
+    }
+
+    private static List<List<Object>> toLists(List<Object[]> tuples) {
+        List<List<Object>> lists = new ArrayList<>();
+        for(Object[] tuple: tuples) {
+            lists.add(Arrays.asList(tuple));
+        }
+        return lists;
+    }
+
+}
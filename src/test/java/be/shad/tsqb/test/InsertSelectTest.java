@@ -0,0 +1,89 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.TownProperty;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.query.TypeSafeInsertQuery;
+import be.shad.tsqb.query.TypeSafeRootQuery;
+import be.shad.tsqb.values.HqlQueryValue;
+
+public class InsertSelectTest extends TypeSafeQueryTest {
+
+    @Before
+    public void createTestData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestPerson(town, "Josh");
+        creator.createTestPerson(town, "Emma");
+    }
+
+    @Test
+    public void testInsertSelectedValues() {
+        TypeSafeRootQuery select = createQuery();
+        Person person = select.from(Person.class);
+        TownProperty property = select.select(TownProperty.class);
+        property.setTown(person.getTown());
+        property.setPropertyKey(person.getName());
+        property.setPropertyValue(select.toValue("inhabitant").select());
+        select.where(person.getName()).startsWith("J");
+        select.orderBy().asc(person.getName());
+
+        TypeSafeInsertQuery insert = createInsertQuery(select);
+        HqlQueryValue hql = insert.toHqlQueryValue();
+        assertEquals("insert into TownProperty (town, propertyKey, propertyValue) "
+                + "select hobj2, hobj1.name, 'inhabitant' from Person hobj1 join hobj1.town hobj2 "
+                + "where hobj1.name like :np1", hql.getHql());
+        assertEquals(1, getTypeSafeQueryDao().executeUpdate(insert));
+
+        query = createQuery();
+        TownProperty result = query.from(TownProperty.class);
+        query.select(result.getPropertyKey());
+        List<String> keys = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(Arrays.asList("Josh"), keys);
+    }
+
+    /**
+     * Mimics an unchecked selection, the age is selected into the name.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSelectedValueTypeMustMatchProperty() {
+        TypeSafeRootQuery select = createQuery();
+        Person person = select.from(Person.class);
+        Town town = select.select(Town.class);
+        select.toValue(person.getAge()).select();
+        town.setName(null);
+        createInsertQuery(select).toHqlQueryValue();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSelectQueryMustSelectIntoEntity() {
+        TypeSafeRootQuery select = createQuery();
+        Person person = select.from(Person.class);
+        select.select(person.getName());
+        createInsertQuery(select).toHqlQueryValue();
+    }
+
+}
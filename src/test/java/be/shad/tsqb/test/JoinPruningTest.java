@@ -0,0 +1,163 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.domain.people.Relation;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.query.TypeSafeSubQuery;
+import be.shad.tsqb.values.HqlQueryValueImpl;
+
+public class JoinPruningTest extends TypeSafeQueryTest {
+
+    @Test
+    public void testUnusedLeftJoinIsPruned() {
+        Person person = query.from(Person.class);
+        query.join(person.getSpouse(), JoinType.Left);
+
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1");
+    }
+
+    @Test
+    public void testUnusedLeftJoinWithRestrictionsIsPruned() {
+        Person person = query.from(Person.class);
+        Person spouse = query.join(person.getSpouse(), JoinType.Left);
+        query.joinWith(spouse).where(spouse.getAge()).gt(18);
+
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1");
+    }
+
+    @Test
+    public void testUnusedInnerJoinOnNotNullPropertyIsPruned() {
+        Person person = query.from(Person.class);
+        query.join(person.getTown(), JoinType.Inner);
+
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1");
+    }
+
+    /**
+     * The inner join removes the persons without spouse.
+     */
+    @Test
+    public void testUnusedInnerJoinOnNullablePropertyIsKept() {
+        Person person = query.from(Person.class);
+        query.join(person.getSpouse(), JoinType.Inner);
+
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1 join hobj1.spouse hobj2");
+    }
+
+    /**
+     * The inner join removes the persons without spouse, even when the town is not null.
+     */
+    @Test
+    public void testUnusedInnerJoinOnLeftJoinedParentIsKept() {
+        Person person = query.from(Person.class);
+        Person spouse = query.join(person.getSpouse(), JoinType.Left);
+        query.join(spouse.getTown(), JoinType.Inner);
+
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1 left join hobj1.spouse hobj2 join hobj2.town hobj3");
+    }
+
+    @Test
+    public void testNestedUnusedJoinsArePruned() {
+        Person person = query.from(Person.class);
+        Person spouse = query.join(person.getSpouse(), JoinType.Left);
+        query.join(spouse.getTown(), JoinType.Left);
+
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1");
+    }
+
+    @Test
+    public void testUsedJoinsAreKept() {
+        Person person = query.from(Person.class);
+        Person spouse = query.join(person.getSpouse(), JoinType.Left);
+        Town town = query.join(person.getTown(), JoinType.Inner);
+
+        query.select(person.getName());
+        query.where(town.getName()).eq("TestTown");
+        query.orderBy().asc(spouse.getName());
+
+        validate("select hobj1.name from Person hobj1 left join hobj1.spouse hobj2 join hobj1.town hobj3 "
+                + "where hobj3.name = :np1 order by hobj2.name", "TestTown");
+    }
+
+    @Test
+    public void testJoinUsedInSubqueryIsKept() {
+        Person person = query.from(Person.class);
+        Person spouse = query.join(person.getSpouse(), JoinType.Left);
+
+        TypeSafeSubQuery<Long> subquery = query.subquery(Long.class);
+        Person child = subquery.from(Person.class);
+        subquery.where(child.getName()).eq(spouse.getName());
+        subquery.select(child.getId());
+
+        query.select(person.getName());
+        query.where(person.getId()).in(subquery);
+
+        validate("select hobj1.name from Person hobj1 left join hobj1.spouse hobj2 "
+                + "where hobj1.id in (select hobj3.id from Person hobj3 where hobj3.name = hobj2.name)");
+    }
+
+    @Test
+    public void testCollectionJoinIsKept() {
+        Person person = query.from(Person.class);
+        query.join(person.getChildRelations(), JoinType.Left);
+
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1 left join hobj1.childRelations hobj2");
+    }
+
+    /**
+     * Without projections, the joined entities are selected as well.
+     */
+    @Test
+    public void testJoinsAreKeptWithoutProjections() {
+        Person person = query.from(Person.class);
+        query.join(person.getSpouse(), JoinType.Left);
+
+        validate(" from Person hobj1 left join hobj1.spouse hobj2");
+    }
+
+    @Test
+    public void testJoinUsedInCustomHqlIsKept() {
+        Person person = query.from(Person.class);
+        Relation relation = query.join(person.getChildRelations(), JoinType.Left);
+        query.join(relation.getChild(), JoinType.Left);
+
+        query.select(person.getName());
+        query.where(new HqlQueryValueImpl("hobj3.age > 5"));
+
+        validate("select hobj1.name from Person hobj1 left join hobj1.childRelations hobj2 "
+                + "left join hobj2.child hobj3 where hobj3.age > 5");
+    }
+
+}
@@ -15,22 +15,38 @@
  */
 package be.shad.tsqb.test;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 
+import org.hibernate.transform.ResultTransformer;
+
+import be.shad.tsqb.domain.Product;
 import be.shad.tsqb.domain.Town;
 import be.shad.tsqb.domain.people.Person;
 import be.shad.tsqb.domain.people.Relation;
+import be.shad.tsqb.domain.properties.PlanningProperties;
+import be.shad.tsqb.domain.properties.ProductProperties;
 import be.shad.tsqb.dto.LoadTestDto;
 import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.query.TypeSafeRootQueryInternal;
 import be.shad.tsqb.query.TypeSafeSubQuery;
+import be.shad.tsqb.selection.SelectionTree;
+import be.shad.tsqb.values.HqlQueryBuilderParamsImpl;
 
 public class LoadTest extends TypeSafeQueryTest {
     
-    public static final void main(String[] argv) {
+    public static final void main(String[] argv) throws Exception {
         LoadTest loadTest = new LoadTest();
         loadTest.initialize();
         loadTest.loadTest();
+        loadTest.initialize();
+        loadTest.resultTransformerAllocationLoadTest();
+        loadTest.initialize();
+        loadTest.resultTransformerReflectionComparisonLoadTest();
     }
 
     public void loadTest() {
@@ -67,5 +83,120 @@ public class LoadTest extends TypeSafeQueryTest {
         time = (System.currentTimeMillis() - time);
         logger.debug(time / (double) n + "ms/query\n" + last.toFormattedString());
     }
+
+    /**
+     * Measures the bytes allocated per transformed row, only the dto itself should
+     * be allocated when the values are set on primitive fields.
+     */
+    public void resultTransformerAllocationLoadTest() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            logger.debug("Thread allocation measurement is not supported by this jvm.");
+            return;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        long threadId = Thread.currentThread().getId();
+
+        Person person = query.from(Person.class);
+        LoadTestDto dto = query.select(LoadTestDto.class);
+        dto.setTownName(person.getName());
+        dto.setMaxAge(person.getAge());
+        dto.setFiftyPlusCount(person.getId());
+        ResultTransformer transformer = query.toHqlQuery().getResultTransformer();
+
+        Object[] tuple = new Object[] { "Town", 50, 3L };
+        String[] aliases = new String[tuple.length];
+        int rows = 1000000;
+        for(int i=0; i < rows; i++) {
+            transformer.transformTuple(tuple, aliases);
+        }
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId);
+        for(int i=0; i < rows; i++) {
+            transformer.transformTuple(tuple, aliases);
+        }
+        allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocated;
+        logger.debug((allocated / (double) rows) + " bytes/row allocated");
+    }
+
+    /**
+     * Compares the method handle based transformation with the reflective
+     * field access it replaced, selecting into nested dtos.
+     * <p>
+     * Both paths are warmed up and then measured in alternating rounds, the created dtos
+     * are read into a checksum so the jit can't remove their creation. The numbers are
+     * indicative only, this is not a harness like jmh which controls forking and dead code.
+     */
+    public void resultTransformerReflectionComparisonLoadTest() throws Exception {
+        Product selectProxy = query.select(Product.class);
+        selectProxy.setName("Name");
+        selectProxy.getProperties().getPlanning().setAlgorithm("Algo");
+        Object[] tuple = new Object[] {"Name", "Algo"};
+        String[] aliases = new String[tuple.length];
+
+        Field[] fields = new Field[] {
+            SelectionTree.getField(Product.class, "name"),
+            SelectionTree.getField(Product.class, "properties"),
+            SelectionTree.getField(ProductProperties.class, "planning"),
+            SelectionTree.getField(PlanningProperties.class, "algorithm")
+        };
+        AccessibleObject.setAccessible(fields, true);
+
+        HqlQuery hqlQuery = new HqlQuery();
+        ((TypeSafeRootQueryInternal) query).getProjections().appendTo(hqlQuery, new HqlQueryBuilderParamsImpl());
+        ResultTransformer transformer = hqlQuery.getResultTransformer();
+
+        int rows = 100000;
+        int rounds = 20;
+        long checksum = 0;
+        for(int round=0; round < rounds; round++) {
+            checksum += transformWithReflection(fields, tuple, rows);
+            checksum += transformWithMethodHandles(transformer, tuple, aliases, rows);
+        }
+
+        long reflectionTime = 0;
+        long methodHandlesTime = 0;
+        for(int round=0; round < rounds; round++) {
+            long time = System.nanoTime();
+            checksum += transformWithReflection(fields, tuple, rows);
+            reflectionTime += System.nanoTime() - time;
+            time = System.nanoTime();
+            checksum += transformWithMethodHandles(transformer, tuple, aliases, rows);
+            methodHandlesTime += System.nanoTime() - time;
+        }
+        double measuredRows = rounds * (double) rows;
+        logger.debug((reflectionTime / measuredRows) + "ns/row (reflection)");
+        logger.debug((methodHandlesTime / measuredRows) + "ns/row (method handles)");
+        logger.debug("checksum " + checksum);
+    }
+
+    private static long transformWithReflection(Field[] fields, Object[] tuple, int rows) throws Exception {
+        long checksum = 0;
+        for(int i=0; i < rows; i++) {
+            Product product = Product.class.newInstance();
+            Object properties = ProductProperties.class.newInstance();
+            fields[1].set(product, properties);
+            Object planning = PlanningProperties.class.newInstance();
+            fields[2].set(properties, planning);
+            fields[0].set(product, tuple[0]);
+            fields[3].set(planning, tuple[1]);
+            checksum += checksum(product);
+        }
+        return checksum;
+    }
+
+    private static long transformWithMethodHandles(ResultTransformer transformer,
+            Object[] tuple, String[] aliases, int rows) {
+        long checksum = 0;
+        for(int i=0; i < rows; i++) {
+            checksum += checksum((Product) transformer.transformTuple(tuple, aliases));
+        }
+        return checksum;
+    }
+
+    private static long checksum(Product product) {
+        return System.identityHashCode(product)
+                + product.getName().length()
+                + product.getProperties().getPlanning().getAlgorithm().length();
+    }
     
 }
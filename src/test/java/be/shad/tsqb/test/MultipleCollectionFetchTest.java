@@ -0,0 +1,99 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.query.JoinType;
+
+public class MultipleCollectionFetchTest extends TypeSafeQueryTest {
+
+    @Before
+    public void createTestData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        creator.createTestHouse(town, "Castle", 3);
+        creator.createTestHouse(town, "Cabin", 1);
+        creator.createTestPerson(town, "Josh");
+        creator.createTestPerson(town, "Emma");
+        creator.createTestPerson(town, "Jane");
+        getSessionFactory().getCurrentSession().flush();
+        getSessionFactory().getCurrentSession().clear();
+    }
+
+    /**
+     * Both left fetched collections are fetched in separate queries,
+     * the root query returns the town only once instead of once per building/inhabitant combination.
+     */
+    @Test
+    public void testLeftFetchCollectionsAreSplit() {
+        Town town = query.from(Town.class);
+        query.join(town.getBuildings(), JoinType.LeftFetch);
+        query.join(town.getInhabitants(), JoinType.LeftFetch);
+
+        List<Town> towns = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(1, towns.size());
+        assertTrue(Hibernate.isInitialized(towns.get(0).getBuildings()));
+        assertTrue(Hibernate.isInitialized(towns.get(0).getInhabitants()));
+        assertEquals(2, towns.get(0).getBuildings().size());
+        assertEquals(3, towns.get(0).getInhabitants().size());
+
+        // the original query is not modified:
+        assertEquals(" from Town hobj1 left join fetch hobj1.buildings hobj2 "
+                + "left join fetch hobj1.inhabitants hobj3", query.toHqlQuery().getHql());
+    }
+
+    /**
+     * The inner fetch is kept because it restricts the towns, 
+     * only the left fetch is split off.
+     */
+    @Test
+    public void testInnerFetchIsNotSplit() {
+        Town town = query.from(Town.class);
+        query.join(town.getBuildings(), JoinType.Fetch);
+        query.join(town.getInhabitants(), JoinType.LeftFetch);
+
+        List<Town> towns = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(2, towns.size());
+        assertSame(towns.get(0), towns.get(1));
+        assertTrue(Hibernate.isInitialized(towns.get(0).getBuildings()));
+        assertTrue(Hibernate.isInitialized(towns.get(0).getInhabitants()));
+        assertEquals(3, towns.get(0).getInhabitants().size());
+    }
+
+    /**
+     * A single collection fetch doesn't cause a product, the query is executed as is.
+     */
+    @Test
+    public void testSingleFetchIsNotSplit() {
+        Town town = query.from(Town.class);
+        query.join(town.getInhabitants(), JoinType.LeftFetch);
+
+        List<Town> towns = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(3, towns.size());
+        assertTrue(Hibernate.isInitialized(towns.get(0).getInhabitants()));
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.dao.TypeSafeQueryDaoImpl;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.domain.people.Relation;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.query.JoinType;
+import be.shad.tsqb.selection.SelectionValueTransformer;
+import be.shad.tsqb.selection.parallel.CollectionSelectionMerger;
+
+public class PipelinedQueryTest extends TypeSafeQueryTest {
+    private ExecutorService executor;
+    private TypeSafeQueryDaoImpl dao;
+
+    @Before
+    public void createTestData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        for(int i=0; i < 50; i++) {
+            creator.createTestPerson(town, "Person" + i).setAge(i);
+        }
+        executor = Executors.newFixedThreadPool(4);
+        dao = (TypeSafeQueryDaoImpl) getTypeSafeQueryDao();
+        dao.setPipelineBatchSize(3);
+        dao.setMaxPendingPipelineBatches(2);
+    }
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+        dao.setPipelineBatchSize(TypeSafeQueryDaoImpl.DEFAULT_PIPELINE_BATCH_SIZE);
+        dao.setMaxPendingPipelineBatches(TypeSafeQueryDaoImpl.DEFAULT_MAX_PENDING_PIPELINE_BATCHES);
+    }
+
+    private void selectPersonDtos() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        dto.setPersonAge(person.getAge());
+        dto.setThePersonsName(query.select(String.class, person.getName(), 
+                new SelectionValueTransformer<String, String>() {
+            @Override
+            public String convert(String a) {
+                return a.toUpperCase();
+            }
+        }));
+        query.orderBy().asc(person.getAge());
+    }
+
+    @Test
+    public void testOrderedPipelinedQuery() {
+        selectPersonDtos();
+        List<PersonDto> expected = dao.doQuery(query);
+        List<PersonDto> results = dao.doPipelinedQuery(query, executor, true);
+
+        assertEquals(50, results.size());
+        for(int i=0; i < results.size(); i++) {
+            assertEquals(expected.get(i).getId(), results.get(i).getId());
+            assertEquals(i, results.get(i).getPersonAge());
+            assertEquals("PERSON" + i, results.get(i).getThePersonsName());
+        }
+    }
+
+    @Test
+    public void testUnorderedPipelinedQuery() {
+        selectPersonDtos();
+        List<PersonDto> results = dao.doPipelinedQuery(query, executor, false);
+
+        assertEquals(50, results.size());
+        Set<Integer> ages = new HashSet<>();
+        for(PersonDto result: results) {
+            ages.add(result.getPersonAge());
+            assertEquals("PERSON" + result.getPersonAge(), result.getThePersonsName());
+        }
+        assertEquals(50, ages.size());
+    }
+
+    @Test
+    public void testPipelinedQueryWithoutTransformer() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.where(person.getAge()).lt(10);
+        query.orderBy().asc(person.getAge());
+
+        List<String> names = dao.doPipelinedQuery(query, executor, true);
+        List<String> expected = new ArrayList<>();
+        for(int i=0; i < 10; i++) {
+            expected.add("Person" + i);
+        }
+        assertEquals(expected, names);
+    }
+
+    @Test
+    public void testPipelinedQueryAppliesResultsWindow() {
+        selectPersonDtos();
+        query.setFirstResult(10);
+        query.setMaxResults(5);
+
+        List<PersonDto> results = dao.doPipelinedQuery(query, executor, true);
+        assertEquals(5, results.size());
+        assertEquals(10, results.get(0).getPersonAge());
+        assertEquals(14, results.get(4).getPersonAge());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPipelinedQueryRejectsCollectionValues() {
+        Person person = query.from(Person.class);
+        Relation relation = query.join(person.getChildRelations(), JoinType.Left);
+        Person child = query.join(relation.getChild(), JoinType.Left);
+
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setId(person.getId());
+        PersonDto childDto = query.selectCollectionValues(dto, PersonDto.class, 
+                new CollectionSelectionMerger<PersonDto, PersonDto>() {
+            @Override
+            public Collection<PersonDto> getCollection(PersonDto result) {
+                return result.getChildren();
+            }
+        });
+        childDto.setThePersonsName(child.getName());
+
+        dao.doPipelinedQuery(query, executor, true);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPipelinedQueryRethrowsTransformerExceptions() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setThePersonsName(query.select(String.class, person.getName(), 
+                new SelectionValueTransformer<String, String>() {
+            @Override
+            public String convert(String a) {
+                throw new IllegalStateException("Failed on " + a);
+            }
+        }));
+
+        dao.doPipelinedQuery(query, executor, false);
+    }
+}
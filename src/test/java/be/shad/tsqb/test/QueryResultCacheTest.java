@@ -0,0 +1,204 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.dao.TypeSafeQueryDaoImpl;
+import be.shad.tsqb.dao.memory.QueryResultCache;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.query.TypeSafeRootQuery;
+import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+
+public class QueryResultCacheTest extends TypeSafeQueryTest {
+    private QueryResultCache cache;
+    private CountingDao dao;
+
+    @Before
+    public void createTestData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        for(int i=0; i < 10; i++) {
+            Person person = creator.createTestPerson(town, "Person" + i);
+            person.setAge(i * 7 % 10);
+            person.setMarried(i % 2 == 0);
+        }
+        getSessionFactory().getCurrentSession().flush();
+        cache = new QueryResultCache();
+        dao = new CountingDao();
+    }
+
+    @Test
+    public void testRefinedQueryIsEvaluatedInMemory() {
+        cache.doQuery(dao, createMarriedPersonsQuery(null));
+        assertEquals(1, dao.count);
+
+        TypeSafeRootQuery refined = createMarriedPersonsQuery(null);
+        Person person = getPerson(refined);
+        refined.where(person.getAge()).gt(3);
+        refined.select(person.getName());
+        refined.orderBy().desc(person.getAge());
+
+        List<String> results = cache.doQuery(dao, refined);
+        assertEquals(1, dao.count);
+        assertEquals(Arrays.asList("Person4", "Person8", "Person2"), results);
+        assertEquals(getTypeSafeQueryDao().doQuery(refined), results);
+    }
+
+    /**
+     * The order of strings and whether they are like a pattern depend on the
+     * database collation, these refinements are queried.
+     */
+    @Test
+    public void testCollationDependentRefinementsAreQueried() {
+        cache.doQuery(dao, createMarriedPersonsQuery(null));
+
+        TypeSafeRootQuery ordered = createMarriedPersonsQuery(null);
+        Person person = getPerson(ordered);
+        ordered.select(person.getName());
+        ordered.orderBy().desc(person.getName());
+        List<String> results = cache.doQuery(dao, ordered);
+        assertEquals(2, dao.count);
+        assertEquals(Arrays.asList("Person8", "Person6", "Person4", "Person2", "Person0"), results);
+
+        TypeSafeRootQuery like = createMarriedPersonsQuery(null);
+        person = getPerson(like);
+        like.where(person.getName()).startsWith("person");
+        cache.doQuery(dao, like);
+        assertEquals(3, dao.count);
+    }
+
+    @Test
+    public void testOtherRestrictionsAreQueried() {
+        cache.doQuery(dao, createMarriedPersonsQuery(5));
+
+        // different parameter value:
+        cache.doQuery(dao, createMarriedPersonsQuery(6));
+        assertEquals(2, dao.count);
+
+        // an or-ed restriction selects more than the cached results:
+        TypeSafeRootQuery widened = createMarriedPersonsQuery(5);
+        Person person = getPerson(widened);
+        widened.where().or(person.getName()).eq("Person1");
+        cache.doQuery(dao, widened);
+        assertEquals(3, dao.count);
+    }
+
+    @Test
+    public void testSmallerLimitIsEvaluatedInMemory() {
+        TypeSafeRootQuery limited = createOrderedQuery();
+        limited.setMaxResults(4);
+        cache.doQuery(dao, limited);
+
+        TypeSafeRootQuery page = createOrderedQuery();
+        page.setFirstResult(1);
+        page.setMaxResults(3);
+        List<Person> results = cache.doQuery(dao, page);
+        assertEquals(1, dao.count);
+        assertEquals(getTypeSafeQueryDao().doQuery(page), results);
+
+        // more results than were cached:
+        TypeSafeRootQuery larger = createOrderedQuery();
+        larger.setMaxResults(5);
+        cache.doQuery(dao, larger);
+        assertEquals(2, dao.count);
+
+        // additional restrictions on a limited result:
+        TypeSafeRootQuery restricted = createOrderedQuery();
+        Person person = getPerson(restricted);
+        restricted.where(person.isMarried()).isTrue();
+        restricted.setMaxResults(2);
+        cache.doQuery(dao, restricted);
+        assertEquals(3, dao.count);
+    }
+
+    /**
+     * The towns of persons loaded in a new session are uninitialized proxies,
+     * their properties are unknown so the refinement must be queried.
+     */
+    @Test
+    public void testUninitializedAssociationsAreQueried() {
+        getSessionFactory().getCurrentSession().clear();
+        cache.doQuery(dao, createMarriedPersonsQuery(null));
+
+        TypeSafeRootQuery refined = createMarriedPersonsQuery(null);
+        Person person = getPerson(refined);
+        refined.where(person.getTown().getName()).eq("TestTown");
+        refined.select(person.getName());
+        refined.orderBy().asc(person.getName());
+
+        List<String> results = cache.doQuery(dao, refined);
+        assertEquals(2, dao.count);
+        assertEquals(Arrays.asList("Person0", "Person2", "Person4", "Person6", "Person8"), results);
+    }
+
+    @Test
+    public void testProjectionsAreNotCached() {
+        TypeSafeRootQuery names = createMarriedPersonsQuery(null);
+        Person person = getPerson(names);
+        names.select(person.getName());
+        assertFalse(cache.put(names, cache.doQuery(dao, names)));
+        cache.doQuery(dao, names);
+        assertEquals(2, dao.count);
+    }
+
+    private TypeSafeRootQuery createMarriedPersonsQuery(Integer maxAge) {
+        TypeSafeRootQuery query = createQuery();
+        Person person = query.from(Person.class);
+        query.where(person.isMarried()).isTrue();
+        if (maxAge != null) {
+            query.where(person.getAge()).lt(maxAge);
+        }
+        return query;
+    }
+
+    private TypeSafeRootQuery createOrderedQuery() {
+        TypeSafeRootQuery query = createQuery();
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt(0);
+        query.orderBy().asc(person.getAge()).asc(person.getName());
+        return query;
+    }
+
+    private Person getPerson(TypeSafeRootQuery query) {
+        return (Person) ((TypeSafeRootQueryInternal) query).getDataTree().getFroms().get(0).getRoot().getProxy();
+    }
+
+    /**
+     * Counts the queries executed on the database.
+     */
+    private class CountingDao extends TypeSafeQueryDaoImpl {
+        private int count;
+
+        public CountingDao() {
+            super(getSessionFactory());
+        }
+
+        @Override
+        protected <T> List<T> list(TypeSafeRootQuery tsqbQuery) {
+            count++;
+            return super.list(tsqbQuery);
+        }
+    }
+}
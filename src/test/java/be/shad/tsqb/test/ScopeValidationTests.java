@@ -90,6 +90,24 @@ public class ScopeValidationTests extends TypeSafeQueryTest {
         validate("select (select max(hobj2.constructionDate) from Building hobj2) from Town hobj1");
     }
 
+    @Test
+    public void testRootProxyUsableInSubSubquery() {
+        House house = query.from(House.class);
+        TypeSafeSubQuery<Date> subquery = query.subquery(Date.class);
+        TypeSafeSubQuery<Date> subsubquery = subquery.subquery(Date.class);
+        Building building = subsubquery.from(Building.class);
+        subsubquery.select(subsubquery.hqlFunction().max(building.getConstructionDate()));
+        subsubquery.where(building.getConstructionDate()).before(house.getConstructionDate());
+        Building subBuilding = subquery.from(Building.class);
+        subquery.select(subquery.hqlFunction().max(subBuilding.getConstructionDate()));
+        subquery.where(subBuilding.getConstructionDate()).before(subsubquery);
+        query.where(house.getConstructionDate()).after(subquery);
+
+        validate(" from House hobj1 where hobj1.constructionDate > (select max(hobj3.constructionDate) from Building hobj3 "
+                + "where hobj3.constructionDate < (select max(hobj2.constructionDate) from Building hobj2 "
+                + "where hobj2.constructionDate < hobj1.constructionDate))");
+    }
+
     /**
      * 
      */
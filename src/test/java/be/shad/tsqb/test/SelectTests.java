@@ -18,6 +18,7 @@ package be.shad.tsqb.test;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 
 import org.apache.commons.lang3.mutable.MutableObject;
@@ -314,6 +315,62 @@ public class SelectTests extends TypeSafeQueryTest {
                 + "from House hobj1");
     }
 
+    /**
+     * Cases which can't be true are left out, a case which is always true becomes the else case.
+     */
+    @Test
+    public void selectCaseWhenValueWithConstantRestrictions() {
+        House house = query.from(House.class);
+
+        CaseTypeSafeValue<String> value = new CaseTypeSafeValue<String>(query, String.class);
+        value.is("Never").when(5).gt(10);
+        value.is("High").when(house.getFloors()).gt(40);
+        value.is("Always").when(1).lt(2);
+        value.is(house.getName()).when(house.getFloors()).lt(2);
+
+        @SuppressWarnings("unchecked")
+        MutablePair<String, Object> pair = query.select(MutablePair.class);
+        pair.setLeft(value.select());
+
+        validate("select (case when (hobj1.floors > 40) then 'High' else 'Always' end) as left from House hobj1");
+    }
+
+    @Test
+    public void selectCaseWhenValueWhichIsAlwaysTrue() {
+        House house = query.from(House.class);
+
+        CaseTypeSafeValue<Integer> value = new CaseTypeSafeValue<Integer>(query, Integer.class);
+        value.is(1).when(5).gt(10);
+        value.is(house.getFloors()).when(1).lt(2);
+
+        @SuppressWarnings("unchecked")
+        MutablePair<Integer, Object> pair = query.select(MutablePair.class);
+        pair.setLeft(value.select());
+
+        validate("select hobj1.floors as left from House hobj1");
+    }
+
+    /**
+     * Enums are added as java constants when literals are required.
+     */
+    @Test
+    public void selectCaseWhenValueWithEnumAndCollectionLiterals() {
+        House house = query.from(House.class);
+
+        CaseTypeSafeValue<String> value = new CaseTypeSafeValue<String>(query, String.class);
+        value.is("Old").when(house.getStyle()).eq(Style.the1980s);
+        value.is("High").when(house.getFloors()).in(Arrays.asList(40, 50));
+        value.is(house.getName()).otherwise();
+
+        @SuppressWarnings("unchecked")
+        MutablePair<String, Object> pair = query.select(MutablePair.class);
+        pair.setLeft(value.select());
+
+        validate("select (case when (hobj1.style = be.shad.tsqb.domain.Style.the1980s) then 'Old' "
+                + "when (hobj1.floors in (40, 50)) then 'High' "
+                + "else hobj1.name end) as left from House hobj1");
+    }
+
     @Test
     public void selectMultiJoinedEntityValues() {
         Person person = query.from(Person.class);
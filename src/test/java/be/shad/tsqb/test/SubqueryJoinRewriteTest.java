@@ -0,0 +1,172 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.query.TypeSafeSubQuery;
+
+public class SubqueryJoinRewriteTest extends TypeSafeQueryTest {
+
+    @Before
+    public void enableRewrite() {
+        query.setSubqueriesRewrittenToJoins(true);
+    }
+
+    @Test
+    public void testInSubqueryOnIdentifierIsRewritten() {
+        Person person = query.from(Person.class);
+        TypeSafeSubQuery<Long> townSQ = query.subquery(Long.class);
+        Town town = townSQ.from(Town.class);
+        townSQ.select(town.getId());
+        townSQ.where(town.getName()).eq("TestTown");
+
+        query.where(person.getTown().getId()).in(townSQ).and(person.getAge()).gt(20);
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1, Town hobj2 "
+                + "where hobj1.town.id = hobj2.id and hobj2.name = :np1 and hobj1.age > :np2", "TestTown", 20);
+    }
+
+    @Test
+    public void testCorrelatedExistsOnIdentifierIsRewritten() {
+        Person person = query.from(Person.class);
+        TypeSafeSubQuery<Long> townSQ = query.subquery(Long.class);
+        Town town = townSQ.from(Town.class);
+        townSQ.where(town.getId()).eq(person.getTown().getId()).and(town.getName()).startsWith("Test");
+
+        query.whereExists(townSQ);
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1, Town hobj2 "
+                + "where (hobj2.id = hobj1.town.id and hobj2.name like :np1)", "Test%");
+    }
+
+    @Test
+    public void testNestedSubqueriesAreRewritten() {
+        Person person = query.from(Person.class);
+        TypeSafeSubQuery<Long> spouseSQ = query.subquery(Long.class);
+        Person spouse = spouseSQ.from(Person.class);
+        TypeSafeSubQuery<Long> townSQ = spouseSQ.subquery(Long.class);
+        Town town = townSQ.from(Town.class);
+        townSQ.select(town.getId());
+        townSQ.where(town.getName()).eq("TestTown");
+        spouseSQ.select(spouse.getId());
+        spouseSQ.where(spouse.getTown().getId()).in(townSQ);
+
+        query.where(person.getSpouse().getId()).in(spouseSQ);
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1, Person hobj2, Town hobj3 where hobj1.spouse.id = hobj2.id "
+                + "and hobj2.town.id = hobj3.id and hobj3.name = :np1", "TestTown");
+    }
+
+    /**
+     * The town name is not unique, joining the towns could multiply the persons.
+     */
+    @Test
+    public void testInSubqueryOnOtherValueIsNotRewritten() {
+        Person person = query.from(Person.class);
+        TypeSafeSubQuery<String> townSQ = query.subquery(String.class);
+        Town town = townSQ.from(Town.class);
+        townSQ.select(town.getName());
+
+        query.where(person.getName()).in(townSQ);
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1 where hobj1.name in (select hobj2.name from Town hobj2)");
+    }
+
+    /**
+     * The town is only restricted to the persons' town for part of the rows.
+     */
+    @Test
+    public void testOredSubqueryIsNotRewritten() {
+        Person person = query.from(Person.class);
+        TypeSafeSubQuery<Long> townSQ = query.subquery(Long.class);
+        Town town = townSQ.from(Town.class);
+        townSQ.select(town.getId());
+
+        query.where(person.getTown().getId()).in(townSQ).or(person.getAge()).gt(20);
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1 where hobj1.town.id in "
+                + "(select hobj2.id from Town hobj2) or hobj1.age > :np1", 20);
+    }
+
+    @Test
+    public void testNotExistsIsNotRewritten() {
+        Person person = query.from(Person.class);
+        TypeSafeSubQuery<Long> townSQ = query.subquery(Long.class);
+        Town town = townSQ.from(Town.class);
+        townSQ.where(town.getId()).eq(person.getTown().getId());
+
+        query.whereNotExists(townSQ);
+        query.select(person.getName());
+
+        validate("select hobj1.name from Person hobj1 where not exists "
+                + "(select 1 from Town hobj2 where hobj2.id = hobj1.town.id)");
+    }
+
+    /**
+     * Without projections, the towns of the additional from would be selected as well.
+     */
+    @Test
+    public void testQueryWithoutProjectionsIsNotRewritten() {
+        Person person = query.from(Person.class);
+        TypeSafeSubQuery<Long> townSQ = query.subquery(Long.class);
+        Town town = townSQ.from(Town.class);
+        townSQ.select(town.getId());
+
+        query.where(person.getTown().getId()).in(townSQ);
+
+        validate(" from Person hobj1 where hobj1.town.id in (select hobj2.id from Town hobj2)");
+    }
+
+    @Test
+    public void testRewrittenQueryHasSameResults() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town testTown = creator.createTestTown();
+        Town otherTown = creator.createTestTown();
+        otherTown.setName("OtherTown");
+        for(int i=0; i < 6; i++) {
+            creator.createTestPerson(i % 2 == 0 ? testTown: otherTown, "Person" + i);
+        }
+        getSessionFactory().getCurrentSession().flush();
+
+        Person person = query.from(Person.class);
+        TypeSafeSubQuery<Long> townSQ = query.subquery(Long.class);
+        Town town = townSQ.from(Town.class);
+        townSQ.where(town.getId()).eq(person.getTown().getId()).and(town.getName()).eq("TestTown");
+        query.whereExists(townSQ);
+        query.select(person.getName());
+        query.orderBy().asc(person.getName());
+
+        List<String> rewritten = getTypeSafeQueryDao().doQuery(query);
+        query.setSubqueriesRewrittenToJoins(false);
+        List<String> original = getTypeSafeQueryDao().doQuery(query);
+        assertEquals(3, rewritten.size());
+        assertEquals(original, rewritten);
+    }
+
+}
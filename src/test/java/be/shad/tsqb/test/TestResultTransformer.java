@@ -16,26 +16,40 @@
 package be.shad.tsqb.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.commons.lang3.mutable.MutableInt;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.hibernate.transform.AliasToBeanResultTransformer;
+import org.hibernate.transform.ResultTransformer;
 import org.junit.Test;
 
 import be.shad.tsqb.domain.Product;
+import be.shad.tsqb.domain.people.Person;
 import be.shad.tsqb.domain.properties.ManyProperties;
 import be.shad.tsqb.domain.properties.PlanningProperties;
+import be.shad.tsqb.dto.LoadTestDto;
 import be.shad.tsqb.dto.StringToPlanningPropertiesTransformer;
 import be.shad.tsqb.hql.HqlQuery;
 import be.shad.tsqb.query.TypeSafeRootQueryInternal;
+import be.shad.tsqb.selection.ExecutionScopedResultTransformer;
+import be.shad.tsqb.selection.MemoizingSelectionValueTransformer;
+import be.shad.tsqb.selection.SelectionValueTransformer;
 import be.shad.tsqb.selection.TypeSafeQueryProjections;
 import be.shad.tsqb.selection.TypeSafeQueryResultTransformer;
+import be.shad.tsqb.selection.WithoutAliasesQueryResultTransformer;
 import be.shad.tsqb.values.HqlQueryBuilderParams;
 import be.shad.tsqb.values.HqlQueryBuilderParamsImpl;
 
@@ -100,6 +114,162 @@ public class TestResultTransformer extends TypeSafeQueryTest {
         assertEquals("Algo", product.getProperties().getPlanning().getAlgorithm());
     }
 
+    @Test
+    public void testResultTransformerCreatesNestedDtosForNullValues() {
+        Product product = transformNestedAlgorithm(false, "Name", null);
+        assertEquals("Name", product.getName());
+        assertNull(product.getProperties().getPlanning().getAlgorithm());
+    }
+
+    @Test
+    public void testLazyNestedDtoCreationSkipsNullValues() {
+        Product product = transformNestedAlgorithm(true, "Name", null);
+        assertEquals("Name", product.getName());
+        assertNull(product.getProperties());
+    }
+
+    @Test
+    public void testLazyNestedDtoCreationCreatesDtosForValues() {
+        Product product = transformNestedAlgorithm(true, null, "Algo");
+        assertNull(product.getName());
+        assertEquals("Algo", product.getProperties().getPlanning().getAlgorithm());
+    }
+
+    private Product transformNestedAlgorithm(boolean lazyNestedDtoCreation, String name, String algorithm) {
+        query.setLazyNestedDtoCreation(lazyNestedDtoCreation);
+        Product selectProxy = query.select(Product.class);
+        selectProxy.setName("Name");
+        selectProxy.getProperties().getPlanning().setAlgorithm("Algo");
+
+        HqlQuery query = new HqlQuery();
+        getProjections().appendTo(query, new HqlQueryBuilderParamsImpl());
+        return (Product) query.getResultTransformer().transformTuple(
+                new Object[] { name, algorithm }, new String[2]);
+    }
+
+    @Test
+    public void testResultTransformerWidensPrimitiveValues() {
+        Object[] tuple = new Object[] { "Town", Short.valueOf((short) 5), 3L };
+        LoadTestDto dto = (LoadTestDto) createLoadTestDtoTransformer().transformTuple(tuple, new String[3]);
+        assertEquals(5, dto.getMaxAge());
+        assertEquals(Long.valueOf(3L), dto.getFiftyPlusCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testResultTransformerRejectsNullPrimitiveValues() {
+        Object[] tuple = new Object[] { "Town", null, 3L };
+        createLoadTestDtoTransformer().transformTuple(tuple, new String[3]);
+    }
+
+    private ResultTransformer createLoadTestDtoTransformer() {
+        Person person = query.from(Person.class);
+        LoadTestDto dto = query.select(LoadTestDto.class);
+        dto.setTownName(person.getName());
+        dto.setMaxAge(person.getAge());
+        dto.setFiftyPlusCount(person.getId());
+
+        HqlQuery query = new HqlQuery();
+        getProjections().appendTo(query, new HqlQueryBuilderParamsImpl());
+        return query.getResultTransformer();
+    }
+
+    /**
+     * Shares one transformer between threads, each thread checks 
+     * its results only contain the values of its own tuples.
+     */
+    @Test
+    public void testResultTransformerIsThreadSafe() throws Exception {
+        Product selectProxy = query.select(Product.class);
+        selectProxy.setName("Name");
+        selectProxy.getProperties().getPlanning().setAlgorithm("Algo");
+        HqlQuery hqlQuery = new HqlQuery();
+        getProjections().appendTo(hqlQuery, new HqlQueryBuilderParamsImpl());
+        final ResultTransformer transformer = hqlQuery.getResultTransformer();
+
+        int threads = 8;
+        final int rows = 50000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for(int t=0; t < threads; t++) {
+                final String name = "thread" + t;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        Object[] tuple = new Object[] { name, null };
+                        String[] aliases = new String[2];
+                        int mismatches = 0;
+                        for(int i=0; i < rows; i++) {
+                            tuple[1] = name + i;
+                            Product product = (Product) transformer.transformTuple(tuple, aliases);
+                            if (!name.equals(product.getName()) 
+                                    || !tuple[1].equals(product.getProperties().getPlanning().getAlgorithm())) {
+                                mismatches++;
+                            }
+                        }
+                        transformer.transformList(new ArrayList<>());
+                        return mismatches;
+                    }
+                }));
+            }
+            for(Future<Integer> future: futures) {
+                assertEquals(Integer.valueOf(0), future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMemoizingTransformerConvertsDistinctValuesOnce() {
+        final MutableInt conversions = new MutableInt();
+        SelectionValueTransformer<String, PlanningProperties> counting = 
+                new SelectionValueTransformer<String, PlanningProperties>() {
+            @Override
+            public PlanningProperties convert(String algorithm) {
+                conversions.increment();
+                return new StringToPlanningPropertiesTransformer().convert(algorithm);
+            }
+        };
+        List<SelectionValueTransformer<?, ?>> transformers = new ArrayList<>();
+        transformers.add(MemoizingSelectionValueTransformer.memoize(counting));
+        ResultTransformer transformer = new WithoutAliasesQueryResultTransformer(transformers);
+
+        Object first = transformer.transformTuple(new Object[] { "A" }, new String[1]);
+        transformer.transformTuple(new Object[] { "B" }, new String[1]);
+        Object third = transformer.transformTuple(new Object[] { "A" }, new String[1]);
+        assertEquals(2, conversions.intValue());
+        assertSame(first, third);
+
+        // the cache is cleared when the execution is done:
+        transformer.transformList(new ArrayList<>());
+        transformer.transformTuple(new Object[] { "A" }, new String[1]);
+        assertEquals(3, conversions.intValue());
+
+        // and when the next execution begins, in case the previous one failed:
+        ((ExecutionScopedResultTransformer) transformer).beginExecution();
+        transformer.transformTuple(new Object[] { "A" }, new String[1]);
+        assertEquals(4, conversions.intValue());
+    }
+
+    @Test
+    public void testMemoizingTransformerCacheIsBounded() {
+        final MutableInt conversions = new MutableInt();
+        SelectionValueTransformer<String, String> counting = new SelectionValueTransformer<String, String>() {
+            @Override
+            public String convert(String value) {
+                conversions.increment();
+                return value;
+            }
+        };
+        SelectionValueTransformer<String, String> memoizing = new MemoizingSelectionValueTransformer<>(counting, 2);
+        for(String value: Arrays.asList("A", "B", "A", "C", "B", "A")) {
+            memoizing.convert(value);
+        }
+        // A, B, (A cached), C evicts B, B evicts A, A
+        assertEquals(5, conversions.intValue());
+    }
+
     @Test
     public void resultTransformerLoadTest() throws IllegalAccessException, IllegalArgumentException, InvocationTargetException, NoSuchMethodException, SecurityException {
         Product product = query.select(Product.class);
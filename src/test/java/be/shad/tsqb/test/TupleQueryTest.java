@@ -0,0 +1,126 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.dao.tuple.Tuple;
+import be.shad.tsqb.dao.tuple.TupleResult;
+import be.shad.tsqb.domain.Town;
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.dto.PersonDto;
+import be.shad.tsqb.selection.SelectionValueTransformer;
+
+public class TupleQueryTest extends TypeSafeQueryTest {
+
+    @Before
+    public void createTestData() {
+        TestDataCreator creator = new TestDataCreator(getSessionFactory());
+        Town town = creator.createTestTown();
+        for(int i=0; i < 100; i++) {
+            creator.createTestPerson(town, "Person" + i).setAge(i);
+        }
+    }
+
+    @Test
+    public void testTupleQuery() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.select(person.getAge());
+        query.select(person.getTown().getName());
+        query.orderBy().asc(person.getAge());
+
+        TupleResult result = getTypeSafeQueryDao().doTupleQuery(query);
+        assertEquals(100, result.getRowCount());
+        assertEquals(3, result.getColumnCount());
+        int row = 0;
+        for(Tuple tuple: result) {
+            String name = tuple.get(0);
+            int age = tuple.get(1);
+            assertEquals("Person" + row, name);
+            assertEquals(row, age);
+            assertEquals("TestTown", tuple.get(2));
+            row++;
+        }
+        assertEquals(100, row);
+        assertArrayEquals(new Object[] { "Person5", 5, "TestTown" }, result.getTuple(5).toArray());
+        assertEquals("Person7", result.get(7, 0));
+    }
+
+    @Test
+    public void testTupleIteratorReusesView() {
+        Person person = query.from(Person.class);
+        query.select(person.getName());
+        query.select(person.getAge());
+
+        Iterator<Tuple> tuples = getTypeSafeQueryDao().doTupleQuery(query).iterator();
+        Tuple first = tuples.next();
+        assertEquals(0, first.getRow());
+        Tuple second = tuples.next();
+        assertSame(first, second);
+        assertEquals(1, second.getRow());
+    }
+
+    @Test
+    public void testTupleQueryAppliesTransformersAndWindow() {
+        Person person = query.from(Person.class);
+        query.select(query.select(String.class, person.getName(), new SelectionValueTransformer<String, String>() {
+            @Override
+            public String convert(String a) {
+                return a.toUpperCase();
+            }
+        }));
+        query.select(person.getAge());
+        query.orderBy().asc(person.getAge());
+        query.setFirstResult(10);
+        query.setMaxResults(20);
+
+        TupleResult result = getTypeSafeQueryDao().doTupleQuery(query);
+        assertEquals(20, result.getRowCount());
+        assertEquals("PERSON10", result.get(0, 0));
+        assertEquals(29, result.<Integer>get(19, 1).intValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTupleQueryRejectsSelectionDto() {
+        Person person = query.from(Person.class);
+        PersonDto dto = query.select(PersonDto.class);
+        dto.setThePersonsName(person.getName());
+
+        getTypeSafeQueryDao().doTupleQuery(query);
+    }
+
+    /**
+     * A result trimmed after zero rows has an empty buffer which must still grow.
+     */
+    @Test
+    public void testTrimmedEmptyResultGrows() {
+        TupleResult result = new TupleResult(2, 0);
+        result.trimToSize();
+        result.appendRow(new Object[] { "a", 1 });
+        result.appendRow(new Object[] { "b", 2 });
+        assertEquals(2, result.getRowCount());
+        assertEquals("b", result.get(1, 0));
+    }
+
+}
@@ -35,7 +35,10 @@ import be.shad.tsqb.dao.TypeSafeQueryDao;
 import be.shad.tsqb.dao.TypeSafeQueryDaoImpl;
 import be.shad.tsqb.helper.TypeSafeQueryHelperImpl;
 import be.shad.tsqb.hql.HqlQuery;
+import be.shad.tsqb.query.TypeSafeDeleteQuery;
+import be.shad.tsqb.query.TypeSafeInsertQuery;
 import be.shad.tsqb.query.TypeSafeRootQuery;
+import be.shad.tsqb.query.TypeSafeUpdateQuery;
 import be.shad.tsqb.values.HqlQueryValue;
 
 public class TypeSafeQueryTest {
@@ -81,9 +84,29 @@ public class TypeSafeQueryTest {
         return sessionFactory;
     }
 
+    protected TypeSafeQueryHelperImpl getHelper() {
+        return helper;
+    }
+
+    protected TypeSafeQueryDao getTypeSafeQueryDao() {
+        return typeSafeQueryDao;
+    }
+
     protected TypeSafeRootQuery createQuery() {
         return helper.createQuery();
     }
+
+    protected TypeSafeUpdateQuery createUpdateQuery() {
+        return helper.createUpdateQuery();
+    }
+
+    protected TypeSafeDeleteQuery createDeleteQuery() {
+        return helper.createDeleteQuery();
+    }
+
+    protected TypeSafeInsertQuery createInsertQuery(TypeSafeRootQuery selectQuery) {
+        return helper.createInsertQuery(selectQuery);
+    }
     
     /**
      * Creates a query using a session calls list, hibernate should 
@@ -18,6 +18,8 @@ package be.shad.tsqb.test.restrictions;
 import static be.shad.tsqb.restrictions.predicate.RestrictionPredicate.IGNORE_NULL;
 import static java.math.BigDecimal.TEN;
 
+import java.math.BigDecimal;
+
 import org.junit.Test;
 
 import be.shad.tsqb.domain.House;
@@ -25,6 +27,7 @@ import be.shad.tsqb.domain.people.Person;
 import be.shad.tsqb.test.TestDataCreator;
 import be.shad.tsqb.test.TypeSafeQueryTest;
 import be.shad.tsqb.values.DirectTypeSafeValue;
+import be.shad.tsqb.values.LiteralPolicy;
 
 public class OnGoingNumberRestrictionTest extends TypeSafeQueryTest {
     private String NAMED_PARAM_1 = "NAMED_PARAM_1";
@@ -207,20 +210,42 @@ public class OnGoingNumberRestrictionTest extends TypeSafeQueryTest {
         
         House house = query.from(House.class);
         query.where(house.getPrice()).isPositive();
-        validate(" from House hobj1 where hobj1.price > 0.0");
+        validate(" from House hobj1 where hobj1.price > :np1", new BigDecimal("0.0"));
     }
     
     @Test
     public void testIsNegative() {
         Person person = query.from(Person.class);
         query.where(person.getAge()).isNegative();
-        validate(" from Person hobj1 where hobj1.age < 0.0");
+        validate(" from Person hobj1 where hobj1.age < :np1", 0);
     }
     
     @Test
     public void testIsZero() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).isZero();
+        validate(" from Person hobj1 where hobj1.age = :np1", 0);
+    }
+
+    @Test
+    public void testIsZeroWithLiteralsWhenTypesDiffer() {
+        getHelper().setLiteralPolicy(LiteralPolicy.LITERALS_WHEN_TYPES_DIFFER);
         Person person = query.from(Person.class);
         query.where(person.getAge()).isZero();
         validate(" from Person hobj1 where hobj1.age = 0.0");
     }
+
+    @Test
+    public void testOtherNumberTypeIsConvertedToParameter() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt(18L).and(person.getAge()).lt(new BigDecimal("65.0"));
+        validate(" from Person hobj1 where hobj1.age > :np1 and hobj1.age < :np2", 18, 65);
+    }
+
+    @Test
+    public void testInexactNumberIsLiteral() {
+        Person person = query.from(Person.class);
+        query.where(person.getAge()).gt(17.5).and(person.getAge()).lt(Long.MAX_VALUE);
+        validate(" from Person hobj1 where hobj1.age > 17.5 and hobj1.age < " + Long.MAX_VALUE);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+/*
+ * Copyright Gert Wijns gert.wijns@gmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.shad.tsqb.test.restrictions;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import be.shad.tsqb.domain.people.Person;
+import be.shad.tsqb.restrictions.RestrictionsGroupFactory;
+import be.shad.tsqb.test.TypeSafeQueryTest;
+
+public class RestrictionsOptimizerTest extends TypeSafeQueryTest {
+    private RestrictionsGroupFactory rb;
+    private Person person;
+
+    @Before
+    public void optimizeRestrictions() {
+        query.setRestrictionsOptimized(true);
+        rb = query.getGroupedRestrictionsBuilder();
+        person = query.from(Person.class);
+    }
+
+    @Test
+    public void testDuplicateRestrictionsAreRemoved() {
+        query.where(person.getName()).eq("Josh").
+                and(person.isMarried()).isTrue().
+                and(person.getName()).eq("Josh");
+        validate(" from Person hobj1 where hobj1.name = :np1 and hobj1.married = :np2", "Josh", Boolean.TRUE);
+    }
+
+    @Test
+    public void testDuplicateTermsAreRemoved() {
+        query.where(person.getName()).startsWith("Jo").and(person.isMarried()).isTrue().
+                or(person.getAge()).gt(50).
+                or(person.getName()).startsWith("Jo").and(person.isMarried()).isTrue();
+        validate(" from Person hobj1 where hobj1.name like :np1 and hobj1.married = :np2 or hobj1.age > :np3", 
+                "Jo%", Boolean.TRUE, 50);
+    }
+
+    @Test
+    public void testNestedGroupsAreFlattened() {
+        query.where(person.getAge()).gt(5).and(rb.and(
+                rb.where(person.getName()).eq("Josh"),
+                rb.where(person.isMarried()).isTrue()));
+        validate(" from Person hobj1 where hobj1.age > :np1 and hobj1.name = :np2 and hobj1.married = :np3", 
+                5, "Josh", Boolean.TRUE);
+    }
+
+    @Test
+    public void testNestedOrGroupIsKeptInConjunction() {
+        query.where(person.getAge()).gt(5).and(rb.or(
+                rb.where(person.getName()).startsWith("Jo"),
+                rb.where(person.isMarried()).isTrue()));
+        validate(" from Person hobj1 where hobj1.age > :np1 and (hobj1.name like :np2 or hobj1.married = :np3)", 
+                5, "Jo%", Boolean.TRUE);
+    }
+
+    @Test
+    public void testOrEqualitiesAreCollapsedIntoIn() {
+        query.where(person.getName()).eq("Josh").
+                or(person.getName()).eq("Emma").
+                or(person.getName()).in(Arrays.asList("Jane", "Josh"));
+        validate(" from Person hobj1 where hobj1.name in (:np1)", Arrays.asList("Josh", "Emma", "Jane"));
+    }
+
+    @Test
+    public void testNestedOrEqualitiesAreCollapsedIntoIn() {
+        query.where(person.isMarried()).isTrue().and(rb.or(
+                rb.where(person.getAge()).eq(20),
+                rb.where(person.getAge()).eq(30)));
+        validate(" from Person hobj1 where hobj1.married = :np1 and hobj1.age in (:np2)", 
+                Boolean.TRUE, Arrays.asList(20, 30));
+    }
+
+    @Test
+    public void testRangesAreMerged() {
+        query.where(person.getAge()).gt(5).
+                and(person.getAge()).gte(10).
+                and(person.getAge()).lt(50).
+                and(person.getAge()).lte(40);
+        validate(" from Person hobj1 where hobj1.age >= :np1 and hobj1.age <= :np2", 10, 40);
+    }
+
+    @Test
+    public void testStrictBoundIsKeptForEqualValues() {
+        query.where(person.getAge()).gte(10).and(person.getAge()).gt(10);
+        validate(" from Person hobj1 where hobj1.age > :np1", 10);
+    }
+
+    @Test
+    public void testEqualityImpliesRange() {
+        query.where(person.getAge()).gt(10).and(person.getAge()).eq(20).and(person.getAge()).lt(30);
+        validate(" from Person hobj1 where hobj1.age = :np1", 20);
+    }
+
+    @Test
+    public void testContradictingRangeIsFalse() {
+        query.where(person.getAge()).gt(50).and(person.getAge()).lt(10);
+        validate(" from Person hobj1 where 1 = 0");
+    }
+
+    @Test
+    public void testContradictingTermIsRemoved() {
+        query.where(person.getAge()).eq(20).and(person.getAge()).eq(30).
+                or(person.getName()).eq("Josh");
+        validate(" from Person hobj1 where hobj1.name = :np1", "Josh");
+    }
+
+    @Test
+    public void testTautologiesAreRemoved() {
+        query.where(5).lt(10).and(person.getName()).eq("Josh");
+        validate(" from Person hobj1 where hobj1.name = :np1", "Josh");
+    }
+
+    @Test
+    public void testTautologyInOrRemovesRestrictions() {
+        query.where(person.getName()).eq("Josh").or(5).lt(10);
+        validate(" from Person hobj1");
+    }
+
+    @Test
+    public void testNotOptimizedByDefault() {
+        query.setRestrictionsOptimized(false);
+        query.where(person.getAge()).gt(5).and(person.getAge()).gt(5);
+        validate(" from Person hobj1 where hobj1.age > :np1 and hobj1.age > :np2", 5, 5);
+    }
+
+}